@@ -0,0 +1,45 @@
+package com.learnkafka.audit;
+
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.config.LibraryEventAuditProperties.Mode;
+import com.learnkafka.domain.LibraryEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//The library-events.audit logger of the producer and the consumer, routed to an async appender in their
+//logback-spring.xml. Events are sampled and logged as key fields only unless mode is full.
+public abstract class LibraryEventAudit {
+
+    public static final String LOGGER_NAME = "library-events.audit";
+
+    protected static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+    private final LibraryEventAuditProperties properties;
+
+    protected LibraryEventAudit(LibraryEventAuditProperties properties) {
+        this.properties = properties;
+    }
+
+    //event names what happened to the record, sent or received
+    protected void audit(String event, Integer key, LibraryEvent value, int partition, long offset) {
+        Mode mode = properties.getMode();
+        if (mode == Mode.OFF || !log.isInfoEnabled() || !sampled()) {
+            return;
+        }
+        if (mode == Mode.FULL) {
+            log.info("event={} key={} partition={} offset={} value={}", event, key, partition, offset, value);
+        } else {
+            log.info("event={} key={} type={} bookId={} partition={} offset={}",
+                    event, key, value != null ? value.getLibraryEventType() : null,
+                    value != null && value.getBook() != null ? value.getBook().getBookId() : null,
+                    partition, offset);
+        }
+    }
+
+    private boolean sampled() {
+        double sampleRate = properties.getSampleRate();
+        return sampleRate >= 1.0 || (sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
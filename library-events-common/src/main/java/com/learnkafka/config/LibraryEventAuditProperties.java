@@ -0,0 +1,19 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "library-events.audit")
+@Data
+public class LibraryEventAuditProperties {
+
+    //What an acknowledged send or a received record writes to the library-events.audit logger, failures are always logged
+    private Mode mode = Mode.KEY_ONLY;
+
+    //Fraction of acknowledged sends or received records that are logged, 1.0 logs every one
+    private double sampleRate = 0.01;
+
+    public enum Mode {
+        OFF, KEY_ONLY, FULL
+    }
+}
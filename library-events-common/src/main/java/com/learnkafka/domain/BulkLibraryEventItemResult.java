@@ -0,0 +1,19 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BulkLibraryEventItemResult {
+    private int index;
+    private Integer libraryEventId;
+    private BulkLibraryEventItemStatus status;
+    private Integer partition;
+    private Long offset;
+    private String error;
+}
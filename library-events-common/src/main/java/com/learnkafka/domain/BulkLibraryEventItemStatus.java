@@ -0,0 +1,6 @@
+package com.learnkafka.domain;
+
+public enum BulkLibraryEventItemStatus {
+    ACCEPTED,
+    FAILED
+}
@@ -0,0 +1,18 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class BulkLibraryEventResult {
+    private int accepted;
+    private int failed;
+    private List<BulkLibraryEventItemResult> items;
+}
@@ -0,0 +1,16 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class LibraryEventAcknowledgement {
+    private LibraryEvent libraryEvent;
+    private int partition;
+    private long offset;
+}
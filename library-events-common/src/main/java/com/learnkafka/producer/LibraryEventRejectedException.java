@@ -0,0 +1,8 @@
+package com.learnkafka.producer;
+
+public class LibraryEventRejectedException extends RuntimeException {
+
+    public LibraryEventRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,99 @@
+package com.learnkafka.serde;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+
+//A library-events value decoded only as far as it is read. libraryEventId and libraryEventType come from the binary
+//header, or from one streaming pass over the top-level JSON fields that skips "book" without building it. The full
+//LibraryEvent is decoded on the first get(). Not thread safe, like the ConsumerRecord it arrives in.
+public final class LazyLibraryEvent {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final LibraryEventDeserializer DESERIALIZER = new LibraryEventDeserializer();
+
+    private final byte[] data;
+    private boolean headerRead;
+    private Integer libraryEventId;
+    private LibraryEventType libraryEventType;
+    private LibraryEvent libraryEvent;
+
+    private LazyLibraryEvent(byte[] data) {
+        this.data = data;
+    }
+
+    public static LazyLibraryEvent of(byte[] data) {
+        return new LazyLibraryEvent(data);
+    }
+
+    public Integer getLibraryEventId() {
+        readHeader();
+        return libraryEventId;
+    }
+
+    public LibraryEventType getLibraryEventType() {
+        readHeader();
+        return libraryEventType;
+    }
+
+    public LibraryEvent get() {
+        if (libraryEvent == null) {
+            libraryEvent = DESERIALIZER.deserialize(null, data);
+        }
+        return libraryEvent;
+    }
+
+    //the record value as received, for forwarding without re-encoding
+    public byte[] getData() {
+        return data;
+    }
+
+    void readHeader() {
+        if (headerRead) {
+            return;
+        }
+        if (LibraryEventBinaryFormat.isBinary(data)) {
+            libraryEventId = LibraryEventBinaryFormat.peekLibraryEventId(data);
+            libraryEventType = LibraryEventBinaryFormat.peekLibraryEventType(data);
+        } else {
+            readJsonHeader();
+        }
+        headerRead = true;
+    }
+
+    private void readJsonHeader() {
+        try (JsonParser parser = JSON_FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new SerializationException("Not a LibraryEvent JSON object");
+            }
+            boolean idRead = false;
+            boolean typeRead = false;
+            while (!(idRead && typeRead) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("libraryEventId".equals(field)) {
+                    libraryEventId = value == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+                    idRead = true;
+                } else if ("libraryEventType".equals(field)) {
+                    libraryEventType = value == JsonToken.VALUE_NULL ? null : LibraryEventType.valueOf(parser.getText());
+                    typeRead = true;
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new SerializationException("Can't read the LibraryEvent header", ex);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyLibraryEvent(libraryEventId=" + getLibraryEventId() + ", libraryEventType=" + getLibraryEventType()
+                + ", size=" + data.length + ")";
+    }
+}
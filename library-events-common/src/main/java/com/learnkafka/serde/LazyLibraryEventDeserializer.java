@@ -0,0 +1,18 @@
+package com.learnkafka.serde;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+//For consumers that route or filter on libraryEventId and libraryEventType before they need the Book. The header
+//is read here, so a record without one fails in the deserializer and an ErrorHandlingDeserializer can catch it.
+public class LazyLibraryEventDeserializer implements Deserializer<LazyLibraryEvent> {
+
+    @Override
+    public LazyLibraryEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        LazyLibraryEvent libraryEvent = LazyLibraryEvent.of(data);
+        libraryEvent.readHeader();
+        return libraryEvent;
+    }
+}
@@ -0,0 +1,288 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact, schema-versioned layout of a {@link LibraryEvent}:
+ *
+ * <pre>
+ * magic(1) version(1) flags(1) [libraryEventId(4)] [libraryEventType(1)] [bookId(4)] [bookName] [bookAuthor]
+ * </pre>
+ *
+ * Strings are a varint of (UTF-8 length + 1) followed by the bytes, 0 meaning null. The fixed
+ * header keeps libraryEventId and libraryEventType at known offsets.
+ */
+public final class LibraryEventBinaryFormat {
+
+    //never the first byte of a JSON document, so both formats can share a topic
+    public static final byte MAGIC = 0x00;
+    public static final byte VERSION = 1;
+
+    static final int FLAG_LIBRARY_EVENT_ID = 1;
+    static final int FLAG_LIBRARY_EVENT_TYPE = 1 << 1;
+    static final int FLAG_BOOK = 1 << 2;
+    static final int FLAG_BOOK_ID = 1 << 3;
+
+    static final int HEADER_SIZE = 3;
+
+    private LibraryEventBinaryFormat() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC;
+    }
+
+    //sizes the record first so it is written straight into one exactly sized array
+    public static byte[] encode(LibraryEvent libraryEvent) {
+        Book book = libraryEvent.getBook();
+
+        int flags = 0;
+        int size = HEADER_SIZE;
+        if (libraryEvent.getLibraryEventId() != null) {
+            flags |= FLAG_LIBRARY_EVENT_ID;
+            size += 4;
+        }
+        if (libraryEvent.getLibraryEventType() != null) {
+            flags |= FLAG_LIBRARY_EVENT_TYPE;
+            size += 1;
+        }
+        int bookNameLength = 0;
+        int bookAuthorLength = 0;
+        if (book != null) {
+            flags |= FLAG_BOOK;
+            if (book.getBookId() != null) {
+                flags |= FLAG_BOOK_ID;
+                size += 4;
+            }
+            bookNameLength = utf8Length(book.getBookName());
+            bookAuthorLength = utf8Length(book.getBookAuthor());
+            size += stringSize(bookNameLength) + stringSize(bookAuthorLength);
+        }
+
+        byte[] data = new byte[size];
+        data[0] = MAGIC;
+        data[1] = VERSION;
+        data[2] = (byte) flags;
+        int position = HEADER_SIZE;
+        if (libraryEvent.getLibraryEventId() != null) {
+            position = writeInt(data, position, libraryEvent.getLibraryEventId());
+        }
+        if (libraryEvent.getLibraryEventType() != null) {
+            data[position++] = typeCode(libraryEvent.getLibraryEventType());
+        }
+        if (book != null) {
+            if (book.getBookId() != null) {
+                position = writeInt(data, position, book.getBookId());
+            }
+            position = writeString(data, position, book.getBookName(), bookNameLength);
+            writeString(data, position, book.getBookAuthor(), bookAuthorLength);
+        }
+        return data;
+    }
+
+    public static LibraryEvent decode(byte[] data) {
+        int flags = checkHeader(data);
+        int[] position = {HEADER_SIZE};
+
+        LibraryEvent libraryEvent = new LibraryEvent();
+        if ((flags & FLAG_LIBRARY_EVENT_ID) != 0) {
+            libraryEvent.setLibraryEventId(readInt(data, position));
+        }
+        if ((flags & FLAG_LIBRARY_EVENT_TYPE) != 0) {
+            libraryEvent.setLibraryEventType(typeOf(data[position[0]++]));
+        }
+        if ((flags & FLAG_BOOK) != 0) {
+            Book book = new Book();
+            if ((flags & FLAG_BOOK_ID) != 0) {
+                book.setBookId(readInt(data, position));
+            }
+            book.setBookName(readString(data, position));
+            book.setBookAuthor(readString(data, position));
+            libraryEvent.setBook(book);
+        }
+        return libraryEvent;
+    }
+
+    //header reads for LazyLibraryEvent: libraryEventId and libraryEventType, the book is not touched
+    public static Integer peekLibraryEventId(byte[] data) {
+        int flags = checkHeader(data);
+        if ((flags & FLAG_LIBRARY_EVENT_ID) == 0) {
+            return null;
+        }
+        return readInt(data, new int[]{HEADER_SIZE});
+    }
+
+    public static LibraryEventType peekLibraryEventType(byte[] data) {
+        int flags = checkHeader(data);
+        if ((flags & FLAG_LIBRARY_EVENT_TYPE) == 0) {
+            return null;
+        }
+        int position = (flags & FLAG_LIBRARY_EVENT_ID) != 0 ? HEADER_SIZE + 4 : HEADER_SIZE;
+        if (position >= data.length) {
+            throw new SerializationException("Truncated LibraryEvent");
+        }
+        return typeOf(data[position]);
+    }
+
+    private static int checkHeader(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary LibraryEvent");
+        }
+        if (data[1] != VERSION) {
+            throw new SerializationException("Unsupported LibraryEvent binary version " + data[1]);
+        }
+        return data[2];
+    }
+
+    static byte typeCode(LibraryEventType libraryEventType) {
+        switch (libraryEventType) {
+            case NEW:
+                return 1;
+            case UPDATE:
+                return 2;
+            default:
+                throw new SerializationException("Unknown LibraryEventType " + libraryEventType);
+        }
+    }
+
+    static LibraryEventType typeOf(byte code) {
+        switch (code) {
+            case 1:
+                return LibraryEventType.NEW;
+            case 2:
+                return LibraryEventType.UPDATE;
+            default:
+                throw new SerializationException("Unknown LibraryEventType code " + code);
+        }
+    }
+
+    private static int writeInt(byte[] data, int position, int value) {
+        data[position] = (byte) (value >>> 24);
+        data[position + 1] = (byte) (value >>> 16);
+        data[position + 2] = (byte) (value >>> 8);
+        data[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    static int readInt(byte[] data, int[] position) {
+        int p = position[0];
+        if (p + 4 > data.length) {
+            throw new SerializationException("Truncated LibraryEvent");
+        }
+        position[0] = p + 4;
+        return ((data[p] & 0xff) << 24) | ((data[p + 1] & 0xff) << 16) | ((data[p + 2] & 0xff) << 8) | (data[p + 3] & 0xff);
+    }
+
+    private static int stringSize(int utf8Length) {
+        return varintSize(utf8Length + 1) + Math.max(utf8Length, 0);
+    }
+
+    private static int writeString(byte[] data, int position, String value, int utf8Length) {
+        position = writeVarint(data, position, utf8Length + 1);
+        if (value == null) {
+            return position;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                data[position++] = (byte) c;
+            } else if (c < 0x800) {
+                data[position++] = (byte) (0xc0 | (c >> 6));
+                data[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                data[position++] = (byte) (0xf0 | (codePoint >> 18));
+                data[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                data[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                data[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                //unpaired surrogate, encoded as '?' like String.getBytes does
+                data[position++] = (byte) '?';
+            } else {
+                data[position++] = (byte) (0xe0 | (c >> 12));
+                data[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                data[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return position;
+    }
+
+    private static String readString(byte[] data, int[] position) {
+        int length = readVarint(data, position) - 1;
+        if (length < 0) {
+            return null;
+        }
+        int p = position[0];
+        if (p + length > data.length) {
+            throw new SerializationException("Truncated LibraryEvent");
+        }
+        position[0] = p + length;
+        return new String(data, p, length, StandardCharsets.UTF_8);
+    }
+
+    //-1 for null, so that length + 1 is always a non-negative varint
+    private static int utf8Length(String value) {
+        if (value == null) {
+            return -1;
+        }
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7f) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(byte[] data, int position, int value) {
+        while ((value & ~0x7f) != 0) {
+            data[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static int readVarint(byte[] data, int[] position) {
+        int value = 0;
+        int shift = 0;
+        int p = position[0];
+        while (true) {
+            if (p >= data.length || shift > 28) {
+                throw new SerializationException("Malformed LibraryEvent varint");
+            }
+            byte b = data[p++];
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        position[0] = p;
+        return value;
+    }
+}
@@ -0,0 +1,15 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class LibraryEventBinarySerializer implements Serializer<LibraryEvent> {
+
+    @Override
+    public byte[] serialize(String topic, LibraryEvent libraryEvent) {
+        if (libraryEvent == null) {
+            return null;
+        }
+        return LibraryEventBinaryFormat.encode(libraryEvent);
+    }
+}
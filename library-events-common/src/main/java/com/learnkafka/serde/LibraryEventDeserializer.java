@@ -0,0 +1,30 @@
+package com.learnkafka.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+
+//Reads both formats: the binary layout is recognised by its magic byte, anything else is parsed as JSON
+public class LibraryEventDeserializer implements Deserializer<LibraryEvent> {
+
+    private static final ObjectReader READER = new ObjectMapper().readerFor(LibraryEvent.class);
+
+    @Override
+    public LibraryEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (LibraryEventBinaryFormat.isBinary(data)) {
+            return LibraryEventBinaryFormat.decode(data);
+        }
+        try {
+            return READER.readValue(data);
+        } catch (IOException ex) {
+            throw new SerializationException("Can't deserialize LibraryEvent from topic " + topic, ex);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.LibraryEvent;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+//ErrorHandlingDeserializer around LibraryEventDeserializer, configured by its class name alone:
+//an unreadable record reaches the listener with a null value and the failure in the
+//springDeserializerExceptionValue header instead of failing the poll
+public class LibraryEventErrorHandlingDeserializer extends ErrorHandlingDeserializer<LibraryEvent> {
+
+    public LibraryEventErrorHandlingDeserializer() {
+        super(new LibraryEventDeserializer());
+    }
+}
@@ -0,0 +1,117 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+//Event metadata carried next to the value, so consumers can drop, route and time records without parsing it.
+//Strings are UTF-8, numbers big-endian like the retry headers of the consumer.
+public final class LibraryEventHeaders {
+
+    //NEW or UPDATE
+    public static final String EVENT_TYPE = "event-type";
+    //int, version of the LibraryEvent fields, the same for the JSON and the binary format
+    public static final String SCHEMA_VERSION = "schema-version";
+    //the system that produced the event
+    public static final String EVENT_SOURCE = "event-source";
+    //long, epoch millis when the producer built the record
+    public static final String PRODUCED_AT = "produced-at";
+    //16 bytes, a UUID unique per event and the same in every copy of it, resent ones included
+    public static final String EVENT_ID = "event-id";
+
+    public static final int CURRENT_SCHEMA_VERSION = 1;
+
+    private LibraryEventHeaders() {
+    }
+
+    public static List<Header> of(LibraryEventType libraryEventType, String eventSource, long producedAt) {
+        return of(libraryEventType, eventSource, producedAt, randomEventId());
+    }
+
+    public static List<Header> of(LibraryEventType libraryEventType, String eventSource, long producedAt, UUID eventId) {
+        List<Header> headers = new ArrayList<>(5);
+        if (libraryEventType != null) {
+            headers.add(new RecordHeader(EVENT_TYPE, libraryEventType.name().getBytes(StandardCharsets.UTF_8)));
+        }
+        headers.add(new RecordHeader(SCHEMA_VERSION, ByteBuffer.allocate(Integer.BYTES).putInt(CURRENT_SCHEMA_VERSION).array()));
+        if (eventSource != null) {
+            headers.add(new RecordHeader(EVENT_SOURCE, eventSource.getBytes(StandardCharsets.UTF_8)));
+        }
+        headers.add(new RecordHeader(PRODUCED_AT, ByteBuffer.allocate(Long.BYTES).putLong(producedAt).array()));
+        headers.add(new RecordHeader(EVENT_ID, ByteBuffer.allocate(Long.BYTES * 2)
+                .putLong(eventId.getMostSignificantBits()).putLong(eventId.getLeastSignificantBits()).array()));
+        return headers;
+    }
+
+    //ids only have to differ, UUID.randomUUID() would serialize the senders on one SecureRandom
+    public static UUID randomEventId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    //null when the header is missing or not a known type
+    public static LibraryEventType eventType(Headers headers) {
+        String eventType = stringValue(headers, EVENT_TYPE);
+        if (eventType == null) {
+            return null;
+        }
+        for (LibraryEventType libraryEventType : LibraryEventType.values()) {
+            if (libraryEventType.name().equals(eventType)) {
+                return libraryEventType;
+            }
+        }
+        return null;
+    }
+
+    public static String eventSource(Headers headers) {
+        return stringValue(headers, EVENT_SOURCE);
+    }
+
+    public static Integer schemaVersion(Headers headers) {
+        Header header = headers.lastHeader(SCHEMA_VERSION);
+        return header == null || header.value() == null || header.value().length != Integer.BYTES
+                ? null : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    public static Long producedAt(Headers headers) {
+        Header header = headers.lastHeader(PRODUCED_AT);
+        return header == null || header.value() == null || header.value().length != Long.BYTES
+                ? null : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    public static UUID eventId(Headers headers) {
+        Header header = headers.lastHeader(EVENT_ID);
+        if (header == null || header.value() == null || header.value().length != Long.BYTES * 2) {
+            return null;
+        }
+        ByteBuffer value = ByteBuffer.wrap(header.value());
+        return new UUID(value.getLong(), value.getLong());
+    }
+
+    //missing when the header is missing, decoded in place for the per-record metrics
+    public static long producedAt(Headers headers, long missing) {
+        Header header = headers.lastHeader(PRODUCED_AT);
+        byte[] value = header == null ? null : header.value();
+        if (value == null || value.length != Long.BYTES) {
+            return missing;
+        }
+        long producedAt = 0;
+        for (byte b : value) {
+            producedAt = producedAt << 8 | (b & 0xFF);
+        }
+        return producedAt;
+    }
+
+    private static String stringValue(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
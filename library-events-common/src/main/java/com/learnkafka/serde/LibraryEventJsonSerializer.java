@@ -0,0 +1,26 @@
+package com.learnkafka.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+//Same JSON document as ObjectMapper.writeValueAsString, written to bytes through Jackson's recycled buffers without an intermediate String
+public class LibraryEventJsonSerializer implements Serializer<LibraryEvent> {
+
+    private static final ObjectWriter WRITER = new ObjectMapper().writerFor(LibraryEvent.class);
+
+    @Override
+    public byte[] serialize(String topic, LibraryEvent libraryEvent) {
+        if (libraryEvent == null) {
+            return null;
+        }
+        try {
+            return WRITER.writeValueAsBytes(libraryEvent);
+        } catch (JsonProcessingException ex) {
+            throw new SerializationException("Can't serialize LibraryEvent " + libraryEvent.getLibraryEventId(), ex);
+        }
+    }
+}
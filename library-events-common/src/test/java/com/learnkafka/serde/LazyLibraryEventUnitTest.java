@@ -0,0 +1,100 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LazyLibraryEventUnitTest {
+
+    LibraryEventJsonSerializer jsonSerializer = new LibraryEventJsonSerializer();
+
+    LibraryEventBinarySerializer binarySerializer = new LibraryEventBinarySerializer();
+
+    LazyLibraryEventDeserializer lazyDeserializer = new LazyLibraryEventDeserializer();
+
+    @Test
+    void readsHeaderOfBothFormats() {
+        //given
+        LibraryEvent libraryEvent = libraryEvent(123, LibraryEventType.UPDATE);
+
+        //when
+        LazyLibraryEvent json = lazyDeserializer.deserialize("library-events", jsonSerializer.serialize("library-events", libraryEvent));
+        LazyLibraryEvent binary = lazyDeserializer.deserialize("library-events", binarySerializer.serialize("library-events", libraryEvent));
+
+        //then
+        assertEquals(123, json.getLibraryEventId());
+        assertEquals(LibraryEventType.UPDATE, json.getLibraryEventType());
+        assertEquals(libraryEvent, json.get());
+        assertEquals(123, binary.getLibraryEventId());
+        assertEquals(LibraryEventType.UPDATE, binary.getLibraryEventType());
+        assertEquals(libraryEvent, binary.get());
+    }
+
+    @Test
+    void skipsBookAndKeepsNulls() {
+        //given
+        byte[] bookFirst = ("{\"book\":{\"bookId\":456,\"bookName\":\"Kafka {\\\"nested\\\"}\",\"bookAuthor\":\"Itamar\"},"
+                + "\"libraryEventType\":\"NEW\",\"libraryEventId\":null}").getBytes(StandardCharsets.UTF_8);
+        byte[] noHeader = binarySerializer.serialize("library-events", libraryEvent(null, null));
+
+        //when
+        LazyLibraryEvent json = lazyDeserializer.deserialize("library-events", bookFirst);
+        LazyLibraryEvent binary = lazyDeserializer.deserialize("library-events", noHeader);
+
+        //then
+        assertNull(json.getLibraryEventId());
+        assertEquals(LibraryEventType.NEW, json.getLibraryEventType());
+        assertEquals(456, json.get().getBook().getBookId());
+        assertNull(binary.getLibraryEventId());
+        assertNull(binary.getLibraryEventType());
+        assertNull(lazyDeserializer.deserialize("library-events", null));
+    }
+
+    @Test
+    void rejectsUnreadableHeader() {
+        assertThrows(SerializationException.class, () -> lazyDeserializer.deserialize("library-events",
+                "[1,2]".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(SerializationException.class, () -> lazyDeserializer.deserialize("library-events",
+                "{\"libraryEventType\":\"DELETE\"}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(SerializationException.class, () -> lazyDeserializer.deserialize("library-events",
+                new byte[]{LibraryEventBinaryFormat.MAGIC, LibraryEventBinaryFormat.VERSION, 3, 0, 0}));
+    }
+
+    @Test
+    void errorHandlingDeserializer_hidesFailureInHeader() {
+        //given
+        LibraryEventErrorHandlingDeserializer deserializer = new LibraryEventErrorHandlingDeserializer();
+        RecordHeaders headers = new RecordHeaders();
+        LibraryEvent libraryEvent = libraryEvent(123, LibraryEventType.NEW);
+
+        //when
+        LibraryEvent readable = deserializer.deserialize("library-events", new RecordHeaders(),
+                jsonSerializer.serialize("library-events", libraryEvent));
+        LibraryEvent unreadable = deserializer.deserialize("library-events", headers,
+                "{not json".getBytes(StandardCharsets.UTF_8));
+
+        //then
+        assertEquals(libraryEvent, readable);
+        assertNull(unreadable);
+        assertNotNull(headers.lastHeader(ErrorHandlingDeserializer.VALUE_DESERIALIZER_EXCEPTION_HEADER));
+    }
+
+    private LibraryEvent libraryEvent(Integer libraryEventId, LibraryEventType libraryEventType) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .libraryEventType(libraryEventType)
+                .book(Book.builder().bookId(456).bookName("Kafka using Spring Boot").bookAuthor("Itamar").build())
+                .build();
+    }
+}
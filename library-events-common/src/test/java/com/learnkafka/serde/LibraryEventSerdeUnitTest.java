@@ -0,0 +1,74 @@
+package com.learnkafka.serde;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryEventSerdeUnitTest {
+
+    LibraryEventJsonSerializer jsonSerializer = new LibraryEventJsonSerializer();
+
+    LibraryEventBinarySerializer binarySerializer = new LibraryEventBinarySerializer();
+
+    LibraryEventDeserializer deserializer = new LibraryEventDeserializer();
+
+    @Test
+    void json_matchesObjectMapperOutput() throws Exception {
+        LibraryEvent libraryEvent = libraryEvent(123, LibraryEventType.UPDATE, "Kafka using Spring Boot", "Itamar");
+
+        byte[] json = jsonSerializer.serialize("library-events", libraryEvent);
+
+        assertEquals(new ObjectMapper().writeValueAsString(libraryEvent), new String(json, StandardCharsets.UTF_8));
+        assertEquals(libraryEvent, deserializer.deserialize("library-events", json));
+    }
+
+    @Test
+    void binary_roundTrip() {
+        LibraryEvent libraryEvent = libraryEvent(123, LibraryEventType.NEW, "Kafka \u00e9 \u4e2d \uD83D\uDCDA", "Itamar");
+
+        byte[] binary = binarySerializer.serialize("library-events", libraryEvent);
+
+        assertTrue(LibraryEventBinaryFormat.isBinary(binary));
+        assertTrue(binary.length < jsonSerializer.serialize("library-events", libraryEvent).length);
+        assertEquals(libraryEvent, deserializer.deserialize("library-events", binary));
+    }
+
+    @Test
+    void binary_keepsNulls() {
+        LibraryEvent noKey = libraryEvent(null, null, null, "");
+        LibraryEvent noBook = LibraryEvent.builder().libraryEventId(7).libraryEventType(LibraryEventType.UPDATE).build();
+
+        assertEquals(noKey, deserializer.deserialize("library-events", binarySerializer.serialize("library-events", noKey)));
+        assertEquals(noBook, deserializer.deserialize("library-events", binarySerializer.serialize("library-events", noBook)));
+        assertNull(binarySerializer.serialize("library-events", null));
+        assertNull(deserializer.deserialize("library-events", null));
+    }
+
+    @Test
+    void binary_rejectsTruncatedRecords() {
+        byte[] binary = binarySerializer.serialize("library-events",
+                libraryEvent(123, LibraryEventType.NEW, "Kafka using Spring Boot", "Itamar"));
+        byte[] truncated = new byte[binary.length - 3];
+        System.arraycopy(binary, 0, truncated, 0, truncated.length);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("library-events", truncated));
+    }
+
+    private LibraryEvent libraryEvent(Integer libraryEventId, LibraryEventType libraryEventType, String bookName, String bookAuthor) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .libraryEventType(libraryEventType)
+                .book(Book.builder().bookId(424).bookName(bookName).bookAuthor(bookAuthor).build())
+                .build();
+    }
+}
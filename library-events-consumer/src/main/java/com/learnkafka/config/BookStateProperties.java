@@ -0,0 +1,38 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.book-state")
+@Data
+public class BookStateProperties {
+
+    //Log compacted topic with the latest Book per bookId, written after every committed batch
+    private String topic = "library-books-state";
+
+    //How long a batch waits for library-books-state to acknowledge its books before it fails
+    private Duration sendTimeout = Duration.ofSeconds(30);
+
+    private int partitions = 3;
+
+    private short replicas = 1;
+
+    //What the consumer restores before its listeners start
+    private Bootstrap bootstrap = Bootstrap.NONE;
+
+    //Books and library-books-state offsets written after every bootstrap, read by Bootstrap.SNAPSHOT
+    private Path snapshotFile = Paths.get("library-books-state.snapshot");
+
+    public enum Bootstrap {
+        //nothing, the database already holds the state
+        NONE,
+        //the whole of library-books-state, one record per live book
+        TOPIC,
+        //the snapshot file and the library-books-state records written since, TOPIC when there is no file
+        SNAPSHOT
+    }
+}
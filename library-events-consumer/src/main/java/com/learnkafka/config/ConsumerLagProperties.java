@@ -0,0 +1,17 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.lag")
+@Data
+public class ConsumerLagProperties {
+
+    //How old the log end offsets may get before a lag read fetches them again, one request for all partitions
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    //A lag read waits this long for the log end offsets, the last known ones are used when it runs out
+    private Duration refreshTimeout = Duration.ofSeconds(2);
+}
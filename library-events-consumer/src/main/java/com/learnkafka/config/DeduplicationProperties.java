@@ -0,0 +1,15 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "library-events.dedup")
+@Data
+public class DeduplicationProperties {
+
+    //Skips events this instance has already written when they are delivered again
+    private boolean enabled = true;
+
+    //Events remembered, the oldest are forgotten first. 30 to 45 bytes each, allocated up front. 1 to 67108864
+    private int capacity = 500_000;
+}
@@ -0,0 +1,21 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.membership")
+@Data
+public class GroupMembershipProperties {
+
+    //Joins the library-events group as a static member: a consumer restarted within the session timeout gets its
+    //partitions back without a rebalance. Needs an instance id that survives the restart, e.g. a StatefulSet pod name
+    private boolean staticMembership = false;
+
+    //group.instance.id of this instance, the listener threads add -0, -1.. to it. Defaults to HOSTNAME, then the host name
+    private String instanceId;
+
+    //How long the partitions of a stopped static member wait for it before the group rebalances, longer than a restart
+    private Duration sessionTimeout = Duration.ofSeconds(45);
+}
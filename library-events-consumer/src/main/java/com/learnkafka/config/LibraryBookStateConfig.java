@@ -0,0 +1,22 @@
+package com.learnkafka.config;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+@Configuration
+@EnableConfigurationProperties(BookStateProperties.class)
+public class LibraryBookStateConfig {
+
+    //compacted: a full read costs one record per live book, not one per event ever consumed
+    @Bean
+    public NewTopic libraryBooksStateTopic(BookStateProperties bookStateProperties) {
+        return TopicBuilder.name(bookStateProperties.getTopic())
+                .partitions(bookStateProperties.getPartitions())
+                .replicas(bookStateProperties.getReplicas())
+                .compact()
+                .build();
+    }
+}
@@ -1,9 +1,157 @@
 package com.learnkafka.config;
 
+import com.learnkafka.consumer.LibraryEventConsumerInterceptor;
+import com.learnkafka.consumer.LibraryEventConsumerProgress;
+import com.learnkafka.consumer.LibraryEventDeadLetterPublisher;
+import com.learnkafka.consumer.LibraryEventRouter;
+import com.learnkafka.consumer.LibraryEventRoutingDeserializer;
+import com.learnkafka.consumer.LibraryEventsParallelConsumer;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.RecoveringBatchErrorHandler;
+import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.util.StringUtils;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collection;
 
 @Configuration
 @EnableKafka
+@EnableConfigurationProperties({LibraryEventAuditProperties.class, ParallelProcessingProperties.class, ReadModelProperties.class,
+        RoutingProperties.class, ConsumerLagProperties.class, DeduplicationProperties.class,
+        GroupMembershipProperties.class})
 public class LibraryEventsConsumerConfig {
+
+    //the value deserializer needs the router, so it is set on the consumer factory rather than by class name
+    @Bean
+    @SuppressWarnings("unchecked")
+    DefaultKafkaConsumerFactoryCustomizer libraryEventValueDeserializer(LibraryEventRouter libraryEventRouter) {
+        return consumerFactory -> ((DefaultKafkaConsumerFactory<Object, LibraryEvent>) consumerFactory).setValueDeserializer(
+                new ErrorHandlingDeserializer<>(new LibraryEventRoutingDeserializer(libraryEventRouter)));
+    }
+
+    //spring.kafka.listener.type (batch/single) and spring.kafka.listener.concurrency are applied by the configurer,
+    //max.poll.records and the fetch sizes come from spring.kafka.consumer.*
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            ObjectProvider<LibraryEventsParallelConsumer> parallelConsumer,
+            ParallelProcessingProperties parallelProcessingProperties,
+            LibraryEventDeadLetterPublisher libraryEventDeadLetterPublisher,
+            LibraryEventRouter libraryEventRouter,
+            LibraryEventConsumerProgress libraryEventConsumerProgress,
+            GroupMembershipProperties groupMembershipProperties) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        //no blocking retries, a failed record is handed to library-events-retry-0 (or the dead letter topic) at once
+        //and the partition moves on. The batch listener names the failed record with a BatchListenerFailedException
+        if (Boolean.TRUE.equals(factory.isBatchListener())) {
+            factory.setBatchErrorHandler(new RecoveringBatchErrorHandler(libraryEventDeadLetterPublisher, new FixedBackOff(0L, 0L)));
+        } else {
+            factory.setErrorHandler(new SeekToCurrentErrorHandler(libraryEventDeadLetterPublisher, new FixedBackOff(0L, 0L)));
+        }
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        //offsets of a poll are committed once the listener returns for the whole poll
+        containerProperties.setAckMode(ContainerProperties.AckMode.BATCH);
+        //polls and commits are timed by an interceptor, Kafka passes it the non-String consumer properties
+        containerProperties.getKafkaConsumerProperties().put(ConsumerConfig.INTERCEPTOR_CLASSES_CONFIG,
+                LibraryEventConsumerInterceptor.class.getName());
+        containerProperties.getKafkaConsumerProperties().put(LibraryEventConsumerInterceptor.PROGRESS, libraryEventConsumerProgress);
+        //only the library-events listener is a static member, the retry tiers rebalance as dynamic members of their own group
+        if (groupMembershipProperties.isStaticMembership()) {
+            containerProperties.getKafkaConsumerProperties().setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG,
+                    instanceId(groupMembershipProperties));
+            containerProperties.getKafkaConsumerProperties().setProperty(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG,
+                    String.valueOf(groupMembershipProperties.getSessionTimeout().toMillis()));
+        }
+        LibraryEventsParallelConsumer parallel = parallelConsumer.getIfAvailable();
+        containerProperties.setConsumerRebalanceListener(new LibraryEventsRebalanceListener(libraryEventConsumerProgress, parallel));
+        if (parallel != null) {
+            //the parallel consumer commits what its workers finished, also between polls and when partitions are revoked.
+            //It routes the records itself, dropped ones have to pass its offset tracking
+            containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+            containerProperties.setIdleEventInterval(parallelProcessingProperties.getIdleCommitInterval().toMillis());
+        } else {
+            factory.setRecordFilterStrategy(libraryEventRouter);
+            factory.setAckDiscarded(true);
+        }
+        return factory;
+    }
+
+    //a pod keeps its host name across restarts when it belongs to a StatefulSet
+    private static String instanceId(GroupMembershipProperties groupMembershipProperties) {
+        if (StringUtils.hasText(groupMembershipProperties.getInstanceId())) {
+            return groupMembershipProperties.getInstanceId();
+        }
+        String hostname = System.getenv("HOSTNAME");
+        if (StringUtils.hasText(hostname)) {
+            return hostname;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException ex) {
+            throw new IllegalStateException("No library-events.membership.instance-id and the host name is unknown", ex);
+        }
+    }
+
+    //Not a bean: Spring Boot hands a ConsumerAwareRebalanceListener bean to every container factory, the retry tiers
+    //included. The parallel consumer commits a revoked partition before its progress is dropped, the batch and record
+    //listeners have nothing in flight during a rebalance and the container commits their acknowledged offsets first.
+    //With the cooperative-sticky assignor only the partitions that move are revoked and assigned, the others keep
+    //being consumed. Closing the consumer revokes its partitions too, a static member commits before it stops
+    //even though it does not leave the group
+    private static class LibraryEventsRebalanceListener implements ConsumerAwareRebalanceListener {
+
+        private final LibraryEventConsumerProgress libraryEventConsumerProgress;
+        private final LibraryEventsParallelConsumer parallel;
+
+        private LibraryEventsRebalanceListener(LibraryEventConsumerProgress libraryEventConsumerProgress,
+                                               LibraryEventsParallelConsumer parallel) {
+            this.libraryEventConsumerProgress = libraryEventConsumerProgress;
+            this.parallel = parallel;
+        }
+
+        @Override
+        public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            if (parallel != null) {
+                parallel.onPartitionsRevokedBeforeCommit(consumer, partitions);
+            }
+        }
+
+        @Override
+        public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            libraryEventConsumerProgress.revoked(partitions);
+        }
+
+        @Override
+        public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            if (parallel != null) {
+                parallel.onPartitionsLost(consumer, partitions);
+            }
+            libraryEventConsumerProgress.revoked(partitions);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+            libraryEventConsumerProgress.assigned(consumer, partitions);
+        }
+    }
 }
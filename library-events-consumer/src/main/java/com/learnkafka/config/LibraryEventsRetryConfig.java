@@ -0,0 +1,106 @@
+package com.learnkafka.config;
+
+import com.learnkafka.consumer.LibraryEventDeadLetterPublisher;
+import com.learnkafka.consumer.LibraryEventRetryRouting;
+import com.learnkafka.consumer.LibraryEventRouter;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(RetryProperties.class)
+public class LibraryEventsRetryConfig {
+
+    private static final Duration PUBLISH_TIMEOUT = Duration.ofSeconds(10);
+
+    //the KafkaAdmin creates every NewTopic bean, the number of retry tiers comes from library-events.retry.backoffs
+    @Bean
+    static BeanDefinitionRegistryPostProcessor libraryEventRetryTopics(Environment environment) {
+        return new BeanDefinitionRegistryPostProcessor() {
+            @Override
+            public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+                RetryProperties properties = Binder.get(environment)
+                        .bind("library-events.retry", RetryProperties.class)
+                        .orElseGet(RetryProperties::new);
+                LibraryEventRetryRouting routing = new LibraryEventRetryRouting(properties);
+                for (String topic : routing.retryTopics()) {
+                    registerTopic(registry, topic, properties);
+                }
+                registerTopic(registry, routing.deadLetterTopic(), properties);
+            }
+
+            @Override
+            public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            }
+        };
+    }
+
+    private static void registerTopic(BeanDefinitionRegistry registry, String topic, RetryProperties properties) {
+        registry.registerBeanDefinition(topic + "-topic", new RootBeanDefinition(NewTopic.class, () -> TopicBuilder.name(topic)
+                .partitions(properties.getPartitions())
+                .replicas(properties.getReplicas())
+                .build()));
+    }
+
+    //records that could not be deserialized are published with their original bytes, the others as JSON
+    @Bean
+    public LibraryEventDeadLetterPublisher libraryEventDeadLetterPublisher(KafkaProperties kafkaProperties,
+                                                                         LibraryEventRetryRouting libraryEventRetryRouting) {
+        Map<String, Object> producerProperties = kafkaProperties.buildProducerProperties();
+        Map<Class<?>, KafkaOperations<?, ?>> templates = new LinkedHashMap<>();
+        templates.put(byte[].class, new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProperties,
+                new IntegerSerializer(), new ByteArraySerializer())));
+        templates.put(Object.class, new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(producerProperties,
+                new IntegerSerializer(), new JsonSerializer<>().noTypeInfo())));
+        return new LibraryEventDeadLetterPublisher(templates, libraryEventRetryRouting, PUBLISH_TIMEOUT);
+    }
+
+    //one record at a time, committed only once processed or handed to the next tier
+    @Bean
+    ConcurrentKafkaListenerContainerFactory<?, ?> retryKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory,
+            LibraryEventDeadLetterPublisher libraryEventDeadLetterPublisher,
+            LibraryEventRouter libraryEventRouter) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.setBatchListener(false);
+        factory.setConcurrency(1);
+        //the routing may have changed since the record failed, dropped records are acknowledged unprocessed
+        factory.setRecordFilterStrategy(libraryEventRouter);
+        factory.setAckDiscarded(true);
+        ContainerProperties containerProperties = factory.getContainerProperties();
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        //paused partitions are resumed on idle events
+        containerProperties.setIdleEventInterval(1000L);
+        SeekToCurrentErrorHandler errorHandler = new SeekToCurrentErrorHandler(libraryEventDeadLetterPublisher, new FixedBackOff(0L, 0L));
+        errorHandler.setCommitRecovered(true);
+        factory.setErrorHandler(errorHandler);
+        return factory;
+    }
+}
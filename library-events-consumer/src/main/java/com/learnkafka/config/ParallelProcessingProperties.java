@@ -0,0 +1,31 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.parallel")
+@Data
+public class ParallelProcessingProperties {
+
+    //Fans the records of each poll out to key-ordered workers, needs spring.kafka.listener.type=batch
+    private boolean enabled = false;
+
+    //Worker threads, every one holds a database connection while it writes, keep it below the connection pool size
+    private int shards = 8;
+
+    //Records handed to the workers but not finished yet, the listener waits before dispatching more
+    private int maxInFlight = 5_000;
+
+    //Attempts per worker batch before its records are processed one by one, failures go to the retry topics
+    private int maxAttempts = 3;
+
+    private Duration retryBackoff = Duration.ofMillis(100);
+
+    //How long a revoked partition waits for its in-flight records before the final commit
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    //Commits finished work when no new records arrive
+    private Duration idleCommitInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,21 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.read-model")
+@Data
+public class ReadModelProperties {
+
+    //Entries per cache (library events, books), size bounded: beyond it Caffeine evicts by frequency and recency
+    //(W-TinyLFU), not strictly the least recently used
+    private long maximumSize = 100_000;
+
+    //Author lookups are lists, fewer of them are kept
+    private long authorMaximumSize = 10_000;
+
+    //Entries are reloaded from the database after this, in case rows are changed by something else than the consumer
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
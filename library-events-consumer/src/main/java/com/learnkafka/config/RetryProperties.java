@@ -0,0 +1,23 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "library-events.retry")
+@Data
+public class RetryProperties {
+
+    //Topic the retry tiers and the dead letter topic are named after
+    private String topic = "library-events";
+
+    //One retry topic per entry (library-events-retry-0, -1, ...), a failed record waits the tier's backoff
+    //before it is processed again and moves to the next tier or library-events-dlt when it fails once more
+    private List<Duration> backoffs = List.of(Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofMinutes(1));
+
+    private int partitions = 3;
+
+    private short replicas = 1;
+}
@@ -0,0 +1,28 @@
+package com.learnkafka.config;
+
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashSet;
+import java.util.Set;
+
+//Routing on the event-source, event-type and schema-version headers, decided before the value is parsed.
+//Records without the headers are processed.
+@ConfigurationProperties(prefix = "library-events.routing")
+@Data
+public class RoutingProperties {
+
+    //event-source values whose records are committed without being parsed or processed
+    private Set<String> dropSources = new HashSet<>();
+
+    //event-type values whose records are committed without being parsed or processed
+    private Set<LibraryEventType> dropTypes = new HashSet<>();
+
+    //schema-version values this consumer can read, records of any other version go to the dead letter topic unparsed
+    private Set<Integer> schemaVersions = new HashSet<>(Set.of(LibraryEventHeaders.CURRENT_SCHEMA_VERSION));
+
+    //event-source values the parallel consumer writes ahead of the rest of their worker batch, in their own transaction
+    private Set<String> prioritySources = new HashSet<>();
+}
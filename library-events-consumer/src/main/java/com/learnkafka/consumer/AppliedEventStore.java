@@ -0,0 +1,151 @@
+package com.learnkafka.consumer;
+
+import java.util.Arrays;
+
+//Fingerprints of the last capacity events written, in primitive arrays of a fixed size. An exact set (open addressing,
+//linear probing) holds them and forgets the oldest first, a Bloom filter in front of it answers most lookups of
+//new events without probing the set. The filter cannot forget, so it has two generations of capacity entries
+//each: the older one is cleared and reused once the newer one is full, together they cover the exact set.
+//Fingerprints are non-zero, 0 marks an empty slot.
+public class AppliedEventStore {
+
+    //about 1% false positives per generation at 10 bits and 7 hashes per entry
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASHES = 7;
+    //the table, 4 slots per entry at most, and the filter bits of a generation stay within int indexes
+    static final int MAX_CAPACITY = 1 << 26;
+
+    private final int capacity;
+    private final long[] table;
+    private final int tableMask;
+    //insertion order, the slot at oldest is evicted next once the set is full
+    private final long[] insertions;
+    private int oldest;
+    private int size;
+
+    private long[] currentFilter;
+    private long[] previousFilter;
+    private final int filterMask;
+    private int currentFilterEntries;
+
+    private long falsePositives;
+
+    public AppliedEventStore(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is not between 1 and " + MAX_CAPACITY);
+        }
+        this.capacity = capacity;
+        //at most half full, probes stay short
+        this.table = new long[Integer.highestOneBit(capacity) << 2];
+        this.tableMask = table.length - 1;
+        this.insertions = new long[capacity];
+        int filterBits = Math.max(Long.SIZE, Integer.highestOneBit(capacity * BITS_PER_ENTRY) << 1);
+        this.currentFilter = new long[filterBits / Long.SIZE];
+        this.previousFilter = new long[filterBits / Long.SIZE];
+        this.filterMask = filterBits - 1;
+    }
+
+    public synchronized boolean contains(long fingerprint) {
+        if (!mightContain(currentFilter, fingerprint) && !mightContain(previousFilter, fingerprint)) {
+            return false;
+        }
+        if (table[indexOf(fingerprint)] == fingerprint) {
+            return true;
+        }
+        falsePositives++;
+        return false;
+    }
+
+    public synchronized void add(long fingerprint) {
+        int index = indexOf(fingerprint);
+        if (table[index] == fingerprint) {
+            return;
+        }
+        if (size == capacity) {
+            remove(insertions[oldest]);
+        } else {
+            size++;
+        }
+        table[indexOf(fingerprint)] = fingerprint;
+        insertions[oldest] = fingerprint;
+        oldest = (oldest + 1) % capacity;
+
+        if (currentFilterEntries == capacity) {
+            long[] cleared = previousFilter;
+            Arrays.fill(cleared, 0L);
+            previousFilter = currentFilter;
+            currentFilter = cleared;
+            currentFilterEntries = 0;
+        }
+        setFilterBits(currentFilter, fingerprint);
+        currentFilterEntries++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    //lookups the Bloom filter let through for fingerprints the set does not hold
+    public synchronized long falsePositives() {
+        return falsePositives;
+    }
+
+    //the slot holding the fingerprint, or the empty slot it would go to
+    private int indexOf(long fingerprint) {
+        int index = (int) mix(fingerprint) & tableMask;
+        while (table[index] != 0 && table[index] != fingerprint) {
+            index = (index + 1) & tableMask;
+        }
+        return index;
+    }
+
+    //backward shift deletion, later entries of the probe sequence move up so no lookup stops at the gap
+    private void remove(long fingerprint) {
+        int gap = indexOf(fingerprint);
+        if (table[gap] != fingerprint) {
+            return;
+        }
+        table[gap] = 0;
+        for (int index = (gap + 1) & tableMask; table[index] != 0; index = (index + 1) & tableMask) {
+            int home = (int) mix(table[index]) & tableMask;
+            //moves unless its home lies cyclically within (gap, index]
+            if (((index - home) & tableMask) >= ((index - gap) & tableMask)) {
+                table[gap] = table[index];
+                table[index] = 0;
+                gap = index;
+            }
+        }
+    }
+
+    private boolean mightContain(long[] filter, long fingerprint) {
+        int hash1 = (int) fingerprint;
+        int hash2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (hash1 + i * hash2) & filterMask;
+            if ((filter[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setFilterBits(long[] filter, long fingerprint) {
+        int hash1 = (int) fingerprint;
+        int hash2 = (int) (fingerprint >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (hash1 + i * hash2) & filterMask;
+            filter[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    //murmur3 finalizer, the table index must not follow the filter bits
+    private static long mix(long fingerprint) {
+        long hash = fingerprint;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
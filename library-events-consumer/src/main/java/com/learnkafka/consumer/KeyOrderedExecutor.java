@@ -0,0 +1,48 @@
+package com.learnkafka.consumer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//One single-threaded executor per shard: tasks of one shard run in submission order, different shards run concurrently
+public class KeyOrderedExecutor {
+
+    private final List<ExecutorService> shards = new ArrayList<>();
+
+    public KeyOrderedExecutor(int shards, String threadNamePrefix) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("At least one shard is needed : " + shards);
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            String threadName = threadNamePrefix + shard;
+            this.shards.add(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName)));
+        }
+    }
+
+    public int shardFor(Object key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), shards.size());
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public void execute(int shard, Runnable task) {
+        shards.get(shard).execute(task);
+    }
+
+    //lets queued tasks finish, returns false when some were still running at the timeout
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        shards.forEach(ExecutorService::shutdown);
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (ExecutorService shard : shards) {
+            if (!shard.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
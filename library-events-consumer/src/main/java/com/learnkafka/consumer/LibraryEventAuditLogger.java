@@ -0,0 +1,20 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.audit.LibraryEventAudit;
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+//Sampled audit trail of received records
+@Component
+public class LibraryEventAuditLogger extends LibraryEventAudit {
+
+    public LibraryEventAuditLogger(LibraryEventAuditProperties properties) {
+        super(properties);
+    }
+
+    public void received(ConsumerRecord<Integer, LibraryEvent> consumerRecord) {
+        audit("received", consumerRecord.key(), consumerRecord.value(), consumerRecord.partition(), consumerRecord.offset());
+    }
+}
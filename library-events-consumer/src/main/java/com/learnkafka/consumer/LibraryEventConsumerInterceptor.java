@@ -0,0 +1,37 @@
+package com.learnkafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerInterceptor;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+
+//Reports the polls and commits of the library-events listener consumers, whoever commits: the container or the
+//parallel consumer. Kafka creates it from its class name, the LibraryEventConsumerProgress comes in the consumer properties
+public class LibraryEventConsumerInterceptor implements ConsumerInterceptor<Object, Object> {
+
+    public static final String PROGRESS = "library-events.consumer.progress";
+
+    private LibraryEventConsumerProgress libraryEventConsumerProgress;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        libraryEventConsumerProgress = (LibraryEventConsumerProgress) configs.get(PROGRESS);
+    }
+
+    @Override
+    public ConsumerRecords<Object, Object> onConsume(ConsumerRecords<Object, Object> consumerRecords) {
+        libraryEventConsumerProgress.polled(consumerRecords);
+        return consumerRecords;
+    }
+
+    @Override
+    public void onCommit(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        libraryEventConsumerProgress.committed(offsets);
+    }
+
+    @Override
+    public void close() {
+    }
+}
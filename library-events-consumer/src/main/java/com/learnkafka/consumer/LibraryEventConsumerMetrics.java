@@ -0,0 +1,96 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+//Where the time of a record goes once it is written: waiting after the poll, processing per batch and per record,
+//and end to end from the produced-at header. The records dropped by routing are counted. Nothing is allocated per
+//record. The end-to-end latency compares the producer's clock with this one, skew between the hosts shows up in it.
+@Component
+public class LibraryEventConsumerMetrics {
+
+    static final String END_TO_END = "library.events.consumer.end.to.end";
+    static final String POLL_TO_PROCESS = "library.events.consumer.poll.to.process";
+    static final String BATCH_PROCESSING = "library.events.consumer.batch.processing";
+    static final String RECORD_PROCESSING = "library.events.consumer.record.processing";
+    static final String DROPPED = "library.events.consumer.dropped";
+    private static final long NO_HEADER = -1;
+
+    private final LibraryEventConsumerProgress libraryEventConsumerProgress;
+    private final Timer endToEnd;
+    private final Timer pollToProcess;
+    private final Timer batchProcessing;
+    private final Timer recordProcessing;
+    private final Counter droppedBySource;
+    private final Counter droppedByType;
+
+    public LibraryEventConsumerMetrics(MeterRegistry meterRegistry, LibraryEventConsumerProgress libraryEventConsumerProgress) {
+        this.libraryEventConsumerProgress = libraryEventConsumerProgress;
+        this.endToEnd = Timer.builder(END_TO_END)
+                .description("Time from the produced-at header until the event was written, first attempts only")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.pollToProcess = Timer.builder(POLL_TO_PROCESS)
+                .description("Time from the poll that returned a record until its processing started")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.batchProcessing = Timer.builder(BATCH_PROCESSING)
+                .description("Time to write one batch of events")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.recordProcessing = Timer.builder(RECORD_PROCESSING)
+                .description("Time to write one event, its share of the batch when written in one")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.droppedBySource = droppedCounter("source", meterRegistry);
+        this.droppedByType = droppedCounter("type", meterRegistry);
+    }
+
+    //startedNanos is System.nanoTime() before the batch was written
+    public void processed(Collection<? extends ConsumerRecord<?, ?>> consumerRecords, long startedNanos) {
+        long processingNanos = System.nanoTime() - startedNanos;
+        long now = System.currentTimeMillis();
+        batchProcessing.record(processingNanos, TimeUnit.NANOSECONDS);
+        long perRecordNanos = processingNanos / Math.max(1, consumerRecords.size());
+        for (ConsumerRecord<?, ?> consumerRecord : consumerRecords) {
+            processed(consumerRecord, startedNanos, perRecordNanos, now);
+        }
+    }
+
+    public void processed(ConsumerRecord<?, ?> consumerRecord, long startedNanos) {
+        processed(consumerRecord, startedNanos, System.nanoTime() - startedNanos, System.currentTimeMillis());
+    }
+
+    //reason is the rule that matched, source or type
+    public void dropped(String reason) {
+        ("source".equals(reason) ? droppedBySource : droppedByType).increment();
+    }
+
+    private void processed(ConsumerRecord<?, ?> consumerRecord, long startedNanos, long processingNanos, long now) {
+        recordProcessing.record(processingNanos, TimeUnit.NANOSECONDS);
+        long polledAt = libraryEventConsumerProgress.polledAt(consumerRecord.topic(), consumerRecord.partition(),
+                consumerRecord.offset());
+        if (polledAt != LibraryEventConsumerProgress.NOT_POLLED) {
+            pollToProcess.record(Math.max(0, startedNanos - polledAt), TimeUnit.NANOSECONDS);
+        }
+        long producedAt = LibraryEventHeaders.producedAt(consumerRecord.headers(), NO_HEADER);
+        if (producedAt != NO_HEADER) {
+            endToEnd.record(Math.max(0, now - producedAt), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //reason is the routing rule that matched
+    private static Counter droppedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder(DROPPED)
+                .description("Records committed without being parsed or processed, by the routing rule that matched")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,299 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.ConsumerLagProperties;
+import com.learnkafka.domain.ConsumerLag;
+import com.learnkafka.domain.PartitionLag;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+//Progress of the library-events partitions assigned to this instance: where the last poll ended, what was committed
+//and the log end offset, the lag is what is not committed yet. Polls and commits are reported on the consumer threads
+//by the LibraryEventConsumerInterceptor, the log end offsets are fetched when the lag is read, at most once per
+//library-events.lag.refresh-interval. Nothing is allocated per record: every partition keeps its slice of the last
+//polls in a ring, which times the records until they are processed and committed.
+@Component
+@Slf4j
+public class LibraryEventConsumerProgress {
+
+    static final String LAG = "library.events.consumer.lag";
+    static final String TIMESTAMP_TO_COMMIT = "library.events.consumer.timestamp.to.commit";
+    public static final long NOT_POLLED = Long.MIN_VALUE;
+    //more polls than a record waits through in the parallel consumer
+    static final int POLLS = 64;
+
+    private final KafkaProperties kafkaProperties;
+    private final ConsumerLagProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Timer timestampToCommit;
+    //indexed by partition, replaced rather than changed so the record path reads it without a lock
+    private final ConcurrentMap<String, PartitionProgress[]> topics = new ConcurrentHashMap<>();
+    private final Object endOffsetsLock = new Object();
+    private Consumer<byte[], byte[]> endOffsetsConsumer;
+    private long endOffsetsFetchedAt;
+
+    public LibraryEventConsumerProgress(KafkaProperties kafkaProperties, ConsumerLagProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.kafkaProperties = kafkaProperties;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.timestampToCommit = Timer.builder(TIMESTAMP_TO_COMMIT)
+                .description("Time from the record timestamp until its offset was committed, the first record of every partition of a poll")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public void polled(ConsumerRecords<?, ?> consumerRecords) {
+        long polledAt = System.nanoTime();
+        for (TopicPartition topicPartition : consumerRecords.partitions()) {
+            List<? extends ConsumerRecord<?, ?>> partitionRecords = consumerRecords.records(topicPartition);
+            ConsumerRecord<?, ?> first = partitionRecords.get(0);
+            PartitionProgress progress = progress(topicPartition.topic(), topicPartition.partition());
+            if (progress == null) {
+                progress = add(topicPartition, first.offset());
+            }
+            progress.polled(first.offset(), partitionRecords.get(partitionRecords.size() - 1).offset(),
+                    first.timestamp(), polledAt);
+        }
+    }
+
+    public void committed(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        long now = System.currentTimeMillis();
+        offsets.forEach((topicPartition, offset) -> {
+            PartitionProgress progress = progress(topicPartition.topic(), topicPartition.partition());
+            if (progress != null) {
+                progress.committed(offset.offset(), now, timestampToCommit);
+            }
+        });
+    }
+
+    //System.nanoTime() of the poll that returned the record, NOT_POLLED once the ring moved past it
+    public long polledAt(String topic, int partition, long offset) {
+        PartitionProgress progress = progress(topic, partition);
+        return progress == null ? NOT_POLLED : progress.polledAt(offset);
+    }
+
+    public ConsumerLag lag() {
+        fetchEndOffsets();
+        List<PartitionLag> partitions = new ArrayList<>();
+        for (PartitionProgress[] topicPartitions : topics.values()) {
+            for (PartitionProgress progress : topicPartitions) {
+                if (progress != null) {
+                    partitions.add(progress.partitionLag());
+                }
+            }
+        }
+        partitions.sort(Comparator.comparing(PartitionLag::getTopic).thenComparingInt(PartitionLag::getPartition));
+        return ConsumerLag.builder()
+                .lag(partitions.stream().mapToLong(PartitionLag::getLag).sum())
+                .partitions(partitions)
+                .build();
+    }
+
+    //the consumer position is where the committed offsets start, reported before the first poll so an idle
+    //partition shows up with no lag. Called from the rebalance listener of the library-events containers only,
+    //the retry tiers are not part of the lag
+    public void assigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        for (TopicPartition topicPartition : partitions) {
+            if (progress(topicPartition.topic(), topicPartition.partition()) == null) {
+                try {
+                    add(topicPartition, consumer.position(topicPartition, properties.getRefreshTimeout()));
+                } catch (KafkaException ex) {
+                    log.debug("No position for {} yet, it is tracked from its first poll : {}", topicPartition, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    //after the final commit of the revoked partitions
+    public synchronized void revoked(Collection<TopicPartition> partitions) {
+        for (TopicPartition topicPartition : partitions) {
+            PartitionProgress progress = progress(topicPartition.topic(), topicPartition.partition());
+            if (progress != null) {
+                meterRegistry.remove(progress.gauge);
+                PartitionProgress[] topicPartitions = topics.get(topicPartition.topic()).clone();
+                topicPartitions[topicPartition.partition()] = null;
+                topics.put(topicPartition.topic(), topicPartitions);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (endOffsetsLock) {
+            if (endOffsetsConsumer != null) {
+                endOffsetsConsumer.close();
+            }
+        }
+    }
+
+    private PartitionProgress progress(String topic, int partition) {
+        PartitionProgress[] topicPartitions = topics.get(topic);
+        return topicPartitions == null || partition >= topicPartitions.length ? null : topicPartitions[partition];
+    }
+
+    private synchronized PartitionProgress add(TopicPartition topicPartition, long committed) {
+        PartitionProgress existing = progress(topicPartition.topic(), topicPartition.partition());
+        if (existing != null) {
+            return existing;
+        }
+        PartitionProgress progress = new PartitionProgress(topicPartition, committed);
+        progress.gauge = Gauge.builder(LAG, progress, this::lag)
+                .description("Records of the partition not committed yet, up to the log end offset")
+                .tag("topic", topicPartition.topic())
+                .tag("partition", String.valueOf(topicPartition.partition()))
+                .register(meterRegistry);
+        PartitionProgress[] topicPartitions = topics.getOrDefault(topicPartition.topic(), new PartitionProgress[0]);
+        topicPartitions = Arrays.copyOf(topicPartitions, Math.max(topicPartitions.length, topicPartition.partition() + 1));
+        topicPartitions[topicPartition.partition()] = progress;
+        topics.put(topicPartition.topic(), topicPartitions);
+        return progress;
+    }
+
+    private double lag(PartitionProgress progress) {
+        fetchEndOffsets();
+        return progress.lag();
+    }
+
+    //a scrape reads the gauge of every partition, they share one request
+    private void fetchEndOffsets() {
+        synchronized (endOffsetsLock) {
+            long now = System.currentTimeMillis();
+            if (now - endOffsetsFetchedAt < properties.getRefreshInterval().toMillis()) {
+                return;
+            }
+            endOffsetsFetchedAt = now;
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionProgress[] topicPartitions : topics.values()) {
+                for (PartitionProgress progress : topicPartitions) {
+                    if (progress != null) {
+                        partitions.add(progress.topicPartition);
+                    }
+                }
+            }
+            if (partitions.isEmpty()) {
+                return;
+            }
+            try {
+                if (endOffsetsConsumer == null) {
+                    endOffsetsConsumer = new KafkaConsumer<>(endOffsetsConsumerProperties(),
+                            new ByteArrayDeserializer(), new ByteArrayDeserializer());
+                }
+                endOffsetsConsumer.endOffsets(partitions, properties.getRefreshTimeout()).forEach((topicPartition, endOffset) -> {
+                    PartitionProgress progress = progress(topicPartition.topic(), topicPartition.partition());
+                    if (progress != null) {
+                        progress.endOffset = endOffset;
+                    }
+                });
+            } catch (KafkaException ex) {
+                log.warn("Could not fetch the log end offsets of {}, the lag is behind : {}", partitions, ex.getMessage());
+            }
+        }
+    }
+
+    //no group, it only reads the log end offsets. Same isolation level as the listeners, so records of open
+    //transactions do not count as lag
+    private Map<String, Object> endOffsetsConsumerProperties() {
+        Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties();
+        consumerProperties.keySet().removeIf(key -> key.startsWith("spring.deserializer."));
+        consumerProperties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return consumerProperties;
+    }
+
+    //polls and commits come from the consumer thread, polledAt from the workers, the lag from scrapes
+    private static final class PartitionProgress {
+
+        private final TopicPartition topicPartition;
+        private final long[] firstOffsets = new long[POLLS];
+        private final long[] lastOffsets = new long[POLLS];
+        private final long[] firstTimestamps = new long[POLLS];
+        private final long[] polledAt = new long[POLLS];
+        //ring slot of the next poll
+        private int next;
+        private int polls;
+        //next offset the consumer reads
+        private long position;
+        //next offset read after a restart
+        private long committed;
+        private volatile long endOffset = -1;
+        private Gauge gauge;
+
+        private PartitionProgress(TopicPartition topicPartition, long committed) {
+            this.topicPartition = topicPartition;
+            this.position = committed;
+            this.committed = committed;
+        }
+
+        private synchronized void polled(long firstOffset, long lastOffset, long firstTimestamp, long nanos) {
+            firstOffsets[next] = firstOffset;
+            lastOffsets[next] = lastOffset;
+            firstTimestamps[next] = firstTimestamp;
+            polledAt[next] = nanos;
+            next = (next + 1) % POLLS;
+            polls = Math.min(polls + 1, POLLS);
+            position = lastOffset + 1;
+        }
+
+        //newest first, a record fetched again after a seek belongs to its latest poll
+        private synchronized long polledAt(long offset) {
+            for (int i = 1; i <= polls; i++) {
+                int slot = (next - i + POLLS) % POLLS;
+                if (firstOffsets[slot] <= offset && offset <= lastOffsets[slot]) {
+                    return polledAt[slot];
+                }
+            }
+            return NOT_POLLED;
+        }
+
+        //one sample per poll slice the commit completes, taken from its first record
+        private synchronized void committed(long offset, long now, Timer timestampToCommit) {
+            for (int i = polls; i >= 1; i--) {
+                int slot = (next - i + POLLS) % POLLS;
+                if (lastOffsets[slot] >= committed && lastOffsets[slot] < offset && firstTimestamps[slot] >= 0) {
+                    timestampToCommit.record(Math.max(0, now - firstTimestamps[slot]), TimeUnit.MILLISECONDS);
+                }
+            }
+            committed = offset;
+        }
+
+        private synchronized PartitionLag partitionLag() {
+            return PartitionLag.builder()
+                    .topic(topicPartition.topic())
+                    .partition(topicPartition.partition())
+                    .committed(committed)
+                    .position(position)
+                    .endOffset(endOffset)
+                    .lag(lag())
+                    .build();
+        }
+
+        //the position is ahead of a log end offset fetched before the last poll
+        private synchronized long lag() {
+            return Math.max(0, Math.max(endOffset, position) - committed);
+        }
+    }
+}
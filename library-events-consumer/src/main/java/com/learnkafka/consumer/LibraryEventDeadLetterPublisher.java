@@ -0,0 +1,39 @@
+package com.learnkafka.consumer;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//Publishes failed records to the next retry topic or the dead letter topic. Unlike the default fire-and-forget
+//publication it waits for the acknowledgement and throws when there is none, so the error handler seeks back
+//instead of committing past a record that was never handed on.
+public class LibraryEventDeadLetterPublisher extends DeadLetterPublishingRecoverer {
+
+    private final Duration sendTimeout;
+
+    public LibraryEventDeadLetterPublisher(Map<Class<?>, KafkaOperations<?, ?>> templates,
+                                           LibraryEventRetryRouting libraryEventRetryRouting, Duration sendTimeout) {
+        super(templates, libraryEventRetryRouting::destination);
+        setHeadersFunction(libraryEventRetryRouting::headers);
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> kafkaTemplate) {
+        try {
+            kafkaTemplate.send(outRecord).get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while publishing to " + outRecord.topic(), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new KafkaException("Could not publish the failed record to " + outRecord.topic(), ex);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.DeduplicationProperties;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+//Skips events that were already written when they arrive again: redelivered after a failed commit or a rebalance
+//that kept the partition here, or resent by the producer outbox. An event is identified by its event-id header, the
+//same in a redelivered or resent record, while every event a client sends gets its own, identical events of one
+//bulk upload included. Records without the header are always written. Events are marked once their transaction
+//committed, a rolled back write is not skipped on its retry. The store lives in this instance, a partition moving to
+//another consumer is not deduplicated there.
+@Component
+public class LibraryEventDeduplicator {
+
+    static final String HITS = "library.events.consumer.dedup.hits";
+    static final String FALSE_POSITIVES = "library.events.consumer.dedup.false.positives";
+    static final String ENTRIES = "library.events.consumer.dedup.entries";
+    static final long NOT_IDENTIFIABLE = 0;
+    private static final int EVENT_ID_BYTES = Long.BYTES * 2;
+    //lz4-java comes with kafka-clients, the pure Java instance needs no native library
+    private static final XXHash64 XX_HASH_64 = XXHashFactory.fastestJavaInstance().hash64();
+
+    private final AppliedEventStore appliedEventStore;
+    private final Counter hits;
+
+    public LibraryEventDeduplicator(DeduplicationProperties properties, MeterRegistry meterRegistry) {
+        this.appliedEventStore = properties.isEnabled() ? new AppliedEventStore(properties.getCapacity()) : null;
+        this.hits = Counter.builder(HITS)
+                .description("Events skipped because they were already written")
+                .register(meterRegistry);
+        if (appliedEventStore != null) {
+            FunctionCounter.builder(FALSE_POSITIVES, appliedEventStore, AppliedEventStore::falsePositives)
+                    .description("Lookups of new events the Bloom filter could not rule out")
+                    .register(meterRegistry);
+            Gauge.builder(ENTRIES, appliedEventStore, AppliedEventStore::size)
+                    .description("Written events remembered for deduplication")
+                    .register(meterRegistry);
+        }
+    }
+
+    //the records not written yet, in order, the list itself when there is nothing to skip.
+    //A record repeated within the list is kept once
+    public <K> List<ConsumerRecord<K, LibraryEvent>> unapplied(List<ConsumerRecord<K, LibraryEvent>> consumerRecords) {
+        if (appliedEventStore == null || consumerRecords.isEmpty()) {
+            return consumerRecords;
+        }
+        long[] fingerprints = new long[consumerRecords.size()];
+        boolean[] applied = new boolean[fingerprints.length];
+        int skipped = 0;
+        for (int index = 0; index < fingerprints.length; index++) {
+            fingerprints[index] = fingerprint(consumerRecords.get(index));
+            if (fingerprints[index] != NOT_IDENTIFIABLE && appliedEventStore.contains(fingerprints[index])) {
+                applied[index] = true;
+                skipped++;
+            }
+        }
+        boolean repeated = hasRepeated(fingerprints);
+        if (skipped == 0 && !repeated) {
+            return consumerRecords;
+        }
+        List<ConsumerRecord<K, LibraryEvent>> unapplied = new ArrayList<>(consumerRecords.size() - skipped);
+        for (int index = 0; index < fingerprints.length; index++) {
+            if (applied[index] || (repeated && fingerprints[index] != NOT_IDENTIFIABLE
+                    && indexOf(fingerprints, fingerprints[index]) < index)) {
+                hits.increment();
+            } else {
+                unapplied.add(consumerRecords.get(index));
+            }
+        }
+        return unapplied;
+    }
+
+    public boolean isApplied(ConsumerRecord<?, LibraryEvent> consumerRecord) {
+        if (appliedEventStore == null) {
+            return false;
+        }
+        long fingerprint = fingerprint(consumerRecord);
+        if (fingerprint != NOT_IDENTIFIABLE && appliedEventStore.contains(fingerprint)) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    //after the transaction that wrote them committed
+    public void applied(Collection<? extends ConsumerRecord<?, LibraryEvent>> consumerRecords) {
+        for (ConsumerRecord<?, LibraryEvent> consumerRecord : consumerRecords) {
+            applied(consumerRecord);
+        }
+    }
+
+    public void applied(ConsumerRecord<?, LibraryEvent> consumerRecord) {
+        if (appliedEventStore == null) {
+            return;
+        }
+        long fingerprint = fingerprint(consumerRecord);
+        if (fingerprint != NOT_IDENTIFIABLE) {
+            appliedEventStore.add(fingerprint);
+        }
+    }
+
+    //xxHash64 of the event-id header as received, the store needs its bits spread for the Bloom filter
+    static long fingerprint(ConsumerRecord<?, LibraryEvent> consumerRecord) {
+        Header header = consumerRecord.headers().lastHeader(LibraryEventHeaders.EVENT_ID);
+        byte[] eventId = header == null ? null : header.value();
+        if (consumerRecord.value() == null || eventId == null || eventId.length != EVENT_ID_BYTES) {
+            return NOT_IDENTIFIABLE;
+        }
+        long fingerprint = XX_HASH_64.hash(eventId, 0, eventId.length, 0);
+        return fingerprint == NOT_IDENTIFIABLE ? 1 : fingerprint;
+    }
+
+    private static boolean hasRepeated(long[] fingerprints) {
+        if (fingerprints.length < 2) {
+            return false;
+        }
+        long[] sorted = fingerprints.clone();
+        Arrays.sort(sorted);
+        for (int index = 1; index < sorted.length; index++) {
+            if (sorted[index] == sorted[index - 1] && sorted[index] != NOT_IDENTIFIABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(long[] fingerprints, long fingerprint) {
+        for (int index = 0; index < fingerprints.length; index++) {
+            if (fingerprints[index] == fingerprint) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,106 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.RetryProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.converter.ConversionException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+//Where a failed record goes next: library-events -> library-events-retry-0 -> ... -> library-events-dlt.
+//The attempt and the time the record is due again travel in headers, next to the kafka_dlt-* headers
+//(original topic/partition/offset, exception class, message and stack trace) added by the recoverer.
+@Component
+public class LibraryEventRetryRouting {
+
+    public static final String ATTEMPT_HEADER = "library-events-retry-attempt";
+    public static final String DUE_HEADER = "library-events-retry-due";
+    public static final String FAILURE_REASON_HEADER = "library-events-failure-reason";
+
+    private final RetryProperties properties;
+
+    public LibraryEventRetryRouting(RetryProperties properties) {
+        this.properties = properties;
+    }
+
+    public String sourceTopic() {
+        return properties.getTopic();
+    }
+
+    public String[] retryTopics() {
+        return IntStream.range(0, properties.getBackoffs().size())
+                .mapToObj(this::retryTopic)
+                .toArray(String[]::new);
+    }
+
+    public String retryTopic(int tier) {
+        return properties.getTopic() + "-retry-" + tier;
+    }
+
+    public String deadLetterTopic() {
+        return properties.getTopic() + "-dlt";
+    }
+
+    //a negative partition lets the producer partition by key
+    public TopicPartition destination(ConsumerRecord<?, ?> consumerRecord, Exception exception) {
+        int attempt = attempt(consumerRecord);
+        if (!isRetryable(exception) || attempt >= properties.getBackoffs().size()) {
+            return new TopicPartition(deadLetterTopic(), -1);
+        }
+        return new TopicPartition(retryTopic(attempt), -1);
+    }
+
+    public Headers headers(ConsumerRecord<?, ?> consumerRecord, Exception exception) {
+        int attempt = attempt(consumerRecord);
+        Headers headers = new RecordHeaders();
+        headers.add(ATTEMPT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(attempt + 1).array());
+        if (isRetryable(exception) && attempt < properties.getBackoffs().size()) {
+            long due = System.currentTimeMillis() + properties.getBackoffs().get(attempt).toMillis();
+            headers.add(DUE_HEADER, ByteBuffer.allocate(Long.BYTES).putLong(due).array());
+        }
+        Throwable cause = rootCause(exception);
+        headers.add(FAILURE_REASON_HEADER,
+                (cause.getClass().getSimpleName() + ": " + cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+
+    //how many times the record failed before, 0 for a record read from library-events
+    public int attempt(ConsumerRecord<?, ?> consumerRecord) {
+        Header header = consumerRecord.headers().lastHeader(ATTEMPT_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    public long dueTime(ConsumerRecord<?, ?> consumerRecord) {
+        Header header = consumerRecord.headers().lastHeader(DUE_HEADER);
+        return header == null ? 0 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    //records that can not be read will not get better by waiting, they go to the dead letter topic right away
+    public boolean isRetryable(Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DeserializationException || cause instanceof SerializationException
+                    || cause instanceof MessageConversionException || cause instanceof ConversionException
+                    || cause instanceof ClassCastException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Throwable rootCause(Throwable exception) {
+        Throwable cause = exception;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,80 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.RoutingProperties;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+//Decides what happens to a record from its headers alone. The same decision is taken twice: by
+//LibraryEventRoutingDeserializer, so dropped records are never parsed, and by the listener containers
+//as their RecordFilterStrategy, so dropped records never reach a listener.
+@Component
+public class LibraryEventRouter implements RecordFilterStrategy<Object, Object> {
+
+    public enum Route {
+        PROCESS, PRIORITY, DROP, DEAD_LETTER
+    }
+
+    private final RoutingProperties properties;
+    private final LibraryEventConsumerMetrics libraryEventConsumerMetrics;
+
+    public LibraryEventRouter(RoutingProperties properties, LibraryEventConsumerMetrics libraryEventConsumerMetrics) {
+        this.properties = properties;
+        this.libraryEventConsumerMetrics = libraryEventConsumerMetrics;
+    }
+
+    public Route route(Headers headers) {
+        Integer schemaVersion = LibraryEventHeaders.schemaVersion(headers);
+        if (schemaVersion != null && !properties.getSchemaVersions().contains(schemaVersion)) {
+            return Route.DEAD_LETTER;
+        }
+        if (dropReason(headers) != null) {
+            return Route.DROP;
+        }
+        if (!properties.getPrioritySources().isEmpty() && contains(properties.getPrioritySources(),
+                LibraryEventHeaders.eventSource(headers))) {
+            return Route.PRIORITY;
+        }
+        return Route.PROCESS;
+    }
+
+    //routes a record that reached a listener container, dropped ones are counted
+    public Route route(ConsumerRecord<?, ?> consumerRecord) {
+        Route route = route(consumerRecord.headers());
+        if (route == Route.DROP) {
+            libraryEventConsumerMetrics.dropped(dropReason(consumerRecord.headers()));
+        }
+        return route;
+    }
+
+    //true filters the record out, the container commits it like a processed one
+    @Override
+    public boolean filter(ConsumerRecord<Object, Object> consumerRecord) {
+        return route(consumerRecord) == Route.DROP;
+    }
+
+    //headers are only decoded for the rules that are configured
+    private String dropReason(Headers headers) {
+        if (!properties.getDropSources().isEmpty() && contains(properties.getDropSources(),
+                LibraryEventHeaders.eventSource(headers))) {
+            return "source";
+        }
+        if (!properties.getDropTypes().isEmpty()) {
+            LibraryEventType eventType = LibraryEventHeaders.eventType(headers);
+            if (eventType != null && properties.getDropTypes().contains(eventType)) {
+                return "type";
+            }
+        }
+        return null;
+    }
+
+    //records without the header are never matched, some sets reject a null lookup
+    private static boolean contains(Set<String> sources, String eventSource) {
+        return eventSource != null && sources.contains(eventSource);
+    }
+}
@@ -0,0 +1,39 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.serde.LibraryEventDeserializer;
+import com.learnkafka.serde.LibraryEventHeaders;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+//Asks the router before the value is parsed. A dropped record gets a null value, it is filtered out before any
+//listener sees it. A record of an unsupported schema-version fails without being parsed, the ErrorHandlingDeserializer
+//around this one keeps its bytes and the listeners hand it to the dead letter topic like any unreadable record.
+public class LibraryEventRoutingDeserializer implements Deserializer<LibraryEvent> {
+
+    private final LibraryEventRouter libraryEventRouter;
+    private final LibraryEventDeserializer delegate = new LibraryEventDeserializer();
+
+    public LibraryEventRoutingDeserializer(LibraryEventRouter libraryEventRouter) {
+        this.libraryEventRouter = libraryEventRouter;
+    }
+
+    @Override
+    public LibraryEvent deserialize(String topic, byte[] data) {
+        return delegate.deserialize(topic, data);
+    }
+
+    @Override
+    public LibraryEvent deserialize(String topic, Headers headers, byte[] data) {
+        switch (libraryEventRouter.route(headers)) {
+            case DROP:
+                return null;
+            case DEAD_LETTER:
+                throw new SerializationException("Unsupported " + LibraryEventHeaders.SCHEMA_VERSION + " "
+                        + LibraryEventHeaders.schemaVersion(headers) + " on topic " + topic);
+            default:
+                return delegate.deserialize(topic, headers, data);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.service.LibraryEventsService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+@ConditionalOnExpression("'${spring.kafka.listener.type:single}' == 'batch' and !${library-events.parallel.enabled:false}")
+public class LibraryEventsBatchConsumer {
+
+    private static final LogAccessor LOGGER = new LogAccessor(LibraryEventsBatchConsumer.class);
+
+    @Autowired
+    private LibraryEventsService libraryEventsService;
+
+    @Autowired
+    private LibraryEventAuditLogger libraryEventAuditLogger;
+
+    @Autowired
+    private LibraryEventConsumerMetrics libraryEventConsumerMetrics;
+
+    @Autowired
+    private LibraryEventDeduplicator libraryEventDeduplicator;
+
+    //a failed record is named with a BatchListenerFailedException: the records before it are committed,
+    //the record itself goes to the retry topics and the rest of the poll is fetched again.
+    //Records dropped by the LibraryEventRouter are not in the list, so the failed record is named by itself, not its index
+    @KafkaListener(topics = {"library-events"})
+    public void onMessages(List<ConsumerRecord<Integer,LibraryEvent>> consumerRecords){
+        log.debug("ConsumerRecords batch of {}", consumerRecords.size());
+        consumerRecords.forEach(libraryEventAuditLogger::received);
+
+        int undeserializable = indexOfUndeserializable(consumerRecords);
+        List<ConsumerRecord<Integer, LibraryEvent>> readable = libraryEventDeduplicator.unapplied(
+                consumerRecords.subList(0, undeserializable));
+        if (!readable.isEmpty()) {
+            long started = System.nanoTime();
+            try {
+                libraryEventsService.processLibraryEvents(readable);
+                libraryEventDeduplicator.applied(readable);
+                libraryEventConsumerMetrics.processed(readable, started);
+            } catch (RuntimeException ex) {
+                log.warn("Batch of {} library events failed, processing them one by one : {}", readable.size(), ex.getMessage());
+                processOneByOne(readable);
+            }
+        }
+        if (undeserializable < consumerRecords.size()) {
+            ConsumerRecord<Integer, LibraryEvent> consumerRecord = consumerRecords.get(undeserializable);
+            throw new BatchListenerFailedException("Can't deserialize library event at offset " + consumerRecord.offset(),
+                    deserializationException(consumerRecord), consumerRecord);
+        }
+    }
+
+    private void processOneByOne(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        for (ConsumerRecord<Integer, LibraryEvent> consumerRecord : consumerRecords) {
+            long started = System.nanoTime();
+            try {
+                libraryEventsService.processLibraryEvent(consumerRecord);
+            } catch (RuntimeException ex) {
+                throw new BatchListenerFailedException("Failed to process library event", ex, consumerRecord);
+            }
+            libraryEventDeduplicator.applied(consumerRecord);
+            libraryEventConsumerMetrics.processed(consumerRecord, started);
+        }
+    }
+
+    //the ErrorHandlingDeserializer hands over a null value and the failure in a header instead of failing the poll
+    private int indexOfUndeserializable(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        for (int index = 0; index < consumerRecords.size(); index++) {
+            if (deserializationException(consumerRecords.get(index)) != null) {
+                return index;
+            }
+        }
+        return consumerRecords.size();
+    }
+
+    private DeserializationException deserializationException(ConsumerRecord<Integer, LibraryEvent> consumerRecord) {
+        return ListenerUtils.getExceptionFromHeader(consumerRecord,
+                ErrorHandlingDeserializer.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOGGER);
+    }
+}
@@ -1,16 +1,40 @@
 package com.learnkafka.consumer;
 
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.service.LibraryEventsService;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
+@ConditionalOnProperty(name = "spring.kafka.listener.type", havingValue = "single", matchIfMissing = true)
 public class LibraryEventsConsumer {
 
+    @Autowired
+    private LibraryEventsService libraryEventsService;
+
+    @Autowired
+    private LibraryEventAuditLogger libraryEventAuditLogger;
+
+    @Autowired
+    private LibraryEventConsumerMetrics libraryEventConsumerMetrics;
+
+    @Autowired
+    private LibraryEventDeduplicator libraryEventDeduplicator;
+
     @KafkaListener(topics = {"library-events"})
-    public void onMessage(ConsumerRecord<Integer,String> consumerRecord){
-        log.info("ConsumerRecord : {}",consumerRecord);
+    public void onMessage(ConsumerRecord<Integer,LibraryEvent> consumerRecord){
+        libraryEventAuditLogger.received(consumerRecord);
+        if (libraryEventDeduplicator.isApplied(consumerRecord)) {
+            return;
+        }
+        long started = System.nanoTime();
+        libraryEventsService.processLibraryEvent(consumerRecord);
+        libraryEventDeduplicator.applied(consumerRecord);
+        libraryEventConsumerMetrics.processed(consumerRecord, started);
     }
 }
@@ -0,0 +1,233 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.ParallelProcessingProperties;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.service.LibraryEventsService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+//Book-ordered parallel processing: the records of a poll are split into per-shard batches by the book they write,
+//every shard is a single worker thread, so events of one book stay in offset order whatever their key, like with the
+//sequential listeners and library-events.partitioner=book-id, while unrelated books are written concurrently and
+//processing scales past the partition count. The container never commits (AckMode.MANUAL), offsets are committed
+//here on the consumer thread, per partition up to the lowest record that is not finished yet.
+//Records are routed here rather than by a container filter, dropped ones still have to pass the offset tracking.
+//Books with a record of a priority source are written ahead of the rest of their worker batch.
+@Component
+@Slf4j
+@ConditionalOnExpression("'${spring.kafka.listener.type:single}' == 'batch' and ${library-events.parallel.enabled:false}")
+public class LibraryEventsParallelConsumer implements ConsumerAwareRebalanceListener {
+
+    private static final Duration CAPACITY_WAIT = Duration.ofMillis(100);
+    private static final LogAccessor LOGGER = new LogAccessor(LibraryEventsParallelConsumer.class);
+
+    private final LibraryEventsService libraryEventsService;
+    private final LibraryEventAuditLogger libraryEventAuditLogger;
+    private final ParallelProcessingProperties properties;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final LibraryEventDeadLetterPublisher libraryEventDeadLetterPublisher;
+    private final LibraryEventRouter libraryEventRouter;
+    private final LibraryEventConsumerMetrics libraryEventConsumerMetrics;
+    private final LibraryEventDeduplicator libraryEventDeduplicator;
+    private final OffsetTracker offsetTracker = new OffsetTracker();
+
+    public LibraryEventsParallelConsumer(LibraryEventsService libraryEventsService,
+                                         LibraryEventAuditLogger libraryEventAuditLogger,
+                                         LibraryEventDeadLetterPublisher libraryEventDeadLetterPublisher,
+                                         LibraryEventRouter libraryEventRouter,
+                                         LibraryEventConsumerMetrics libraryEventConsumerMetrics,
+                                         LibraryEventDeduplicator libraryEventDeduplicator,
+                                         ParallelProcessingProperties properties) {
+        this.libraryEventsService = libraryEventsService;
+        this.libraryEventAuditLogger = libraryEventAuditLogger;
+        this.libraryEventDeadLetterPublisher = libraryEventDeadLetterPublisher;
+        this.libraryEventRouter = libraryEventRouter;
+        this.libraryEventConsumerMetrics = libraryEventConsumerMetrics;
+        this.libraryEventDeduplicator = libraryEventDeduplicator;
+        this.properties = properties;
+        this.keyOrderedExecutor = new KeyOrderedExecutor(properties.getShards(), "library-events-worker-");
+    }
+
+    @KafkaListener(topics = {"library-events"})
+    public void onMessages(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords, Consumer<?, ?> consumer)
+            throws InterruptedException {
+        commitCompleted(consumer);
+        while (!offsetTracker.awaitInFlightBelow(properties.getMaxInFlight(), CAPACITY_WAIT)) {
+            //keep committing while the workers catch up
+            commitCompleted(consumer);
+        }
+
+        Map<Integer, List<ConsumerRecord<Integer, LibraryEvent>>> shards = new TreeMap<>();
+        Set<Object> priorityKeys = new HashSet<>();
+        for (ConsumerRecord<Integer, LibraryEvent> consumerRecord : consumerRecords) {
+            libraryEventAuditLogger.received(consumerRecord);
+            offsetTracker.dispatched(consumerRecord);
+            LibraryEventRouter.Route route = libraryEventRouter.route(consumerRecord);
+            if (route == LibraryEventRouter.Route.DROP) {
+                offsetTracker.completed(List.of(consumerRecord));
+                continue;
+            }
+            if (route == LibraryEventRouter.Route.PRIORITY) {
+                priorityKeys.add(shardKey(consumerRecord));
+            }
+            shards.computeIfAbsent(keyOrderedExecutor.shardFor(shardKey(consumerRecord)), shard -> new ArrayList<>())
+                    .add(consumerRecord);
+        }
+        shards.forEach((shard, shardRecords) -> keyOrderedExecutor.execute(shard, () -> process(shardRecords, priorityKeys)));
+        log.debug("ConsumerRecords batch of {} dispatched to {} shards, in flight : {}",
+                consumerRecords.size(), shards.size(), offsetTracker.inFlight());
+    }
+
+    //published on the consumer thread once no records arrived for library-events.parallel.idle-commit-interval
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null) {
+            commitCompleted(event.getConsumer());
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        try {
+            if (!offsetTracker.awaitCompletion(partitions, properties.getDrainTimeout())) {
+                log.warn("Revoked partitions {} still had records in flight after {}, they may be processed again",
+                        partitions, properties.getDrainTimeout());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = offsetTracker.commitPoints(partitions);
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+        offsetTracker.remove(partitions);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        offsetTracker.remove(partitions);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!keyOrderedExecutor.shutdown(properties.getDrainTimeout())) {
+            log.warn("Workers did not finish within {}", properties.getDrainTimeout());
+        }
+    }
+
+    //the book row every event rewrites, a keyed UPDATE and an unkeyed NEW of one book meet in one shard.
+    //Records without a book, not deserialized or invalid, only need the record key
+    private Object shardKey(ConsumerRecord<Integer, LibraryEvent> consumerRecord) {
+        LibraryEvent libraryEvent = consumerRecord.value();
+        if (libraryEvent != null && libraryEvent.getBook() != null && libraryEvent.getBook().getBookId() != null) {
+            return libraryEvent.getBook().getBookId();
+        }
+        return consumerRecord.key();
+    }
+
+    //every record of a priority book goes ahead, in order, so the events of one book are still written in order.
+    //Copies of one event share its book, so they meet in one shard and are skipped there
+    private void process(List<ConsumerRecord<Integer, LibraryEvent>> shardRecords, Set<Object> priorityKeys) {
+        List<ConsumerRecord<Integer, LibraryEvent>> priorityRecords = new ArrayList<>();
+        List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords = new ArrayList<>(shardRecords.size());
+        for (ConsumerRecord<Integer, LibraryEvent> consumerRecord : libraryEventDeduplicator.unapplied(shardRecords)) {
+            DeserializationException deserializationException = ListenerUtils.getExceptionFromHeader(consumerRecord,
+                    ErrorHandlingDeserializer.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOGGER);
+            if (deserializationException != null) {
+                recover(consumerRecord, deserializationException);
+            } else if (!priorityKeys.isEmpty() && priorityKeys.contains(shardKey(consumerRecord))) {
+                priorityRecords.add(consumerRecord);
+            } else {
+                consumerRecords.add(consumerRecord);
+            }
+        }
+        if (write(priorityRecords) && write(consumerRecords)) {
+            offsetTracker.completed(shardRecords);
+        }
+    }
+
+    //false when interrupted, the records are left unfinished so the offsets stay uncommitted and they are redelivered
+    private boolean write(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        for (int attempt = 1; !consumerRecords.isEmpty(); attempt++) {
+            long started = System.nanoTime();
+            try {
+                libraryEventsService.processLibraryEvents(consumerRecords);
+                libraryEventDeduplicator.applied(consumerRecords);
+                libraryEventConsumerMetrics.processed(consumerRecords, started);
+                break;
+            } catch (RuntimeException ex) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    log.warn("{} library events failed {} attempts, processing them one by one : {}",
+                            consumerRecords.size(), attempt, ex.getMessage());
+                    processOneByOne(consumerRecords);
+                    break;
+                }
+                log.warn("Attempt {} to process {} library events failed : {}", attempt, consumerRecords.size(), ex.getMessage());
+                try {
+                    Thread.sleep(properties.getRetryBackoff().toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void processOneByOne(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        for (ConsumerRecord<Integer, LibraryEvent> consumerRecord : consumerRecords) {
+            long started = System.nanoTime();
+            try {
+                libraryEventsService.processLibraryEvent(consumerRecord);
+                libraryEventDeduplicator.applied(consumerRecord);
+                libraryEventConsumerMetrics.processed(consumerRecord, started);
+            } catch (RuntimeException ex) {
+                recover(consumerRecord, ex);
+            }
+        }
+    }
+
+    //hands the record to the retry topics, later events of the same key do not wait for it
+    private void recover(ConsumerRecord<Integer, LibraryEvent> consumerRecord, Exception exception) {
+        try {
+            libraryEventDeadLetterPublisher.accept(consumerRecord, exception);
+        } catch (RuntimeException ex) {
+            log.error("Skipping library event from partition {} offset {}, it could not be published for a retry : {}",
+                    consumerRecord.partition(), consumerRecord.offset(), ex.getMessage());
+        }
+    }
+
+    private void commitCompleted(Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = offsetTracker.committable(consumer.assignment());
+        if (!offsets.isEmpty()) {
+            consumer.commitAsync(offsets, (committed, ex) -> {
+                if (ex != null) {
+                    log.warn("Commit of {} failed : {}", committed, ex.getMessage());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.service.LibraryEventsService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Processes the retry topics out of band with their own consumer group, so library-events never waits for a retry.
+//A record that is not due yet pauses its partition and is sought back instead of sleeping, other partitions and
+//tiers keep going. Every tier has a fixed backoff, so the records behind it are due even later.
+@Component
+@Slf4j
+public class LibraryEventsRetryConsumer {
+
+    static final String LISTENER_ID = "libraryEventsRetry";
+
+    private final LibraryEventsService libraryEventsService;
+    private final LibraryEventRetryRouting libraryEventRetryRouting;
+    private final Map<TopicPartition, Long> pausedUntil = new ConcurrentHashMap<>();
+
+    public LibraryEventsRetryConsumer(LibraryEventsService libraryEventsService,
+                                      LibraryEventRetryRouting libraryEventRetryRouting) {
+        this.libraryEventsService = libraryEventsService;
+        this.libraryEventRetryRouting = libraryEventRetryRouting;
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = "#{@libraryEventRetryRouting.retryTopics()}",
+            groupId = "${spring.kafka.consumer.group-id}-retry", containerFactory = "retryKafkaListenerContainerFactory")
+    public void onMessage(ConsumerRecord<Integer, LibraryEvent> consumerRecord, Acknowledgment acknowledgment,
+                          Consumer<?, ?> consumer) {
+        resumeDue(consumer);
+        TopicPartition partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+        if (pausedUntil.containsKey(partition) && consumer.paused().contains(partition)) {
+            //fetched in the same poll behind a record that is not due yet, it is read again after the resume
+            return;
+        }
+        pausedUntil.remove(partition);
+
+        long due = libraryEventRetryRouting.dueTime(consumerRecord);
+        if (due > System.currentTimeMillis()) {
+            consumer.pause(Collections.singleton(partition));
+            consumer.seek(partition, consumerRecord.offset());
+            pausedUntil.put(partition, due);
+            return;
+        }
+
+        log.info("Retrying library event from {} offset {}, attempt {}", partition, consumerRecord.offset(),
+                libraryEventRetryRouting.attempt(consumerRecord));
+        libraryEventsService.processLibraryEvent(consumerRecord);
+        acknowledgment.acknowledge();
+    }
+
+    //published on the consumer thread while every assigned partition is paused
+    @EventListener(condition = "event.listenerId.startsWith('" + LISTENER_ID + "')")
+    public void onIdle(ListenerContainerIdleEvent event) {
+        if (event.getConsumer() != null) {
+            resumeDue(event.getConsumer());
+        }
+    }
+
+    private void resumeDue(Consumer<?, ?> consumer) {
+        long now = System.currentTimeMillis();
+        pausedUntil.forEach((partition, due) -> {
+            if (due > now) {
+                return;
+            }
+            pausedUntil.remove(partition);
+            if (consumer.assignment().contains(partition)) {
+                consumer.resume(Collections.singleton(partition));
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+package com.learnkafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+//Offsets handed to the workers and not finished yet, per partition. A partition is committable up to its lowest
+//unfinished offset, so a slow record holds back the commit of its partition but not the processing behind it.
+//Dispatching and committing happen on the consumer thread, completions come from the workers.
+public class OffsetTracker {
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new HashMap<>();
+    private int inFlight;
+
+    public synchronized void dispatched(ConsumerRecord<?, ?> consumerRecord) {
+        PartitionOffsets offsets = partitions.computeIfAbsent(
+                new TopicPartition(consumerRecord.topic(), consumerRecord.partition()),
+                partition -> new PartitionOffsets(consumerRecord.offset()));
+        offsets.pending.add(consumerRecord.offset());
+        offsets.highestDispatched = Math.max(offsets.highestDispatched, consumerRecord.offset());
+        inFlight++;
+    }
+
+    public synchronized void completed(Collection<? extends ConsumerRecord<?, ?>> consumerRecords) {
+        for (ConsumerRecord<?, ?> consumerRecord : consumerRecords) {
+            PartitionOffsets offsets = partitions.get(new TopicPartition(consumerRecord.topic(), consumerRecord.partition()));
+            //the partition may have been revoked and dropped in the meantime
+            if (offsets != null && offsets.pending.remove(consumerRecord.offset())) {
+                inFlight--;
+            }
+        }
+        notifyAll();
+    }
+
+    //offsets that moved since the last call, limited to the given (assigned) partitions
+    public synchronized Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> committable = new HashMap<>();
+        for (TopicPartition partition : assigned) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets != null && offsets.next() > offsets.committed) {
+                offsets.committed = offsets.next();
+                committable.put(partition, new OffsetAndMetadata(offsets.committed));
+            }
+        }
+        return committable;
+    }
+
+    //current commit points whether they moved or not, for the final synchronous commit of a revoked partition
+    public synchronized Map<TopicPartition, OffsetAndMetadata> commitPoints(Collection<TopicPartition> assigned) {
+        Map<TopicPartition, OffsetAndMetadata> commitPoints = new HashMap<>();
+        for (TopicPartition partition : assigned) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets != null) {
+                offsets.committed = offsets.next();
+                commitPoints.put(partition, new OffsetAndMetadata(offsets.committed));
+            }
+        }
+        return commitPoints;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized boolean awaitInFlightBelow(int limit, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight >= limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return true;
+    }
+
+    public synchronized boolean awaitCompletion(Collection<TopicPartition> drained, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (drained.stream().anyMatch(this::hasPending)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return true;
+    }
+
+    public synchronized void remove(Collection<TopicPartition> removed) {
+        for (TopicPartition partition : removed) {
+            PartitionOffsets offsets = partitions.remove(partition);
+            if (offsets != null) {
+                inFlight -= offsets.pending.size();
+            }
+        }
+        notifyAll();
+    }
+
+    private boolean hasPending(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets != null && !offsets.pending.isEmpty();
+    }
+
+    private static class PartitionOffsets {
+        private final TreeSet<Long> pending = new TreeSet<>();
+        private long highestDispatched;
+        //the consumer position the partition was picked up at, nothing to commit before that
+        private long committed;
+
+        private PartitionOffsets(long firstOffset) {
+            this.highestDispatched = firstOffset - 1;
+            this.committed = firstOffset;
+        }
+
+        private long next() {
+            return pending.isEmpty() ? highestDispatched + 1 : pending.first();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.consumer.LibraryEventConsumerProgress;
+import com.learnkafka.domain.ConsumerLag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+//Lag of the partitions this instance consumes, for autoscalers that poll one endpoint instead of scraping metrics.
+//The library.events.consumer.lag gauges carry the same numbers per partition
+@RestController
+public class LibraryEventConsumerLagController {
+
+    @Autowired
+    LibraryEventConsumerProgress libraryEventConsumerProgress;
+
+    @GetMapping("/lag")
+    public ConsumerLag getLag() {
+        return libraryEventConsumerProgress.lag();
+    }
+}
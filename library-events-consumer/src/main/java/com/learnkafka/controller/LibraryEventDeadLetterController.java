@@ -0,0 +1,26 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.domain.DeadLetterReplayResult;
+import com.learnkafka.service.LibraryEventDeadLetterReplayService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class LibraryEventDeadLetterController {
+
+    @Autowired
+    LibraryEventDeadLetterReplayService libraryEventDeadLetterReplayService;
+
+    //re-publishes up to max records of library-events-dlt to library-events, call again until replayed is 0
+    @PostMapping("/v1/libraryevent/dlt/replay")
+    public ResponseEntity<DeadLetterReplayResult> replay(@RequestParam(defaultValue = "1000") int max)
+            throws InterruptedException {
+        if (max <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(libraryEventDeadLetterReplayService.replay(max));
+    }
+}
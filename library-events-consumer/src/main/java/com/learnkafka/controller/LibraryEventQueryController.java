@@ -0,0 +1,36 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.service.LibraryEventReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+//Current state as consumed from library-events, served from LibraryEventReadModel
+@RestController
+public class LibraryEventQueryController {
+
+    @Autowired
+    LibraryEventReadModel libraryEventReadModel;
+
+    @GetMapping("/v1/libraryevent/{libraryEventId}")
+    public ResponseEntity<LibraryEvent> getLibraryEvent(@PathVariable Integer libraryEventId) {
+        return ResponseEntity.of(libraryEventReadModel.findLibraryEvent(libraryEventId));
+    }
+
+    @GetMapping("/v1/book/{bookId}")
+    public ResponseEntity<Book> getBook(@PathVariable Integer bookId) {
+        return ResponseEntity.of(libraryEventReadModel.findBook(bookId));
+    }
+
+    @GetMapping(value = "/v1/book", params = "author")
+    public List<Book> getBooksByAuthor(@RequestParam String author) {
+        return libraryEventReadModel.findBooksByAuthor(author);
+    }
+}
@@ -0,0 +1,18 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ConsumerLag {
+    //records not committed yet, over all partitions of this instance
+    private long lag;
+    private List<PartitionLag> partitions;
+}
@@ -0,0 +1,22 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class PartitionLag {
+    private String topic;
+    private int partition;
+    //next offset read after a restart
+    private long committed;
+    //next offset the consumer reads
+    private long position;
+    //-1 until it was fetched
+    private long endOffset;
+    private long lag;
+}
@@ -0,0 +1,25 @@
+package com.learnkafka.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+@Entity
+@Table(name = "book")
+public class BookEntity {
+
+    @Id
+    private Integer bookId;
+    private String bookName;
+    private String bookAuthor;
+
+}
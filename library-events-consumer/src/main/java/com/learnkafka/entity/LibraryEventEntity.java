@@ -0,0 +1,41 @@
+package com.learnkafka.entity;
+
+import com.learnkafka.domain.LibraryEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+@Entity
+@Table(name = "library_event")
+public class LibraryEventEntity {
+
+    //a pooled sequence keeps inserts batchable, IDENTITY would force one round trip per row
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "library_event_seq")
+    @SequenceGenerator(name = "library_event_seq", sequenceName = "library_event_seq", allocationSize = 50)
+    private Integer libraryEventId;
+
+    @Enumerated(EnumType.STRING)
+    private LibraryEventType libraryEventType;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id")
+    private BookEntity book;
+}
@@ -0,0 +1,11 @@
+package com.learnkafka.repository;
+
+import com.learnkafka.entity.BookEntity;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface BookRepository extends CrudRepository<BookEntity, Integer> {
+
+    List<BookEntity> findByBookAuthor(String bookAuthor);
+}
@@ -0,0 +1,14 @@
+package com.learnkafka.repository;
+
+import com.learnkafka.entity.LibraryEventEntity;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface LibraryEventsRepository extends CrudRepository<LibraryEventEntity, Integer> {
+
+    //the book is fetched in the same query, read outside of a transaction
+    @EntityGraph(attributePaths = "book")
+    Optional<LibraryEventEntity> findWithBookByLibraryEventId(Integer libraryEventId);
+}
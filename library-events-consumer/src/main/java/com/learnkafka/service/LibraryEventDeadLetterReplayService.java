@@ -0,0 +1,182 @@
+package com.learnkafka.service;
+
+import com.learnkafka.consumer.LibraryEventRetryRouting;
+import com.learnkafka.domain.DeadLetterReplayResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+//Re-publishes records of library-events-dlt to library-events once the cause is fixed. The records are copied
+//byte for byte without the retry and dead letter headers, so they start over as fresh events. Progress is
+//committed under its own consumer group, a replay continues where the last one stopped.
+@Service
+@Slf4j
+public class LibraryEventDeadLetterReplayService {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(30);
+    private static final int MAX_POLL_RECORDS = 500;
+
+    private final KafkaProperties kafkaProperties;
+    private final LibraryEventRetryRouting libraryEventRetryRouting;
+    private final DefaultKafkaProducerFactory<byte[], byte[]> producerFactory;
+    private final KafkaTemplate<byte[], byte[]> kafkaTemplate;
+
+    public LibraryEventDeadLetterReplayService(KafkaProperties kafkaProperties,
+                                               LibraryEventRetryRouting libraryEventRetryRouting) {
+        this.kafkaProperties = kafkaProperties;
+        this.libraryEventRetryRouting = libraryEventRetryRouting;
+        this.producerFactory = new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(),
+                new ByteArraySerializer(), new ByteArraySerializer());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    }
+
+    //one replay at a time, they share the consumer group
+    public synchronized DeadLetterReplayResult replay(int maxRecords) throws InterruptedException {
+        int replayed = 0;
+        int failed = 0;
+        try (Consumer<byte[], byte[]> consumer = new KafkaConsumer<>(consumerProperties(),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer())) {
+            List<PartitionInfo> partitions = consumer.partitionsFor(libraryEventRetryRouting.deadLetterTopic());
+            if (partitions == null || partitions.isEmpty()) {
+                return DeadLetterReplayResult.builder().build();
+            }
+            //assigned rather than subscribed, no rebalance to wait for
+            List<TopicPartition> assignment = partitions.stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .collect(Collectors.toList());
+            consumer.assign(assignment);
+            //records that fail again after the replay land behind these offsets and are left for the next replay
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(assignment);
+
+            boolean limited = false;
+            while (!limited && failed == 0 && !caughtUp(consumer, endOffsets)) {
+                ConsumerRecords<byte[], byte[]> consumerRecords = consumer.poll(POLL_TIMEOUT);
+                List<ConsumerRecord<byte[], byte[]>> toReplay = new ArrayList<>();
+                for (ConsumerRecord<byte[], byte[]> consumerRecord : consumerRecords) {
+                    TopicPartition partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+                    if (consumerRecord.offset() >= endOffsets.get(partition)) {
+                        continue;
+                    }
+                    if (replayed + toReplay.size() >= maxRecords) {
+                        //the rest of the poll is not replayed, the committed offsets are where the next replay starts
+                        limited = true;
+                        break;
+                    }
+                    toReplay.add(consumerRecord);
+                }
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                Set<TopicPartition> failedPartitions = new HashSet<>();
+                for (Map.Entry<ConsumerRecord<byte[], byte[]>, ListenableFuture<SendResult<byte[], byte[]>>> sent
+                        : send(toReplay).entrySet()) {
+                    ConsumerRecord<byte[], byte[]> consumerRecord = sent.getKey();
+                    TopicPartition partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+                    if (failedPartitions.contains(partition)) {
+                        //behind a failed record of the same partition, it is read again by the next replay
+                        continue;
+                    }
+                    if (await(sent.getValue(), consumerRecord)) {
+                        offsets.put(partition, new OffsetAndMetadata(consumerRecord.offset() + 1));
+                        replayed++;
+                    } else {
+                        failedPartitions.add(partition);
+                        failed++;
+                    }
+                }
+                if (!offsets.isEmpty()) {
+                    consumer.commitSync(offsets);
+                }
+            }
+        }
+        log.info("Replayed {} records from {} to {}, {} failed", replayed, libraryEventRetryRouting.deadLetterTopic(),
+                libraryEventRetryRouting.sourceTopic(), failed);
+        return DeadLetterReplayResult.builder().replayed(replayed).failed(failed).build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        producerFactory.destroy();
+    }
+
+    private boolean caughtUp(Consumer<byte[], byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(endOffset -> consumer.position(endOffset.getKey()) >= endOffset.getValue());
+    }
+
+    private Map<String, Object> consumerProperties() {
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties();
+        //raw bytes, the ErrorHandlingDeserializer delegates are not needed
+        properties.keySet().removeIf(key -> key.startsWith("spring.deserializer."));
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaProperties.getConsumer().getGroupId() + "-dlt-replay");
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, MAX_POLL_RECORDS);
+        return properties;
+    }
+
+    private Map<ConsumerRecord<byte[], byte[]>, ListenableFuture<SendResult<byte[], byte[]>>> send(
+            List<ConsumerRecord<byte[], byte[]>> consumerRecords) {
+        Map<ConsumerRecord<byte[], byte[]>, ListenableFuture<SendResult<byte[], byte[]>>> sent = new LinkedHashMap<>();
+        for (ConsumerRecord<byte[], byte[]> consumerRecord : consumerRecords) {
+            RecordHeaders headers = new RecordHeaders();
+            for (Header header : consumerRecord.headers()) {
+                if (!isRetryHeader(header.key())) {
+                    headers.add(header);
+                }
+            }
+            sent.put(consumerRecord, kafkaTemplate.send(new ProducerRecord<>(libraryEventRetryRouting.sourceTopic(),
+                    null, consumerRecord.key(), consumerRecord.value(), headers)));
+        }
+        kafkaTemplate.flush();
+        return sent;
+    }
+
+    private boolean await(ListenableFuture<SendResult<byte[], byte[]>> future, ConsumerRecord<byte[], byte[]> consumerRecord)
+            throws InterruptedException {
+        try {
+            future.get(SEND_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException ex) {
+            log.error("Could not replay partition {} offset {} of {} : {}", consumerRecord.partition(),
+                    consumerRecord.offset(), consumerRecord.topic(), ex.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isRetryHeader(String key) {
+        return key.startsWith("kafka_dlt-") || key.startsWith("library-events-retry-")
+                || key.equals(LibraryEventRetryRouting.FAILURE_REASON_HEADER)
+                || key.startsWith("springDeserializerException");
+    }
+}
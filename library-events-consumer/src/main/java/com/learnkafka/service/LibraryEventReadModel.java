@@ -0,0 +1,130 @@
+package com.learnkafka.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.learnkafka.config.ReadModelProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.entity.LibraryEventEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.repository.LibraryEventsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+//Current state of library events and books for the query API. The consumer writes through once its transaction
+//is committed, lookups that miss load from the database. Hits, misses and evictions are published as
+//cache.gets / cache.evictions tagged with the cache name.
+@Component
+public class LibraryEventReadModel {
+
+    static final String LIBRARY_EVENTS_CACHE = "read-model.library-events";
+    static final String BOOKS_CACHE = "read-model.books";
+    static final String BOOKS_BY_AUTHOR_CACHE = "read-model.books-by-author";
+
+    private final LibraryEventsRepository libraryEventsRepository;
+    private final BookRepository bookRepository;
+    //events refer to their book by id, so a book update is seen through every event of that book
+    private final Cache<Integer, LibraryEventState> libraryEvents;
+    private final Cache<Integer, Book> books;
+    private final Cache<String, List<Book>> booksByAuthor;
+
+    public LibraryEventReadModel(LibraryEventsRepository libraryEventsRepository, BookRepository bookRepository,
+                                 ReadModelProperties properties, MeterRegistry meterRegistry) {
+        this.libraryEventsRepository = libraryEventsRepository;
+        this.bookRepository = bookRepository;
+        this.libraryEvents = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCache(properties.getMaximumSize(), properties), LIBRARY_EVENTS_CACHE);
+        this.books = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCache(properties.getMaximumSize(), properties), BOOKS_CACHE);
+        this.booksByAuthor = CaffeineCacheMetrics.monitor(meterRegistry,
+                newCache(properties.getAuthorMaximumSize(), properties), BOOKS_BY_AUTHOR_CACHE);
+    }
+
+    public Optional<LibraryEvent> findLibraryEvent(Integer libraryEventId) {
+        LibraryEventState state = libraryEvents.get(libraryEventId, this::loadLibraryEvent);
+        if (state == null) {
+            return Optional.empty();
+        }
+        return Optional.of(LibraryEvent.builder()
+                .libraryEventId(state.getLibraryEventId())
+                .libraryEventType(state.getLibraryEventType())
+                .book(state.getBookId() != null ? findBook(state.getBookId()).orElse(null) : null)
+                .build());
+    }
+
+    public Optional<Book> findBook(Integer bookId) {
+        return Optional.ofNullable(books.get(bookId, id -> bookRepository.findById(id).map(this::toBook).orElse(null)));
+    }
+
+    public List<Book> findBooksByAuthor(String bookAuthor) {
+        return booksByAuthor.get(bookAuthor, author -> bookRepository.findByBookAuthor(author).stream()
+                .map(this::toBook)
+                .collect(Collectors.toUnmodifiableList()));
+    }
+
+    //a rolled back batch leaves the caches alone
+    @TransactionalEventListener(fallbackExecution = true)
+    public void written(LibraryEventsWrittenEvent event) {
+        for (LibraryEvent libraryEvent : event.getLibraryEvents()) {
+            Book book = libraryEvent.getBook();
+            books.put(book.getBookId(), book);
+            libraryEvents.put(libraryEvent.getLibraryEventId(), new LibraryEventState(libraryEvent.getLibraryEventId(),
+                    libraryEvent.getLibraryEventType(), book.getBookId()));
+        }
+        booksByAuthor.invalidateAll(event.getStaleAuthors());
+    }
+
+    //books read back from library-books-state at startup, the caches evict beyond their size
+    public void restored(Collection<Book> restoredBooks) {
+        restoredBooks.forEach(book -> books.put(book.getBookId(), book));
+        booksByAuthor.invalidateAll();
+    }
+
+    private LibraryEventState loadLibraryEvent(Integer libraryEventId) {
+        return libraryEventsRepository.findWithBookByLibraryEventId(libraryEventId)
+                .map(this::toState)
+                .orElse(null);
+    }
+
+    private LibraryEventState toState(LibraryEventEntity libraryEvent) {
+        BookEntity book = libraryEvent.getBook();
+        if (book != null) {
+            books.asMap().putIfAbsent(book.getBookId(), toBook(book));
+        }
+        return new LibraryEventState(libraryEvent.getLibraryEventId(), libraryEvent.getLibraryEventType(),
+                book != null ? book.getBookId() : null);
+    }
+
+    private Book toBook(BookEntity book) {
+        return Book.builder()
+                .bookId(book.getBookId())
+                .bookName(book.getBookName())
+                .bookAuthor(book.getBookAuthor())
+                .build();
+    }
+
+    private static <K, V> Cache<K, V> newCache(long maximumSize, ReadModelProperties properties) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    @Value
+    private static class LibraryEventState {
+        Integer libraryEventId;
+        LibraryEventType libraryEventType;
+        Integer bookId;
+    }
+}
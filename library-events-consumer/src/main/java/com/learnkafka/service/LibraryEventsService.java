@@ -0,0 +1,205 @@
+package com.learnkafka.service;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.entity.LibraryEventEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.repository.LibraryEventsRepository;
+import com.learnkafka.state.LibraryBookStatePublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class LibraryEventsService {
+
+    private static final int RESTORE_CHUNK = 500;
+
+    @Autowired
+    private LibraryEventsRepository libraryEventsRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LibraryBookStatePublisher libraryBookStatePublisher;
+
+    public void processLibraryEvent(ConsumerRecord<Integer, LibraryEvent> consumerRecord) {
+        processLibraryEvents(List.of(consumerRecord));
+    }
+
+    //The listener returns only after the commit and after library-books-state acknowledged the written books, so
+    //offsets are never committed ahead of the database or of the state topic. A failed send fails the batch
+    public void processLibraryEvents(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        List<LibraryEvent> written = transactionTemplate.execute(status -> writeLibraryEvents(consumerRecords));
+        libraryBookStatePublisher.publish(written);
+    }
+
+    //one transaction per poll: existing rows are loaded with one query per table, new rows are persisted
+    //and everything is written on commit as JDBC batches (hibernate.jdbc.batch_size, order_inserts/order_updates)
+    private List<LibraryEvent> writeLibraryEvents(List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords) {
+        List<ConsumerRecord<Integer, LibraryEvent>> validRecords = consumerRecords.stream()
+                .filter(this::isValid)
+                .collect(Collectors.toList());
+
+        Set<Integer> bookIds = validRecords.stream()
+                .map(consumerRecord -> consumerRecord.value().getBook().getBookId())
+                .collect(Collectors.toSet());
+        Map<Integer, BookEntity> books = new HashMap<>();
+        bookRepository.findAllById(bookIds).forEach(book -> books.put(book.getBookId(), book));
+
+        Set<Integer> libraryEventIds = validRecords.stream()
+                .map(consumerRecord -> consumerRecord.value().getLibraryEventId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Integer, LibraryEventEntity> libraryEvents = new HashMap<>();
+        libraryEventsRepository.findAllById(libraryEventIds)
+                .forEach(libraryEvent -> libraryEvents.put(libraryEvent.getLibraryEventId(), libraryEvent));
+
+        List<LibraryEvent> written = new ArrayList<>();
+        Set<String> staleAuthors = new HashSet<>();
+        for (ConsumerRecord<Integer, LibraryEvent> consumerRecord : validRecords) {
+            LibraryEvent libraryEvent = consumerRecord.value();
+            switch (libraryEvent.getLibraryEventType()) {
+                case NEW:
+                    LibraryEventEntity libraryEventEntity = LibraryEventEntity.builder()
+                            .libraryEventType(libraryEvent.getLibraryEventType())
+                            .book(mergeBook(books, libraryEvent.getBook(), staleAuthors))
+                            .build();
+                    entityManager.persist(libraryEventEntity);
+                    written.add(snapshot(libraryEventEntity));
+                    break;
+                case UPDATE:
+                    LibraryEventEntity existing = libraryEvents.get(libraryEvent.getLibraryEventId());
+                    if (existing == null) {
+                        log.error("Not a valid library Event, skipping offset {} partition {} : {}",
+                                consumerRecord.offset(), consumerRecord.partition(), libraryEvent);
+                        continue;
+                    }
+                    existing.setLibraryEventType(libraryEvent.getLibraryEventType());
+                    existing.setBook(mergeBook(books, libraryEvent.getBook(), staleAuthors));
+                    written.add(snapshot(existing));
+                    break;
+                default:
+                    log.error("Invalid Library Event Type {}", libraryEvent.getLibraryEventType());
+            }
+        }
+        //the read model is updated after the commit
+        applicationEventPublisher.publishEvent(new LibraryEventsWrittenEvent(written, staleAuthors));
+        log.debug("Persisted {} of {} library events", written.size(), consumerRecords.size());
+        return written;
+    }
+
+    //books read back from library-books-state at startup, written in chunks of one JDBC batch. The topic can be behind
+    //the database (a batch may have failed between its commit and its send, other instances keep writing), so only
+    //books missing from the database are inserted and the rows it has are kept. Returns the books as the database holds them
+    @Transactional
+    public List<Book> restoreBooks(Collection<Book> restoredBooks) {
+        List<Book> pending = new ArrayList<>(restoredBooks);
+        List<Book> current = new ArrayList<>(pending.size());
+        for (int from = 0; from < pending.size(); from += RESTORE_CHUNK) {
+            List<Book> chunk = pending.subList(from, Math.min(from + RESTORE_CHUNK, pending.size()));
+            Map<Integer, BookEntity> books = new HashMap<>();
+            bookRepository.findAllById(chunk.stream().map(Book::getBookId).collect(Collectors.toList()))
+                    .forEach(book -> books.put(book.getBookId(), book));
+            for (Book book : chunk) {
+                BookEntity bookEntity = books.get(book.getBookId());
+                if (bookEntity == null) {
+                    bookEntity = BookEntity.builder()
+                            .bookId(book.getBookId())
+                            .bookName(book.getBookName())
+                            .bookAuthor(book.getBookAuthor())
+                            .build();
+                    books.put(book.getBookId(), bookEntity);
+                    entityManager.persist(bookEntity);
+                }
+                current.add(toBook(bookEntity));
+            }
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return current;
+    }
+
+    private boolean isValid(ConsumerRecord<Integer, LibraryEvent> consumerRecord) {
+        LibraryEvent libraryEvent = consumerRecord.value();
+        if (libraryEvent == null || libraryEvent.getLibraryEventType() == null
+                || libraryEvent.getBook() == null || libraryEvent.getBook().getBookId() == null) {
+            log.error("Incomplete library Event, skipping offset {} partition {} : {}",
+                    consumerRecord.offset(), consumerRecord.partition(), libraryEvent);
+            return false;
+        }
+        if (libraryEvent.getLibraryEventType() == LibraryEventType.UPDATE
+                && libraryEvent.getLibraryEventId() == null) {
+            log.error("Please pass the LibraryEventId, skipping offset {} partition {}",
+                    consumerRecord.offset(), consumerRecord.partition());
+            return false;
+        }
+        return true;
+    }
+
+    //managed books are updated in place (dirty checking issues the UPDATE), unknown ones are persisted once per batch
+    private BookEntity mergeBook(Map<Integer, BookEntity> books, Book book, Set<String> staleAuthors) {
+        BookEntity bookEntity = books.get(book.getBookId());
+        if (bookEntity == null) {
+            bookEntity = BookEntity.builder().bookId(book.getBookId()).build();
+            books.put(book.getBookId(), bookEntity);
+            entityManager.persist(bookEntity);
+        }
+        addAuthor(staleAuthors, bookEntity.getBookAuthor());
+        addAuthor(staleAuthors, book.getBookAuthor());
+        bookEntity.setBookName(book.getBookName());
+        bookEntity.setBookAuthor(book.getBookAuthor());
+        return bookEntity;
+    }
+
+    private void addAuthor(Set<String> authors, String author) {
+        if (author != null) {
+            authors.add(author);
+        }
+    }
+
+    //taken while the entities are managed, later events of the same batch get their own snapshot
+    private LibraryEvent snapshot(LibraryEventEntity libraryEventEntity) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventEntity.getLibraryEventId())
+                .libraryEventType(libraryEventEntity.getLibraryEventType())
+                .book(toBook(libraryEventEntity.getBook()))
+                .build();
+    }
+
+    private Book toBook(BookEntity book) {
+        return Book.builder()
+                .bookId(book.getBookId())
+                .bookName(book.getBookName())
+                .bookAuthor(book.getBookAuthor())
+                .build();
+    }
+}
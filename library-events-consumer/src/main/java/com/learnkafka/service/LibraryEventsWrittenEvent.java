@@ -0,0 +1,15 @@
+package com.learnkafka.service;
+
+import com.learnkafka.domain.LibraryEvent;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Set;
+
+//Published by LibraryEventsService for every processed batch, listeners act on it once the transaction committed.
+//staleAuthors are the old and the new authors of the written books
+@Value
+public class LibraryEventsWrittenEvent {
+    List<LibraryEvent> libraryEvents;
+    Set<String> staleAuthors;
+}
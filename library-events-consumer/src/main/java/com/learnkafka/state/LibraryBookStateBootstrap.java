@@ -0,0 +1,171 @@
+package com.learnkafka.state;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.learnkafka.config.BookStateProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.service.LibraryEventReadModel;
+import com.learnkafka.service.LibraryEventsService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+//Restores the books from library-books-state (and the snapshot file) before the listeners start, the listeners
+//then resume library-events from their committed offsets. Books the database is missing are inserted, the ones it
+//has are kept as they are and seed the read model. A cold start reads one record per live book instead of
+//the whole library-events history, with a snapshot only the records written since the last start.
+@Component
+@Slf4j
+public class LibraryBookStateBootstrap implements SmartLifecycle {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    private static final ObjectReader READER = new ObjectMapper().readerFor(Book.class);
+
+    private final KafkaProperties kafkaProperties;
+    private final BookStateProperties properties;
+    private final LibraryEventsService libraryEventsService;
+    private final LibraryEventReadModel libraryEventReadModel;
+    private volatile boolean running;
+
+    public LibraryBookStateBootstrap(KafkaProperties kafkaProperties, BookStateProperties properties,
+                                     LibraryEventsService libraryEventsService,
+                                     LibraryEventReadModel libraryEventReadModel) {
+        this.kafkaProperties = kafkaProperties;
+        this.properties = properties;
+        this.libraryEventsService = libraryEventsService;
+        this.libraryEventReadModel = libraryEventReadModel;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (properties.getBootstrap() == BookStateProperties.Bootstrap.NONE) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LibraryBookStateSnapshot snapshot = bootstrap();
+        log.info("Restored {} books from {} in {} ms", snapshot.getBooks().size(), properties.getTopic(),
+                System.currentTimeMillis() - started);
+    }
+
+    public LibraryBookStateSnapshot bootstrap() {
+        LibraryBookStateSnapshot snapshot = readSnapshot();
+        Map<Integer, Book> books = new HashMap<>(snapshot.getBooks());
+        Map<Integer, Long> offsets = new HashMap<>(snapshot.getOffsets());
+        int read = 0;
+        try (Consumer<Integer, byte[]> consumer = new KafkaConsumer<>(consumerProperties(),
+                new IntegerDeserializer(), new ByteArrayDeserializer())) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(properties.getTopic());
+            List<TopicPartition> partitions = partitionInfos == null ? List.of() : partitionInfos.stream()
+                    .map(partition -> new TopicPartition(partition.topic(), partition.partition()))
+                    .collect(Collectors.toList());
+            consumer.assign(partitions);
+            for (TopicPartition partition : partitions) {
+                Long offset = offsets.get(partition.partition());
+                if (offset != null) {
+                    consumer.seek(partition, offset);
+                } else {
+                    consumer.seekToBeginning(Collections.singleton(partition));
+                }
+            }
+            //records published after this point are applied by the listeners themselves
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            while (!caughtUp(consumer, endOffsets)) {
+                for (ConsumerRecord<Integer, byte[]> consumerRecord : consumer.poll(POLL_TIMEOUT)) {
+                    apply(books, consumerRecord);
+                    read++;
+                }
+            }
+            partitions.forEach(partition -> offsets.put(partition.partition(), consumer.position(partition)));
+        }
+        log.debug("Read {} records of {} on top of {} books from the snapshot", read, properties.getTopic(),
+                snapshot.getBooks().size());
+
+        //the database wins over the topic, it may have been written after the state was sent
+        libraryEventReadModel.restored(libraryEventsService.restoreBooks(books.values()));
+        LibraryBookStateSnapshot restored = new LibraryBookStateSnapshot(offsets, books);
+        if (properties.getBootstrap() == BookStateProperties.Bootstrap.SNAPSHOT) {
+            try {
+                restored.write(properties.getSnapshotFile());
+            } catch (IOException ex) {
+                log.warn("Could not write the snapshot {} : {}", properties.getSnapshotFile(), ex.getMessage());
+            }
+        }
+        return restored;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    //started and stopped before the listener containers
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 100;
+    }
+
+    private LibraryBookStateSnapshot readSnapshot() {
+        if (properties.getBootstrap() == BookStateProperties.Bootstrap.SNAPSHOT && Files.exists(properties.getSnapshotFile())) {
+            try {
+                return LibraryBookStateSnapshot.read(properties.getSnapshotFile());
+            } catch (IOException ex) {
+                log.warn("Ignoring the snapshot {}, reading {} from the beginning : {}", properties.getSnapshotFile(),
+                        properties.getTopic(), ex.getMessage());
+            }
+        }
+        return new LibraryBookStateSnapshot(Map.of(), Map.of());
+    }
+
+    private void apply(Map<Integer, Book> books, ConsumerRecord<Integer, byte[]> consumerRecord) {
+        if (consumerRecord.value() == null) {
+            books.remove(consumerRecord.key());
+            return;
+        }
+        try {
+            books.put(consumerRecord.key(), READER.readValue(consumerRecord.value()));
+        } catch (IOException ex) {
+            log.warn("Skipping unreadable book {} at partition {} offset {} : {}", consumerRecord.key(),
+                    consumerRecord.partition(), consumerRecord.offset(), ex.getMessage());
+        }
+    }
+
+    private boolean caughtUp(Consumer<Integer, byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(endOffset -> consumer.position(endOffset.getKey()) >= endOffset.getValue());
+    }
+
+    //no group, the offsets live in the snapshot file
+    private Map<String, Object> consumerProperties() {
+        Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties();
+        consumerProperties.keySet().removeIf(key -> key.startsWith("spring.deserializer."));
+        consumerProperties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5_000);
+        return consumerProperties;
+    }
+}
@@ -0,0 +1,72 @@
+package com.learnkafka.state;
+
+import com.learnkafka.config.BookStateProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+//Keeps library-books-state in line with the book table: the latest Book of every written bookId, keyed by bookId,
+//so compaction leaves one record per live book. Sent after the commit by the thread that wrote the books, which
+//waits for the acknowledgements: a book is only ever written by one thread at a time (its partition, or its shard
+//in parallel processing), so its records reach the topic in the order of the database writes.
+@Component
+@Slf4j
+public class LibraryBookStatePublisher {
+
+    private final BookStateProperties properties;
+    private final DefaultKafkaProducerFactory<Integer, Book> producerFactory;
+    private final KafkaTemplate<Integer, Book> kafkaTemplate;
+
+    public LibraryBookStatePublisher(KafkaProperties kafkaProperties, BookStateProperties properties) {
+        this.properties = properties;
+        this.producerFactory = new DefaultKafkaProducerFactory<>(kafkaProperties.buildProducerProperties(),
+                new IntegerSerializer(), new JsonSerializer<Book>().noTypeInfo());
+        this.kafkaTemplate = new KafkaTemplate<>(producerFactory);
+    }
+
+    //throws when a book is not acknowledged within library-events.book-state.send-timeout, the batch then fails
+    //before its offsets are committed and is written again
+    public void publish(List<LibraryEvent> written) {
+        //a book written several times in one batch is sent once, with its last state
+        Map<Integer, Book> books = new LinkedHashMap<>();
+        for (LibraryEvent libraryEvent : written) {
+            books.put(libraryEvent.getBook().getBookId(), libraryEvent.getBook());
+        }
+        List<ListenableFuture<SendResult<Integer, Book>>> sends = new ArrayList<>(books.size());
+        books.forEach((bookId, book) -> sends.add(kafkaTemplate.send(properties.getTopic(), bookId, book)));
+        long deadline = System.nanoTime() + properties.getSendTimeout().toNanos();
+        try {
+            for (ListenableFuture<SendResult<Integer, Book>> send : sends) {
+                send.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while sending books to " + properties.getTopic(), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new KafkaException("Books were written but not sent to " + properties.getTopic(), ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        producerFactory.destroy();
+    }
+}
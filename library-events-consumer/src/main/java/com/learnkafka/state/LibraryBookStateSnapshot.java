@@ -0,0 +1,89 @@
+package com.learnkafka.state;
+
+import com.learnkafka.domain.Book;
+import lombok.Value;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+//The books restored at startup and the library-books-state offsets they were read up to. Written to a temporary
+//file and moved into place, a crash while writing leaves the previous snapshot.
+@Value
+public class LibraryBookStateSnapshot {
+
+    private static final int MAGIC = 0x4C425353;
+    private static final int VERSION = 1;
+
+    //partition -> next offset to read
+    Map<Integer, Long> offsets;
+    Map<Integer, Book> books;
+
+    public static LibraryBookStateSnapshot read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a library-books-state snapshot : " + file);
+            }
+            int partitions = in.readInt();
+            Map<Integer, Long> offsets = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(in.readInt(), in.readLong());
+            }
+            int count = in.readInt();
+            Map<Integer, Book> books = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                Book book = Book.builder()
+                        .bookId(in.readInt())
+                        .bookName(readNullable(in))
+                        .bookAuthor(readNullable(in))
+                        .build();
+                books.put(book.getBookId(), book);
+            }
+            return new LibraryBookStateSnapshot(offsets, books);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(offsets.size());
+                for (Map.Entry<Integer, Long> offset : offsets.entrySet()) {
+                    out.writeInt(offset.getKey());
+                    out.writeLong(offset.getValue());
+                }
+                out.writeInt(books.size());
+                for (Book book : books.values()) {
+                    out.writeInt(book.getBookId());
+                    writeNullable(out, book.getBookName());
+                    writeNullable(out, book.getBookAuthor());
+                }
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
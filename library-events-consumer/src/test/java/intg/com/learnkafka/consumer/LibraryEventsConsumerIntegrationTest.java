@@ -0,0 +1,179 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.entity.LibraryEventEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.repository.LibraryEventsRepository;
+import com.learnkafka.serde.LibraryEventHeaders;
+import com.learnkafka.service.LibraryEventReadModel;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.producer.properties.linger.ms=100",
+        "spring.kafka.listener.type=batch"})
+public class LibraryEventsConsumerIntegrationTest {
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @SpyBean
+    LibraryEventsBatchConsumer libraryEventsBatchConsumer;
+
+    @Autowired
+    LibraryEventsRepository libraryEventsRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LibraryEventReadModel libraryEventReadModel;
+
+    @Test
+    void publishedEventsArriveInBatches() throws Exception {
+        //given
+        int events = 20;
+        CountDownLatch latch = new CountDownLatch(events);
+        AtomicInteger batches = new AtomicInteger();
+        doAnswer(invocation -> {
+            List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords = invocation.getArgument(0);
+            batches.incrementAndGet();
+            invocation.callRealMethod();
+            consumerRecords.forEach(consumerRecord -> latch.countDown());
+            return null;
+        }).when(libraryEventsBatchConsumer).onMessages(anyList());
+
+        //when
+        for (int libraryEventId = 1; libraryEventId <= events; libraryEventId++) {
+            String json = "{\"libraryEventId\":" + libraryEventId + ",\"libraryEventType\":\"UPDATE\","
+                    + "\"book\":{\"bookId\":456,\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+            kafkaTemplate.sendDefault(libraryEventId, json);
+        }
+        kafkaTemplate.flush();
+
+        //then
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertTrue(batches.get() < events);
+        assertEquals(0, latch.getCount());
+    }
+
+    @Test
+    void publishedEventsArePersisted() throws Exception {
+        //given
+        int events = 50;
+
+        //when
+        for (int bookId = 1000; bookId < 1000 + events; bookId++) {
+            String json = "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                    + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+            kafkaTemplate.sendDefault(bookId, json);
+        }
+        kafkaTemplate.flush();
+
+        //then
+        BookEntity lastBook = awaitBook(1000 + events - 1, "Kafka Using Spring Boot");
+        assertEquals("Itamar", lastBook.getBookAuthor());
+        //partitions are consumed independently, the last book sent is not necessarily the last one written
+        for (int bookId = 1000; bookId < 1000 + events; bookId++) {
+            awaitBook(bookId, "Kafka Using Spring Boot");
+        }
+
+        //when
+        LibraryEventEntity libraryEvent = libraryEventsRepository.findAll().iterator().next();
+        String json = "{\"libraryEventId\":" + libraryEvent.getLibraryEventId() + ",\"libraryEventType\":\"UPDATE\","
+                + "\"book\":{\"bookId\":1000,\"bookName\":\"Kafka Using Spring Boot 2.x\",\"bookAuthor\":\"Itamar\"}}";
+        kafkaTemplate.sendDefault(libraryEvent.getLibraryEventId(), json);
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(1000, "Kafka Using Spring Boot 2.x");
+        LibraryEvent current = awaitReadModel(libraryEvent.getLibraryEventId(), "Kafka Using Spring Boot 2.x");
+        assertEquals(1000, current.getBook().getBookId());
+        assertTrue(libraryEventReadModel.findBooksByAuthor("Itamar").size() >= events);
+    }
+
+    @Test
+    void redeliveredEventsAreWrittenOnce() throws Exception {
+        //given
+        int bookId = 3000;
+        long producedAt = System.currentTimeMillis();
+        UUID eventId = LibraryEventHeaders.randomEventId();
+        String json = "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+
+        //when
+        for (int copy = 0; copy < 3; copy++) {
+            kafkaTemplate.send(new ProducerRecord<>("library-events", null, bookId, json,
+                    LibraryEventHeaders.of(LibraryEventType.NEW, "outbox", producedAt, eventId)));
+            kafkaTemplate.flush();
+        }
+        //the same key and content, another event
+        kafkaTemplate.send(new ProducerRecord<>("library-events", null, bookId, json,
+                LibraryEventHeaders.of(LibraryEventType.NEW, "outbox", producedAt)));
+        //written after the copies
+        String nextJson = json.replace("Kafka Using Spring Boot", "Kafka Using Spring Boot 2.x");
+        kafkaTemplate.send(new ProducerRecord<>("library-events", null, bookId, nextJson,
+                LibraryEventHeaders.of(LibraryEventType.NEW, "outbox", producedAt)));
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(bookId, "Kafka Using Spring Boot 2.x");
+        long written = StreamSupport.stream(libraryEventsRepository.findAll().spliterator(), false)
+                .filter(libraryEvent -> libraryEvent.getBook().getBookId() == bookId)
+                .count();
+        assertEquals(3, written);
+    }
+
+    //the read model is updated right after the commit, the row may be visible a moment earlier
+    private LibraryEvent awaitReadModel(int libraryEventId, String bookName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (System.currentTimeMillis() < deadline) {
+            Optional<LibraryEvent> libraryEvent = libraryEventReadModel.findLibraryEvent(libraryEventId);
+            if (libraryEvent.isPresent() && bookName.equals(libraryEvent.get().getBook().getBookName())) {
+                return libraryEvent.get();
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("library event " + libraryEventId + " is not served as " + bookName);
+    }
+
+    private BookEntity awaitBook(int bookId, String bookName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            Optional<BookEntity> book = bookRepository.findById(bookId);
+            if (book.isPresent() && bookName.equals(book.get().getBookName())) {
+                return book.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("book " + bookId + " was not persisted as " + bookName);
+    }
+}
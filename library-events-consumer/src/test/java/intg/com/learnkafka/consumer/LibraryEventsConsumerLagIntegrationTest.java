@@ -0,0 +1,95 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.ConsumerLag;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.domain.PartitionLag;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "library-events.lag.refresh-interval=0s"})
+public class LibraryEventsConsumerLagIntegrationTest {
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void lagIsZeroOnceTheEventsAreCommitted() throws InterruptedException {
+        //when
+        for (int bookId = 3300; bookId < 3306; bookId++) {
+            kafkaTemplate.send(new ProducerRecord<>("library-events", null, bookId, newEvent(bookId),
+                    LibraryEventHeaders.of(LibraryEventType.NEW, "scanner", System.currentTimeMillis())));
+        }
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(3305);
+        ConsumerLag consumerLag = awaitLag(0);
+        assertEquals(3, consumerLag.getPartitions().size());
+        assertEquals(6, consumerLag.getPartitions().stream().mapToLong(PartitionLag::getEndOffset).sum());
+        assertEquals(6, consumerLag.getPartitions().stream().mapToLong(PartitionLag::getCommitted).sum());
+        assertEquals(3, meterRegistry.find(LibraryEventConsumerProgress.LAG).gauges().size());
+        assertTrue(meterRegistry.get(LibraryEventConsumerMetrics.POLL_TO_PROCESS).timer().count() >= 6);
+        assertTrue(meterRegistry.get(LibraryEventConsumerMetrics.RECORD_PROCESSING).timer().count() >= 6);
+        assertTrue(meterRegistry.get(LibraryEventConsumerMetrics.BATCH_PROCESSING).timer().count() >= 1);
+        assertTrue(meterRegistry.get(LibraryEventConsumerProgress.TIMESTAMP_TO_COMMIT).timer().count() >= 1);
+    }
+
+    private String newEvent(int bookId) {
+        return "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+
+    //the commit follows the write
+    private ConsumerLag awaitLag(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        ConsumerLag consumerLag = restTemplate.getForObject("/lag", ConsumerLag.class);
+        while (consumerLag.getLag() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+            consumerLag = restTemplate.getForObject("/lag", ConsumerLag.class);
+        }
+        assertEquals(expected, consumerLag.getLag());
+        return consumerLag;
+    }
+
+    private void awaitBook(int bookId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            if (bookRepository.findById(bookId).isPresent()) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("book " + bookId + " was not persisted");
+    }
+}
@@ -0,0 +1,144 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.entity.LibraryEventEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.repository.LibraryEventsRepository;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "library-events.parallel.enabled=true",
+        "library-events.parallel.shards=4",
+        "library-events.parallel.idle-commit-interval=200ms"})
+public class LibraryEventsParallelConsumerIntegrationTest {
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    LibraryEventsRepository libraryEventsRepository;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    void eventsOfOneKeyStayInOrderAndOffsetsAreCommitted() throws Exception {
+        //given
+        int books = 30;
+        for (int bookId = 2000; bookId < 2000 + books; bookId++) {
+            kafkaTemplate.sendDefault(bookId, newEvent(bookId));
+        }
+        kafkaTemplate.flush();
+        for (int bookId = 2000; bookId < 2000 + books; bookId++) {
+            awaitBook(bookId, "Kafka Using Spring Boot");
+        }
+        LibraryEventEntity libraryEvent = libraryEventsRepository.findAll().iterator().next();
+        int bookId = 2000;
+
+        //when
+        int updates = 20;
+        for (int version = 1; version <= updates; version++) {
+            String json = "{\"libraryEventId\":" + libraryEvent.getLibraryEventId() + ",\"libraryEventType\":\"UPDATE\","
+                    + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Edition " + version + "\",\"bookAuthor\":\"Itamar\"}}";
+            kafkaTemplate.sendDefault(libraryEvent.getLibraryEventId(), json);
+        }
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(bookId, "Edition " + updates);
+        assertEquals(books + updates, awaitCommittedOffsets(books + updates));
+    }
+
+    @Test
+    void eventsOfOneBookStayInOrderWhateverTheirKey() throws Exception {
+        //given
+        int bookId = 2100;
+        kafkaTemplate.send("library-events", 0, null, newEvent(bookId));
+        kafkaTemplate.flush();
+        awaitBook(bookId, "Kafka Using Spring Boot");
+        LibraryEventEntity libraryEvent = libraryEventOf(bookId);
+
+        //when
+        int editions = 20;
+        for (int edition = 1; edition <= editions; edition++) {
+            //keyed UPDATEs and unkeyed NEWs of one book on one partition
+            boolean update = edition % 2 == 0;
+            String json = "{\"libraryEventId\":" + (update ? libraryEvent.getLibraryEventId() : null) + ",\"libraryEventType\":\""
+                    + (update ? "UPDATE" : "NEW") + "\",\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Edition " + edition
+                    + "\",\"bookAuthor\":\"Itamar\"}}";
+            kafkaTemplate.send("library-events", 0, update ? libraryEvent.getLibraryEventId() : null, json);
+        }
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(bookId, "Edition " + editions);
+    }
+
+    private LibraryEventEntity libraryEventOf(int bookId) {
+        for (LibraryEventEntity libraryEvent : libraryEventsRepository.findAll()) {
+            Optional<LibraryEventEntity> withBook = libraryEventsRepository.findWithBookByLibraryEventId(libraryEvent.getLibraryEventId());
+            if (withBook.isPresent() && withBook.get().getBook() != null && withBook.get().getBook().getBookId() == bookId) {
+                return withBook.get();
+            }
+        }
+        throw new AssertionError("no library event of book " + bookId);
+    }
+
+    private String newEvent(int bookId) {
+        return "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+
+    private long awaitCommittedOffsets(long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        long committed = 0;
+        while (System.currentTimeMillis() < deadline) {
+            committed = 0;
+            for (int partition = 0; partition < 3; partition++) {
+                OffsetAndMetadata offset = KafkaTestUtils.getCurrentOffset(embeddedKafkaBroker.getBrokersAsString(),
+                        "group_id", "library-events", partition);
+                committed += offset != null ? offset.offset() : 0;
+            }
+            if (committed >= expected) {
+                return committed;
+            }
+            Thread.sleep(100);
+        }
+        return committed;
+    }
+
+    private BookEntity awaitBook(int bookId, String bookName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            Optional<BookEntity> book = bookRepository.findById(bookId);
+            if (book.isPresent() && bookName.equals(book.get().getBookName())) {
+                return book.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("book " + bookId + " was not persisted as " + bookName);
+    }
+}
@@ -0,0 +1,55 @@
+package com.learnkafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=single"})
+public class LibraryEventsRecordConsumerIntegrationTest {
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @SpyBean
+    LibraryEventsConsumer libraryEventsConsumer;
+
+    @Test
+    void publishedEventsArriveOneByOne() throws Exception {
+        //given
+        CountDownLatch latch = new CountDownLatch(3);
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            latch.countDown();
+            return null;
+        }).when(libraryEventsConsumer).onMessage(isA(ConsumerRecord.class));
+
+        //when
+        for (int libraryEventId = 1; libraryEventId <= 3; libraryEventId++) {
+            String json = "{\"libraryEventId\":" + libraryEventId + ",\"libraryEventType\":\"UPDATE\","
+                    + "\"book\":{\"bookId\":456,\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+            kafkaTemplate.sendDefault(libraryEventId, json);
+        }
+
+        //then
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,139 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.DeadLetterReplayResult;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.service.LibraryEventDeadLetterReplayService;
+import com.learnkafka.service.LibraryEventsService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "library-events.retry.backoffs=200ms,200ms"})
+public class LibraryEventsRetryIntegrationTest {
+
+    static final String POISON = "not a library event";
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @SpyBean
+    LibraryEventsService libraryEventsService;
+
+    @Autowired
+    LibraryEventDeadLetterReplayService libraryEventDeadLetterReplayService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    void failedEventIsRetriedOutOfBandWhileTheRestIsPersisted() throws Exception {
+        //given
+        doAnswer(invocation -> {
+            List<ConsumerRecord<Integer, ?>> consumerRecords = invocation.getArgument(0);
+            boolean failing = consumerRecords.stream()
+                    .anyMatch(consumerRecord -> consumerRecord.topic().equals("library-events")
+                            && consumerRecord.key() != null && consumerRecord.key() == 3000);
+            if (failing) {
+                throw new RecoverableDataAccessException("database unavailable");
+            }
+            return invocation.callRealMethod();
+        }).when(libraryEventsService).processLibraryEvents(anyList());
+
+        //when
+        kafkaTemplate.sendDefault(3000, newEvent(3000));
+        kafkaTemplate.sendDefault(3001, newEvent(3001));
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(3001);
+        awaitBook(3000);
+    }
+
+    @Test
+    void unreadableEventGoesToTheDeadLetterTopicAndCanBeReplayed() throws Exception {
+        //given
+        kafkaTemplate.sendDefault(3100, POISON);
+        kafkaTemplate.sendDefault(3101, newEvent(3101));
+        kafkaTemplate.flush();
+        awaitBook(3101);
+
+        //when
+        ConsumerRecord<byte[], byte[]> deadLetter = awaitRecord("library-events-dlt", "dlt-test");
+
+        //then
+        assertEquals(POISON, new String(deadLetter.value(), StandardCharsets.UTF_8));
+        assertNotNull(deadLetter.headers().lastHeader(LibraryEventRetryRouting.FAILURE_REASON_HEADER));
+        assertNotNull(deadLetter.headers().lastHeader("kafka_dlt-exception-fqcn"));
+        assertEquals("library-events",
+                new String(deadLetter.headers().lastHeader("kafka_dlt-original-topic").value(), StandardCharsets.UTF_8));
+
+        //when
+        DeadLetterReplayResult result = libraryEventDeadLetterReplayService.replay(100);
+
+        //then
+        assertEquals(1, result.getReplayed());
+        assertEquals(0, result.getFailed());
+    }
+
+    private String newEvent(int bookId) {
+        return "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+
+    private ConsumerRecord<byte[], byte[]> awaitRecord(String topic, String group) {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(group, "false", embeddedKafkaBroker);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<byte[], byte[]> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new ByteArrayDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(topic));
+            return KafkaTestUtils.getSingleRecord(consumer, topic, 30_000);
+        }
+    }
+
+    private BookEntity awaitBook(int bookId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            Optional<BookEntity> book = bookRepository.findById(bookId);
+            if (book.isPresent()) {
+                return book.get();
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("book " + bookId + " was not persisted");
+    }
+}
@@ -0,0 +1,199 @@
+package com.learnkafka.consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Three instances of two listener threads each consume a topic of six partitions while they are restarted one after
+//another. The pause is the longest time a partition of the instances still running consumed nothing: an eager
+//rebalance stops every partition of the group, a static member restarted within its session timeout only its own.
+//The pauses are logged, comparing them is left to a quiet machine: -Drolling-restart.assert-pauses=true
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events", LibraryEventsRollingRestartIntegrationTest.TOPIC}, partitions = 6)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "spring.kafka.consumer.fetch-min-size=1B",
+        "library-events.membership.static-membership=true",
+        "library-events.membership.session-timeout=10s"})
+@Slf4j
+public class LibraryEventsRollingRestartIntegrationTest {
+
+    static final String TOPIC = "library-events-rolling";
+    static final int PARTITIONS = 6;
+    static final int INSTANCES = 3;
+    static final int THREADS = 2;
+    static final long DOWNTIME_MILLIS = 1000;
+    static final boolean ASSERT_PAUSES = Boolean.getBoolean("rolling-restart.assert-pauses");
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    ConcurrentKafkaListenerContainerFactory<Object, Object> kafkaListenerContainerFactory;
+
+    @Test
+    void rollingRestartLosesNothingAndStaticMembersKeepTheirPartitions() throws Exception {
+        //when
+        long staticPause = rollingRestartPause("rolling-static", true);
+        long eagerPause = rollingRestartPause("rolling-eager", false);
+
+        //then
+        log.info("Longest pause of a running instance during a rolling restart : static cooperative {} ms, eager dynamic {} ms",
+                staticPause, eagerPause);
+        if (ASSERT_PAUSES) {
+            assertTrue(staticPause < eagerPause, staticPause + " ms static, " + eagerPause + " ms eager");
+            assertTrue(staticPause < DOWNTIME_MILLIS, staticPause + " ms static");
+        }
+    }
+
+    //the longest time between two records consumed from a partition that is not restarted while every instance is
+    //restarted once
+    private long rollingRestartPause(String groupId, boolean staticCooperative) throws Exception {
+        AtomicLongArray lastConsumed = new AtomicLongArray(PARTITIONS);
+        AtomicLong longestPause = new AtomicLong();
+        AtomicBoolean measuring = new AtomicBoolean();
+        AtomicReference<Set<Integer>> restarting = new AtomicReference<>(Set.of());
+        AtomicInteger consumed = new AtomicInteger();
+        BatchMessageListener<Integer, Object> listener = consumerRecords -> {
+            long now = System.nanoTime();
+            for (ConsumerRecord<Integer, Object> consumerRecord : consumerRecords) {
+                long previous = lastConsumed.getAndSet(consumerRecord.partition(), now);
+                if (measuring.get() && !restarting.get().contains(consumerRecord.partition())) {
+                    longestPause.accumulateAndGet(now - previous, Math::max);
+                }
+            }
+            consumed.addAndGet(consumerRecords.size());
+        };
+        List<ConcurrentMessageListenerContainer<Object, Object>> instances = new ArrayList<>();
+        for (int instance = 0; instance < INSTANCES; instance++) {
+            instances.add(instance(groupId, instance, staticCooperative, listener));
+        }
+
+        AtomicBoolean producing = new AtomicBoolean(true);
+        AtomicInteger produced = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            while (producing.get()) {
+                int bookId = produced.getAndIncrement();
+                kafkaTemplate.send(new ProducerRecord<>(TOPIC, bookId % PARTITIONS, bookId, "{\"libraryEventId\":null,"
+                        + "\"libraryEventType\":\"NEW\",\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka\",\"bookAuthor\":\"Itamar\"}}"));
+                sleep(5);
+            }
+        }, groupId + "-producer");
+        try {
+            instances.forEach(ConcurrentMessageListenerContainer::start);
+            awaitBalanced(instances);
+            producer.start();
+            awaitConsumed(consumed, 100);
+            measuring.set(true);
+
+            for (ConcurrentMessageListenerContainer<Object, Object> instance : instances) {
+                List<Set<TopicPartition>> assigned = assignments(instances);
+                restarting.set(instance.getAssignedPartitions().stream().map(TopicPartition::partition).collect(Collectors.toSet()));
+                instance.stop();
+                Thread.sleep(DOWNTIME_MILLIS);
+                instance.start();
+                awaitBalanced(instances);
+                //a static member is back before its session timed out, nothing moved in the group
+                if (staticCooperative) {
+                    assertEquals(assigned, assignments(instances));
+                }
+                //the group settles before the next instance goes
+                Thread.sleep(3 * DOWNTIME_MILLIS);
+            }
+            measuring.set(false);
+        } finally {
+            producing.set(false);
+            producer.join();
+            kafkaTemplate.flush();
+        }
+        //nothing is lost on the way, records consumed twice are fine
+        awaitConsumed(consumed, produced.get());
+        instances.forEach(ConcurrentMessageListenerContainer::stop);
+        assertTrue(consumed.get() >= produced.get());
+        assertEquals(0, instances.stream().filter(ConcurrentMessageListenerContainer::isRunning).count());
+        return TimeUnit.NANOSECONDS.toMillis(longestPause.get());
+    }
+
+    //the listener configuration of the application, an instance id of its own or an eager dynamic member
+    private ConcurrentMessageListenerContainer<Object, Object> instance(String groupId, int instance, boolean staticCooperative,
+                                                                       BatchMessageListener<Integer, Object> listener) {
+        ConcurrentMessageListenerContainer<Object, Object> container = kafkaListenerContainerFactory.createContainer(TOPIC);
+        container.getContainerProperties().setGroupId(groupId);
+        container.getContainerProperties().setClientId(groupId + "-" + instance);
+        container.setConcurrency(THREADS);
+        container.setAutoStartup(false);
+        Properties consumerProperties = new Properties();
+        consumerProperties.putAll(container.getContainerProperties().getKafkaConsumerProperties());
+        if (staticCooperative) {
+            consumerProperties.setProperty(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG, groupId + "-" + instance);
+        } else {
+            consumerProperties.remove(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+            consumerProperties.setProperty(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RangeAssignor.class.getName());
+        }
+        container.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+        container.setupMessageListener(listener);
+        return container;
+    }
+
+    //the instances that joined first hold every partition for a while
+    private void awaitBalanced(List<ConcurrentMessageListenerContainer<Object, Object>> instances) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (!instances.stream().allMatch(instance -> instance.getAssignedPartitions().size() == PARTITIONS / INSTANCES)) {
+            assertTrue(System.currentTimeMillis() < deadline, "partitions are not spread over the instances");
+            Thread.sleep(10);
+        }
+    }
+
+    private List<Set<TopicPartition>> assignments(List<ConcurrentMessageListenerContainer<Object, Object>> instances) {
+        return instances.stream()
+                .map(instance -> Set.copyOf(instance.getAssignedPartitions()))
+                .collect(Collectors.toList());
+    }
+
+    private void awaitConsumed(AtomicInteger consumed, int records) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (consumed.get() < records && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(consumed.get() >= records, consumed.get() + " of " + records + " consumed");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
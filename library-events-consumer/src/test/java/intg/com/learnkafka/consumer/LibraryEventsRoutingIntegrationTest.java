@@ -0,0 +1,107 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "library-events.retry.backoffs=200ms",
+        "library-events.routing.drop-sources=load-test"})
+public class LibraryEventsRoutingIntegrationTest {
+
+    static final String POISON = "not a library event";
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void recordsAreDroppedAndDeadLetteredOnTheirHeaders() throws Exception {
+        //given
+        List<Header> dropped = LibraryEventHeaders.of(LibraryEventType.NEW, "load-test", System.currentTimeMillis());
+        List<Header> nextSchema = new ArrayList<>(LibraryEventHeaders.of(LibraryEventType.NEW, "scanner", System.currentTimeMillis()));
+        nextSchema.add(new RecordHeader(LibraryEventHeaders.SCHEMA_VERSION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array()));
+        List<Header> processed = LibraryEventHeaders.of(LibraryEventType.NEW, "scanner", System.currentTimeMillis());
+
+        //when
+        kafkaTemplate.send(new ProducerRecord<>("library-events", null, 3200, POISON, dropped));
+        kafkaTemplate.send(new ProducerRecord<>("library-events", null, 3200, newEvent(3201), nextSchema));
+        kafkaTemplate.send(new ProducerRecord<>("library-events", null, 3200, newEvent(3202), processed));
+        kafkaTemplate.flush();
+
+        //then
+        awaitBook(3202);
+        ConsumerRecord<byte[], byte[]> deadLetter = awaitRecord("library-events-dlt", "dlt-test");
+        assertArrayEquals(newEvent(3201).getBytes(), deadLetter.value());
+        assertTrue(bookRepository.findById(3201).isEmpty());
+        assertTrue(meterRegistry.get(LibraryEventConsumerMetrics.END_TO_END).timer().count() >= 1);
+    }
+
+    private String newEvent(int bookId) {
+        return "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+
+    //getSingleRecord fails if the dropped record reached the dead letter topic as well
+    private ConsumerRecord<byte[], byte[]> awaitRecord(String topic, String group) {
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps(group, "false", embeddedKafkaBroker);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        try (Consumer<byte[], byte[]> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new ByteArrayDeserializer(), new ByteArrayDeserializer()).createConsumer()) {
+            consumer.subscribe(List.of(topic));
+            return KafkaTestUtils.getSingleRecord(consumer, topic, 30_000);
+        }
+    }
+
+    private void awaitBook(int bookId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            if (bookRepository.findById(bookId).isPresent()) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("book " + bookId + " was not persisted");
+    }
+}
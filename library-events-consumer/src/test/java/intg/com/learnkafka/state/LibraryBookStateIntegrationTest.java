@@ -0,0 +1,103 @@
+package com.learnkafka.state;
+
+import com.learnkafka.config.BookStateProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.service.LibraryEventReadModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.key-serializer=org.apache.kafka.common.serialization.IntegerSerializer",
+        "spring.kafka.producer.value-serializer=org.apache.kafka.common.serialization.StringSerializer",
+        "spring.kafka.listener.type=batch",
+        "library-events.book-state.bootstrap=snapshot",
+        "library-events.book-state.snapshot-file=${java.io.tmpdir}/library-books-state-${random.uuid}.snapshot"})
+public class LibraryBookStateIntegrationTest {
+
+    @Autowired
+    KafkaTemplate<Integer, String> kafkaTemplate;
+
+    @Autowired
+    LibraryBookStateBootstrap libraryBookStateBootstrap;
+
+    @Autowired
+    BookStateProperties bookStateProperties;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LibraryEventReadModel libraryEventReadModel;
+
+    @Test
+    void latestBookIsRestoredFromTheStateTopicAndTheSnapshot() throws Exception {
+        //given
+        for (int edition = 1; edition <= 3; edition++) {
+            kafkaTemplate.sendDefault(4000, "{\"libraryEventId\":null,\"libraryEventType\":\"NEW\","
+                    + "\"book\":{\"bookId\":4000,\"bookName\":\"Edition " + edition + "\",\"bookAuthor\":\"Itamar\"}}");
+            kafkaTemplate.flush();
+        }
+
+        //when
+        Book book = awaitRestoredBook(4000, "Edition 3");
+
+        //then
+        assertEquals("Itamar", book.getBookAuthor());
+        assertTrue(Files.exists(bookStateProperties.getSnapshotFile()));
+
+        //when
+        LibraryBookStateSnapshot fromSnapshot = libraryBookStateBootstrap.bootstrap();
+
+        //then
+        assertEquals("Edition 3", fromSnapshot.getBooks().get(4000).getBookName());
+        Files.deleteIfExists(bookStateProperties.getSnapshotFile());
+    }
+
+    @Test
+    void restoreKeepsTheBooksTheDatabaseHas() throws Exception {
+        //given
+        bookRepository.save(BookEntity.builder().bookId(4100).bookName("Edition 2").bookAuthor("Itamar").build());
+        //the state of 4100 is behind the database, 4101 never reached it
+        kafkaTemplate.send(bookStateProperties.getTopic(), 4100, "{\"bookId\":4100,\"bookName\":\"Edition 1\",\"bookAuthor\":\"Itamar\"}");
+        kafkaTemplate.send(bookStateProperties.getTopic(), 4101, "{\"bookId\":4101,\"bookName\":\"Edition 1\",\"bookAuthor\":\"Itamar\"}");
+        kafkaTemplate.flush();
+
+        //when
+        awaitRestoredBook(4101, "Edition 1");
+
+        //then
+        assertEquals("Edition 2", bookRepository.findById(4100).orElseThrow().getBookName());
+        assertEquals("Edition 2", libraryEventReadModel.findBook(4100).orElseThrow().getBookName());
+        assertEquals("Edition 1", bookRepository.findById(4101).orElseThrow().getBookName());
+        Files.deleteIfExists(bookStateProperties.getSnapshotFile());
+    }
+
+    //library-books-state is written after each commit, the three editions may still be on their way
+    private Book awaitRestoredBook(int bookId, String bookName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (System.currentTimeMillis() < deadline) {
+            Book book = libraryBookStateBootstrap.bootstrap().getBooks().get(bookId);
+            if (book != null && bookName.equals(book.getBookName())) {
+                return book;
+            }
+            Thread.sleep(200);
+        }
+        throw new AssertionError("book " + bookId + " was not restored as " + bookName);
+    }
+}
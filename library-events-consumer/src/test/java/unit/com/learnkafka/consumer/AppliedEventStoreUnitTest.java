@@ -0,0 +1,83 @@
+package com.learnkafka.consumer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AppliedEventStoreUnitTest {
+
+    @Test
+    void addedFingerprintsAreFound() {
+        //given
+        AppliedEventStore appliedEventStore = new AppliedEventStore(100);
+
+        //when
+        appliedEventStore.add(42L);
+        appliedEventStore.add(42L);
+        appliedEventStore.add(-7L);
+
+        //then
+        assertTrue(appliedEventStore.contains(42L));
+        assertTrue(appliedEventStore.contains(-7L));
+        assertFalse(appliedEventStore.contains(43L));
+        assertEquals(2, appliedEventStore.size());
+    }
+
+    @Test
+    void oldestFingerprintsAreForgottenFirst() {
+        //given
+        int capacity = 1000;
+        AppliedEventStore appliedEventStore = new AppliedEventStore(capacity);
+        Random random = new Random(1);
+        long[] fingerprints = new long[capacity * 5];
+        for (int index = 0; index < fingerprints.length; index++) {
+            fingerprints[index] = random.nextLong() | 1;
+        }
+
+        //when
+        for (long fingerprint : fingerprints) {
+            appliedEventStore.add(fingerprint);
+        }
+
+        //then
+        assertEquals(capacity, appliedEventStore.size());
+        for (int index = 0; index < fingerprints.length; index++) {
+            assertEquals(index >= fingerprints.length - capacity, appliedEventStore.contains(fingerprints[index]),
+                    "fingerprint " + index);
+        }
+    }
+
+    @Test
+    void falsePositivesAreCounted() {
+        //given
+        int capacity = 10_000;
+        AppliedEventStore appliedEventStore = new AppliedEventStore(capacity);
+        Random random = new Random(2);
+        for (int index = 0; index < capacity; index++) {
+            appliedEventStore.add(random.nextLong() | 1);
+        }
+
+        //when
+        int lookups = 100_000;
+        for (int index = 0; index < lookups; index++) {
+            assertFalse(appliedEventStore.contains(random.nextLong() & ~1L));
+        }
+
+        //then
+        assertTrue(appliedEventStore.falsePositives() > 0);
+        assertTrue(appliedEventStore.falsePositives() < lookups * 0.02, appliedEventStore.falsePositives() + " false positives");
+    }
+
+    @Test
+    void capacityOutOfRangeIsRejected() {
+        //then
+        assertThrows(IllegalArgumentException.class, () -> new AppliedEventStore(0));
+        assertThrows(IllegalArgumentException.class, () -> new AppliedEventStore(AppliedEventStore.MAX_CAPACITY + 1));
+        assertThrows(IllegalArgumentException.class, () -> new AppliedEventStore(Integer.MAX_VALUE));
+    }
+}
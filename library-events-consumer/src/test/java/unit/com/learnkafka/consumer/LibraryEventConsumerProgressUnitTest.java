@@ -0,0 +1,104 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.ConsumerLagProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LibraryEventConsumerProgressUnitTest {
+
+    static final TopicPartition PARTITION_0 = new TopicPartition("library-events", 0);
+    static final TopicPartition PARTITION_2 = new TopicPartition("library-events", 2);
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    LibraryEventConsumerProgress progress = new LibraryEventConsumerProgress(new KafkaProperties(),
+            new ConsumerLagProperties(), meterRegistry);
+
+    @Test
+    void recordsAreTimedFromTheirPoll() {
+        //given
+        progress.polled(poll(PARTITION_0, 10, 12, 1000L));
+        long firstPoll = progress.polledAt("library-events", 0, 10);
+        progress.polled(poll(PARTITION_0, 13, 14, 2000L));
+
+        //when
+        long secondPoll = progress.polledAt("library-events", 0, 14);
+
+        //then
+        assertNotEquals(LibraryEventConsumerProgress.NOT_POLLED, firstPoll);
+        assertEquals(firstPoll, progress.polledAt("library-events", 0, 12));
+        assertNotEquals(firstPoll, secondPoll);
+        assertEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 0, 15));
+        assertEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 1, 10));
+    }
+
+    @Test
+    void oldPollsLeaveTheRing() {
+        //given
+        for (int poll = 0; poll <= LibraryEventConsumerProgress.POLLS; poll++) {
+            progress.polled(poll(PARTITION_2, poll * 10, poll * 10 + 9, 1000L));
+        }
+
+        //then
+        assertEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 2, 5));
+        assertNotEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 2, 15));
+    }
+
+    @Test
+    void commitTimesEveryPollSliceItCompletes() {
+        //given
+        progress.polled(poll(PARTITION_0, 0, 4, System.currentTimeMillis()));
+        progress.polled(poll(PARTITION_0, 5, 9, System.currentTimeMillis()));
+        progress.polled(poll(PARTITION_0, 10, 14, System.currentTimeMillis()));
+
+        //when
+        progress.committed(Map.of(PARTITION_0, new OffsetAndMetadata(12)));
+
+        //then
+        assertEquals(2, meterRegistry.get(LibraryEventConsumerProgress.TIMESTAMP_TO_COMMIT).timer().count());
+
+        //when
+        progress.committed(Map.of(PARTITION_0, new OffsetAndMetadata(15)));
+
+        //then
+        assertEquals(3, meterRegistry.get(LibraryEventConsumerProgress.TIMESTAMP_TO_COMMIT).timer().count());
+    }
+
+    @Test
+    void revokedPartitionsAreNoLongerReported() {
+        //given
+        progress.polled(poll(PARTITION_0, 0, 4, 1000L));
+        progress.polled(poll(PARTITION_2, 0, 4, 1000L));
+
+        //when
+        progress.revoked(List.of(PARTITION_2));
+
+        //then
+        assertEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 2, 3));
+        assertNotEquals(LibraryEventConsumerProgress.NOT_POLLED, progress.polledAt("library-events", 0, 3));
+        assertNull(meterRegistry.find(LibraryEventConsumerProgress.LAG).tag("partition", "2").gauge());
+    }
+
+    private ConsumerRecords<Object, Object> poll(TopicPartition partition, long firstOffset, long lastOffset, long timestamp) {
+        List<ConsumerRecord<Object, Object>> consumerRecords = new ArrayList<>();
+        for (long offset = firstOffset; offset <= lastOffset; offset++) {
+            consumerRecords.add(new ConsumerRecord<>(partition.topic(), partition.partition(), offset, timestamp,
+                    TimestampType.CREATE_TIME, 0L, 0, 0, null, null));
+        }
+        return new ConsumerRecords<>(Map.of(partition, consumerRecords));
+    }
+}
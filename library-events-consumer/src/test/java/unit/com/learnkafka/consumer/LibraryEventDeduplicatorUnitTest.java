@@ -0,0 +1,112 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.DeduplicationProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryEventDeduplicatorUnitTest {
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    LibraryEventDeduplicator libraryEventDeduplicator = new LibraryEventDeduplicator(new DeduplicationProperties(), meterRegistry);
+
+    UUID firstId = LibraryEventHeaders.randomEventId();
+    UUID secondId = LibraryEventHeaders.randomEventId();
+
+    @Test
+    void redeliveredEventsAreSkipped() {
+        //given
+        ConsumerRecord<Integer, LibraryEvent> first = record(0, firstId, "Kafka Using Spring Boot");
+        ConsumerRecord<Integer, LibraryEvent> second = record(1, secondId, "Kafka Streams");
+        libraryEventDeduplicator.applied(first);
+
+        //when
+        List<ConsumerRecord<Integer, LibraryEvent>> unapplied = libraryEventDeduplicator.unapplied(
+                List.of(record(5, firstId, "Kafka Using Spring Boot"), second));
+
+        //then
+        assertEquals(List.of(second), unapplied);
+        assertTrue(libraryEventDeduplicator.isApplied(record(6, firstId, "Kafka Using Spring Boot")));
+        assertEquals(2, meterRegistry.get(LibraryEventDeduplicator.HITS).counter().count());
+    }
+
+    @Test
+    void copiesWithinOneBatchAreKeptOnce() {
+        //given
+        ConsumerRecord<Integer, LibraryEvent> first = record(0, firstId, "Kafka Using Spring Boot");
+        ConsumerRecord<Integer, LibraryEvent> other = record(1, secondId, "Kafka Using Spring Boot");
+
+        //when
+        List<ConsumerRecord<Integer, LibraryEvent>> unapplied = libraryEventDeduplicator.unapplied(
+                List.of(first, other, record(2, firstId, "Kafka Using Spring Boot")));
+
+        //then
+        assertEquals(List.of(first, other), unapplied);
+    }
+
+    @Test
+    void eventsAreIdentifiedByTheirEventId() {
+        //then
+        assertEquals(LibraryEventDeduplicator.fingerprint(record(0, firstId, "Kafka Using Spring Boot")),
+                LibraryEventDeduplicator.fingerprint(record(7, firstId, "Kafka Using Spring Boot")));
+        assertNotEquals(LibraryEventDeduplicator.fingerprint(record(0, firstId, "Kafka Using Spring Boot")),
+                LibraryEventDeduplicator.fingerprint(record(0, secondId, "Kafka Using Spring Boot")));
+    }
+
+    @Test
+    void identicalEventsProducedInTheSameMillisecondAreAllWritten() {
+        //given
+        List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords = List.of(
+                record(0, firstId, "Kafka Using Spring Boot"), record(1, secondId, "Kafka Using Spring Boot"));
+
+        //when
+        List<ConsumerRecord<Integer, LibraryEvent>> unapplied = libraryEventDeduplicator.unapplied(consumerRecords);
+
+        //then
+        assertSame(consumerRecords, unapplied);
+    }
+
+    @Test
+    void eventsWithoutEventIdAreAlwaysWritten() {
+        //given
+        ConsumerRecord<Integer, LibraryEvent> consumerRecord = record(0, null, "Kafka Using Spring Boot");
+        libraryEventDeduplicator.applied(consumerRecord);
+
+        //when
+        List<ConsumerRecord<Integer, LibraryEvent>> consumerRecords = List.of(consumerRecord, consumerRecord);
+        List<ConsumerRecord<Integer, LibraryEvent>> unapplied = libraryEventDeduplicator.unapplied(consumerRecords);
+
+        //then
+        assertSame(consumerRecords, unapplied);
+        assertFalse(libraryEventDeduplicator.isApplied(consumerRecord));
+    }
+
+    //every record is produced at the same millisecond
+    private ConsumerRecord<Integer, LibraryEvent> record(long offset, UUID eventId, String bookName) {
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventType(LibraryEventType.NEW)
+                .book(Book.builder().bookId(456).bookName(bookName).bookAuthor("Itamar").build())
+                .build();
+        RecordHeaders headers = new RecordHeaders(eventId == null ? List.of()
+                : LibraryEventHeaders.of(LibraryEventType.NEW, "library-events-producer", 1000L, eventId));
+        return new ConsumerRecord<>("library-events", 0, offset, 0L, TimestampType.CREATE_TIME, 0L, 0, 0, 456,
+                libraryEvent, headers, Optional.empty());
+    }
+}
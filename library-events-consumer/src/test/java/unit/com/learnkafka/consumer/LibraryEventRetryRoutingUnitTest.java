@@ -0,0 +1,78 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.RetryProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.serializer.DeserializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryEventRetryRoutingUnitTest {
+
+    LibraryEventRetryRouting libraryEventRetryRouting = new LibraryEventRetryRouting(retryProperties());
+
+    @Test
+    void failedRecordsMoveThroughTheTiersToTheDeadLetterTopic() {
+        //given
+        Exception exception = new ListenerExecutionFailedException("failed",
+                new RecoverableDataAccessException("database unavailable"));
+        ConsumerRecord<Integer, String> consumerRecord = new ConsumerRecord<>("library-events", 0, 10, 1, "{}");
+
+        //when
+        TopicPartition first = libraryEventRetryRouting.destination(consumerRecord, exception);
+        ConsumerRecord<Integer, String> retried = retried(consumerRecord, first, exception);
+        TopicPartition second = libraryEventRetryRouting.destination(retried, exception);
+        ConsumerRecord<Integer, String> retriedAgain = retried(retried, second, exception);
+        TopicPartition third = libraryEventRetryRouting.destination(retriedAgain, exception);
+
+        //then
+        assertEquals(new TopicPartition("library-events-retry-0", -1), first);
+        assertEquals(new TopicPartition("library-events-retry-1", -1), second);
+        assertEquals(new TopicPartition("library-events-dlt", -1), third);
+        assertEquals(2, libraryEventRetryRouting.attempt(retriedAgain));
+        assertTrue(libraryEventRetryRouting.dueTime(retried) > System.currentTimeMillis() + 500);
+        assertArrayEquals("RecoverableDataAccessException: database unavailable".getBytes(StandardCharsets.UTF_8),
+                retriedAgain.headers().lastHeader(LibraryEventRetryRouting.FAILURE_REASON_HEADER).value());
+    }
+
+    @Test
+    void unreadableRecordsGoStraightToTheDeadLetterTopic() {
+        //given
+        Exception exception = new ListenerExecutionFailedException("failed",
+                new DeserializationException("Can't deserialize", new byte[]{'x'}, false, null));
+        ConsumerRecord<Integer, String> consumerRecord = new ConsumerRecord<>("library-events", 0, 10, 1, null);
+
+        //when
+        TopicPartition destination = libraryEventRetryRouting.destination(consumerRecord, exception);
+        Headers headers = libraryEventRetryRouting.headers(consumerRecord, exception);
+
+        //then
+        assertEquals(new TopicPartition("library-events-dlt", -1), destination);
+        assertNull(headers.lastHeader(LibraryEventRetryRouting.DUE_HEADER));
+    }
+
+    private ConsumerRecord<Integer, String> retried(ConsumerRecord<Integer, String> consumerRecord,
+                                                    TopicPartition destination, Exception exception) {
+        ConsumerRecord<Integer, String> retried = new ConsumerRecord<>(destination.topic(), 0, 0, consumerRecord.key(),
+                consumerRecord.value());
+        libraryEventRetryRouting.headers(consumerRecord, exception).forEach(header -> retried.headers().add(header));
+        return retried;
+    }
+
+    private static RetryProperties retryProperties() {
+        RetryProperties retryProperties = new RetryProperties();
+        retryProperties.setBackoffs(List.of(Duration.ofSeconds(1), Duration.ofSeconds(10)));
+        return retryProperties;
+    }
+}
@@ -0,0 +1,85 @@
+package com.learnkafka.consumer;
+
+import com.learnkafka.config.ConsumerLagProperties;
+import com.learnkafka.config.RoutingProperties;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryEventRouterUnitTest {
+
+    static final byte[] UNREADABLE = "not a library event".getBytes(StandardCharsets.UTF_8);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RoutingProperties properties = new RoutingProperties();
+    LibraryEventRouter libraryEventRouter = new LibraryEventRouter(properties, new LibraryEventConsumerMetrics(meterRegistry,
+            new LibraryEventConsumerProgress(new KafkaProperties(), new ConsumerLagProperties(), meterRegistry)));
+
+    @Test
+    void routesOnTheHeaders() {
+        //given
+        properties.setDropSources(Set.of("load-test"));
+        properties.setDropTypes(Set.of(LibraryEventType.UPDATE));
+        properties.setPrioritySources(Set.of("librarian"));
+
+        //when, then
+        assertEquals(LibraryEventRouter.Route.PROCESS, libraryEventRouter.route(headers(LibraryEventType.NEW, "scanner")));
+        assertEquals(LibraryEventRouter.Route.PRIORITY, libraryEventRouter.route(headers(LibraryEventType.NEW, "librarian")));
+        assertEquals(LibraryEventRouter.Route.DROP, libraryEventRouter.route(headers(LibraryEventType.NEW, "load-test")));
+        assertEquals(LibraryEventRouter.Route.DROP, libraryEventRouter.route(headers(LibraryEventType.UPDATE, "librarian")));
+        assertEquals(LibraryEventRouter.Route.PROCESS, libraryEventRouter.route(new RecordHeaders()));
+    }
+
+    @Test
+    void unsupportedSchemaVersionGoesToTheDeadLetterTopic() {
+        //given
+        Headers headers = headers(LibraryEventType.NEW, "scanner");
+        headers.add(new RecordHeader(LibraryEventHeaders.SCHEMA_VERSION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array()));
+
+        //when
+        LibraryEventRoutingDeserializer deserializer = new LibraryEventRoutingDeserializer(libraryEventRouter);
+
+        //then
+        assertEquals(LibraryEventRouter.Route.DEAD_LETTER, libraryEventRouter.route(headers));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize("library-events", headers, UNREADABLE));
+    }
+
+    @Test
+    void droppedRecordsAreNeitherParsedNorProcessed() {
+        //given
+        properties.setDropSources(Set.of("load-test"));
+        Headers headers = headers(LibraryEventType.NEW, "load-test");
+        LibraryEventRoutingDeserializer deserializer = new LibraryEventRoutingDeserializer(libraryEventRouter);
+
+        //when
+        LibraryEvent libraryEvent = deserializer.deserialize("library-events", headers, UNREADABLE);
+        ConsumerRecord<Object, Object> consumerRecord = new ConsumerRecord<>("library-events", 0, 0, 1, null);
+        headers.forEach(consumerRecord.headers()::add);
+
+        //then
+        assertNull(libraryEvent);
+        assertTrue(libraryEventRouter.filter(consumerRecord));
+        assertEquals(1, meterRegistry.get(LibraryEventConsumerMetrics.DROPPED).tag("reason", "source").counter().count());
+    }
+
+    private Headers headers(LibraryEventType libraryEventType, String eventSource) {
+        return new RecordHeaders(LibraryEventHeaders.of(libraryEventType, eventSource, System.currentTimeMillis()));
+    }
+}
@@ -0,0 +1,72 @@
+package com.learnkafka.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffsetTrackerUnitTest {
+
+    static final TopicPartition PARTITION_0 = new TopicPartition("library-events", 0);
+    static final TopicPartition PARTITION_1 = new TopicPartition("library-events", 1);
+
+    OffsetTracker offsetTracker = new OffsetTracker();
+
+    @Test
+    void commitsUpToTheLowestUnfinishedOffset() {
+        //given
+        List<ConsumerRecord<Integer, String>> consumerRecords = List.of(record(0, 10), record(0, 11), record(0, 12));
+        consumerRecords.forEach(offsetTracker::dispatched);
+
+        //when
+        offsetTracker.completed(List.of(record(0, 10), record(0, 12)));
+
+        //then
+        assertEquals(Map.of(PARTITION_0, new OffsetAndMetadata(11)), offsetTracker.committable(Set.of(PARTITION_0)));
+        assertTrue(offsetTracker.committable(Set.of(PARTITION_0)).isEmpty());
+        assertEquals(1, offsetTracker.inFlight());
+
+        //when
+        offsetTracker.completed(List.of(record(0, 11)));
+
+        //then
+        assertEquals(Map.of(PARTITION_0, new OffsetAndMetadata(13)), offsetTracker.committable(Set.of(PARTITION_0)));
+        assertEquals(0, offsetTracker.inFlight());
+    }
+
+    @Test
+    void partitionsAreTrackedIndependently() throws InterruptedException {
+        //given
+        offsetTracker.dispatched(record(0, 5));
+        offsetTracker.dispatched(record(1, 7));
+
+        //when
+        offsetTracker.completed(List.of(record(1, 7)));
+
+        //then
+        assertEquals(Map.of(PARTITION_1, new OffsetAndMetadata(8)),
+                offsetTracker.committable(Set.of(PARTITION_0, PARTITION_1)));
+        assertTrue(offsetTracker.awaitCompletion(Set.of(PARTITION_1), Duration.ZERO));
+        assertFalse(offsetTracker.awaitCompletion(Set.of(PARTITION_0), Duration.ofMillis(10)));
+
+        //when
+        offsetTracker.remove(Set.of(PARTITION_0));
+
+        //then
+        assertEquals(0, offsetTracker.inFlight());
+        assertTrue(offsetTracker.awaitInFlightBelow(1, Duration.ZERO));
+    }
+
+    private static ConsumerRecord<Integer, String> record(int partition, long offset) {
+        return new ConsumerRecord<>("library-events", partition, offset, null, null);
+    }
+}
@@ -0,0 +1,87 @@
+package com.learnkafka.service;
+
+import com.learnkafka.config.ReadModelProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.entity.BookEntity;
+import com.learnkafka.entity.LibraryEventEntity;
+import com.learnkafka.repository.BookRepository;
+import com.learnkafka.repository.LibraryEventsRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LibraryEventReadModelUnitTest {
+
+    @Mock
+    LibraryEventsRepository libraryEventsRepository;
+
+    @Mock
+    BookRepository bookRepository;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    LibraryEventReadModel libraryEventReadModel;
+
+    @BeforeEach
+    void setUp() {
+        libraryEventReadModel = new LibraryEventReadModel(libraryEventsRepository, bookRepository,
+                new ReadModelProperties(), meterRegistry);
+    }
+
+    @Test
+    void missesFallThroughToTheDatabaseOnce() {
+        //given
+        BookEntity book = BookEntity.builder().bookId(456).bookName("Kafka Using Spring Boot").bookAuthor("Itamar").build();
+        when(libraryEventsRepository.findWithBookByLibraryEventId(1)).thenReturn(Optional.of(
+                LibraryEventEntity.builder().libraryEventId(1).libraryEventType(LibraryEventType.NEW).book(book).build()));
+
+        //when
+        libraryEventReadModel.findLibraryEvent(1);
+        Optional<LibraryEvent> libraryEvent = libraryEventReadModel.findLibraryEvent(1);
+
+        //then
+        assertEquals("Kafka Using Spring Boot", libraryEvent.get().getBook().getBookName());
+        verify(libraryEventsRepository, times(1)).findWithBookByLibraryEventId(1);
+        verifyNoInteractions(bookRepository);
+        assertEquals(1.0, meterRegistry.get("cache.gets")
+                .tags("cache", LibraryEventReadModel.LIBRARY_EVENTS_CACHE, "result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void writtenEventsReplaceCachedStateAndStaleAuthors() {
+        //given
+        when(bookRepository.findByBookAuthor("Itamar")).thenReturn(List.of(
+                BookEntity.builder().bookId(456).bookName("Kafka Using Spring Boot").bookAuthor("Itamar").build()));
+        assertEquals(1, libraryEventReadModel.findBooksByAuthor("Itamar").size());
+
+        //when
+        when(bookRepository.findByBookAuthor("Itamar")).thenReturn(List.of());
+        libraryEventReadModel.written(new LibraryEventsWrittenEvent(List.of(LibraryEvent.builder()
+                .libraryEventId(1)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder().bookId(456).bookName("Kafka Using Spring Boot 2.x").bookAuthor("Dilip").build())
+                .build()), Set.of("Itamar", "Dilip")));
+
+        //then
+        assertEquals("Kafka Using Spring Boot 2.x", libraryEventReadModel.findLibraryEvent(1).get().getBook().getBookName());
+        assertEquals("Dilip", libraryEventReadModel.findBook(456).get().getBookAuthor());
+        assertEquals(0, libraryEventReadModel.findBooksByAuthor("Itamar").size());
+        verifyNoInteractions(libraryEventsRepository);
+    }
+}
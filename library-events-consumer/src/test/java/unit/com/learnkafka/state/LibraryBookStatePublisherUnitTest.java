@@ -0,0 +1,40 @@
+package com.learnkafka.state;
+
+import com.learnkafka.config.BookStateProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.KafkaException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LibraryBookStatePublisherUnitTest {
+
+    @Test
+    void unacknowledgedBooksFailTheBatch() {
+        //given
+        KafkaProperties kafkaProperties = new KafkaProperties();
+        kafkaProperties.setBootstrapServers(List.of("localhost:1"));
+        kafkaProperties.getProducer().getProperties().put("max.block.ms", "500");
+        BookStateProperties properties = new BookStateProperties();
+        properties.setSendTimeout(Duration.ofSeconds(5));
+        LibraryBookStatePublisher publisher = new LibraryBookStatePublisher(kafkaProperties, properties);
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.NEW)
+                .book(Book.builder().bookId(456).bookName("Kafka Using Spring Boot").bookAuthor("Itamar").build())
+                .build();
+
+        //when //then
+        try {
+            assertThrows(KafkaException.class, () -> publisher.publish(List.of(libraryEvent)));
+        } finally {
+            publisher.shutdown();
+        }
+    }
+}
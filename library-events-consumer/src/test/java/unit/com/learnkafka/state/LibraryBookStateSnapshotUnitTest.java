@@ -0,0 +1,31 @@
+package com.learnkafka.state;
+
+import com.learnkafka.domain.Book;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LibraryBookStateSnapshotUnitTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writtenSnapshotIsReadBack() throws Exception {
+        //given
+        Path file = directory.resolve("library-books-state.snapshot");
+        LibraryBookStateSnapshot snapshot = new LibraryBookStateSnapshot(Map.of(0, 12L, 1, 7L), Map.of(
+                456, Book.builder().bookId(456).bookName("Kafka Using Spring Boot").bookAuthor("Itamar").build(),
+                457, Book.builder().bookId(457).bookName(null).bookAuthor("Dilip").build()));
+
+        //when
+        snapshot.write(file);
+
+        //then
+        assertEquals(snapshot, LibraryBookStateSnapshot.read(file));
+    }
+}
@@ -0,0 +1,13 @@
+package com.learnkafka;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LibraryEventsReactiveProducerApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(LibraryEventsReactiveProducerApplication.class, args);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events")
+@Data
+public class ReactiveIngestProperties {
+
+    //event-source header of every record
+    private String eventSource = "scanner";
+
+    //?ack=true requests answer 503 when the broker has not acknowledged by then
+    private Duration ackTimeout = Duration.ofSeconds(5);
+
+    //Records handed to the Kafka producer and not acknowledged yet, per send pipeline. The sender only requests
+    //more records from upstream below this, which is what slows down the reading of an NDJSON upload
+    private int maxInFlight = 1024;
+
+    //Single events waiting for the sender, beyond that requests get 503 + Retry-After
+    private int queueSize = 10_000;
+
+    //Retry-After sent with a 503 when a request is shed
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,26 @@
+package com.learnkafka.config;
+
+import com.learnkafka.domain.LibraryEvent;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+@Configuration
+@EnableConfigurationProperties(ReactiveIngestProperties.class)
+public class ReactiveProducerConfig {
+
+    //one KafkaProducer underneath, shared by every send pipeline. stopOnError(false) keeps a pipeline running
+    //past a failed record, the failure comes back in its SenderResult
+    @Bean(destroyMethod = "close")
+    public KafkaSender<Integer, LibraryEvent> kafkaSender(KafkaProperties kafkaProperties,
+                                                          ReactiveIngestProperties reactiveIngestProperties) {
+        SenderOptions<Integer, LibraryEvent> senderOptions = SenderOptions.<Integer, LibraryEvent>create(
+                kafkaProperties.buildProducerProperties())
+                .maxInFlight(reactiveIngestProperties.getMaxInFlight())
+                .stopOnError(false);
+        return KafkaSender.create(senderOptions);
+    }
+}
@@ -0,0 +1,77 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.config.ReactiveIngestProperties;
+import com.learnkafka.producer.LibraryEventRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+//Same statuses and messages as LibraryEventControllerAdvice of library-events-producer
+@ControllerAdvice
+@Slf4j
+public class ReactiveLibraryEventControllerAdvice {
+
+    private final ReactiveIngestProperties properties;
+
+    public ReactiveLibraryEventControllerAdvice(ReactiveIngestProperties properties) {
+        this.properties = properties;
+    }
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    public ResponseEntity<?> handleRequestBody(WebExchangeBindException ex) {
+
+        List<FieldError> errorList = ex.getBindingResult().getFieldErrors();
+
+        String errorMessage = errorList.stream()
+                .map(fieldError -> fieldError.getField() + " - " + fieldError.getDefaultMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+
+        log.info("errorMessage : {} ", errorMessage);
+        return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
+    }
+
+    //no acknowledgement within library-events.ack-timeout
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<?> handleAcknowledgementTimeout(TimeoutException ex) {
+
+        log.error("No acknowledgement from Kafka : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfter().getSeconds()))
+                .body("No acknowledgement from Kafka, please retry");
+    }
+
+    //retriable client errors (broker unavailable, delivery timeout, ...) are worth retrying, anything else is not
+    @ExceptionHandler(KafkaException.class)
+    public ResponseEntity<?> handleProducerFailure(KafkaException ex) {
+
+        log.error("Error Sending the message and the exception is {} ", ex.getMessage());
+        if (ex instanceof RetriableException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfter().getSeconds()))
+                    .body("Kafka is unavailable, please retry");
+        }
+        return new ResponseEntity<>("Error Sending the message : " + ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    //load shed by ReactiveLibraryEventProducer before anything reached the sender
+    @ExceptionHandler(LibraryEventRejectedException.class)
+    public ResponseEntity<?> handleRejected(LibraryEventRejectedException ex) {
+
+        log.warn("Library event rejected : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfter().getSeconds()))
+                .body(ex.getMessage());
+    }
+}
@@ -0,0 +1,102 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.domain.BulkLibraryEventResult;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventAcknowledgement;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.producer.ReactiveLibraryEventProducer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+//The /v1/libraryevent contract of library-events-producer on event loop threads. Plain requests answer once the
+//event is queued for the sender, ?ack=true ones once the broker acknowledged it, a full queue answers 503
+@RestController
+public class ReactiveLibraryEventsController {
+
+    private final ReactiveLibraryEventProducer libraryEventProducer;
+
+    public ReactiveLibraryEventsController(ReactiveLibraryEventProducer libraryEventProducer) {
+        this.libraryEventProducer = libraryEventProducer;
+    }
+
+    @PostMapping("/v1/libraryevent")
+    public Mono<ResponseEntity<LibraryEvent>> postLibraryEvent(@RequestBody @Valid Mono<LibraryEvent> libraryEvent) {
+        return libraryEvent.flatMap(event -> {
+            event.setLibraryEventType(LibraryEventType.NEW);
+            return queued(event).thenReturn(ResponseEntity.status(HttpStatus.CREATED).body(event));
+        });
+    }
+
+    @PutMapping("/v1/libraryevent")
+    public Mono<ResponseEntity<?>> putLibraryEvent(@RequestBody @Valid Mono<LibraryEvent> libraryEvent) {
+        return libraryEvent.flatMap(event -> {
+            if (event.getLibraryEventId() == null) {
+                return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+            }
+            event.setLibraryEventType(LibraryEventType.UPDATE);
+            return queued(event).thenReturn(ResponseEntity.status(HttpStatus.OK).body(event));
+        });
+    }
+
+    @PostMapping(value = "/v1/libraryevent", params = "ack=true")
+    public Mono<ResponseEntity<LibraryEventAcknowledgement>> postLibraryEventAcknowledged(
+            @RequestBody @Valid Mono<LibraryEvent> libraryEvent) {
+        return libraryEvent.flatMap(event -> {
+            event.setLibraryEventType(LibraryEventType.NEW);
+            return libraryEventProducer.sendAcknowledged(event)
+                    .map(recordMetadata -> ResponseEntity.status(HttpStatus.CREATED).body(acknowledgement(event, recordMetadata)));
+        });
+    }
+
+    @PutMapping(value = "/v1/libraryevent", params = "ack=true")
+    public Mono<ResponseEntity<?>> putLibraryEventAcknowledged(@RequestBody @Valid Mono<LibraryEvent> libraryEvent) {
+        return libraryEvent.flatMap(event -> {
+            if (event.getLibraryEventId() == null) {
+                return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+            }
+            event.setLibraryEventType(LibraryEventType.UPDATE);
+            return libraryEventProducer.sendAcknowledged(event)
+                    .map(recordMetadata -> ResponseEntity.status(HttpStatus.OK).body(acknowledgement(event, recordMetadata)));
+        });
+    }
+
+    //Bulk ingest: a JSON array or an NDJSON stream, decoded item by item as fast as the sender takes them
+    @PostMapping(value = "/v1/libraryevent/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkLibraryEventResult>> postLibraryEventsBulk(@RequestBody Flux<LibraryEvent> libraryEvents) {
+        return libraryEventProducer.sendBulk(libraryEvents, LibraryEventType.NEW)
+                .map(result -> ResponseEntity.status(result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                        .body(result));
+    }
+
+    @PutMapping(value = "/v1/libraryevent/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<BulkLibraryEventResult>> putLibraryEventsBulk(@RequestBody Flux<LibraryEvent> libraryEvents) {
+        return libraryEventProducer.sendBulk(libraryEvents, LibraryEventType.UPDATE)
+                .map(result -> ResponseEntity.status(result.getFailed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS)
+                        .body(result));
+    }
+
+    //the acknowledgement is not awaited, a failed send is logged by the producer
+    private Mono<Void> queued(LibraryEvent libraryEvent) {
+        return Mono.fromRunnable(() -> libraryEventProducer.send(libraryEvent));
+    }
+
+    private LibraryEventAcknowledgement acknowledgement(LibraryEvent libraryEvent, RecordMetadata recordMetadata) {
+        return LibraryEventAcknowledgement.builder()
+                .libraryEvent(libraryEvent)
+                .partition(recordMetadata.partition())
+                .offset(recordMetadata.offset())
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.ReactiveIngestProperties;
+import com.learnkafka.domain.BulkLibraryEventItemResult;
+import com.learnkafka.domain.BulkLibraryEventItemStatus;
+import com.learnkafka.domain.BulkLibraryEventResult;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.util.concurrent.Queues;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+//Single events go through one long-lived send pipeline fed from a bounded queue: the sender requests records
+//from the queue as acknowledgements free up in-flight slots, a full queue rejects the request. A bulk upload is
+//a send pipeline of its own, the upload is read from the connection only as fast as the sender requests it.
+@Component
+@Slf4j
+public class ReactiveLibraryEventProducer {
+
+    static final String QUEUED = "library.events.producer.queued";
+    private static final String TOPIC = "library-events";
+
+    private final KafkaSender<Integer, LibraryEvent> kafkaSender;
+    private final ReactiveIngestProperties properties;
+    private final Validator validator;
+    private final Queue<SenderRecord<Integer, LibraryEvent, Sinks.One<RecordMetadata>>> pending;
+    private final Sinks.Many<SenderRecord<Integer, LibraryEvent, Sinks.One<RecordMetadata>>> queue;
+    private final Disposable pipeline;
+
+    public ReactiveLibraryEventProducer(KafkaSender<Integer, LibraryEvent> kafkaSender, ReactiveIngestProperties properties,
+                                        Validator validator, MeterRegistry meterRegistry) {
+        this.kafkaSender = kafkaSender;
+        this.properties = properties;
+        this.validator = validator;
+        this.pending = Queues.<SenderRecord<Integer, LibraryEvent, Sinks.One<RecordMetadata>>>get(properties.getQueueSize()).get();
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(pending);
+        this.pipeline = kafkaSender.send(queue.asFlux())
+                .subscribe(this::completed, ex -> log.error("Send pipeline terminated : {}", ex.getMessage(), ex));
+        Gauge.builder(QUEUED, pending, Queue::size)
+                .description("Single events waiting for the sender")
+                .register(meterRegistry);
+    }
+
+    //queued right away or rejected with a LibraryEventRejectedException, the returned Mono completes with the
+    //broker acknowledgement and the caller decides whether to wait for it
+    public Mono<RecordMetadata> send(LibraryEvent libraryEvent) {
+        Sinks.One<RecordMetadata> acknowledgement = Sinks.one();
+        Sinks.EmitResult result;
+        //the queue takes one producer at a time
+        synchronized (queue) {
+            result = queue.tryEmitNext(SenderRecord.create(producerRecord(libraryEvent), acknowledgement));
+        }
+        if (result.isFailure()) {
+            throw new LibraryEventRejectedException(result == Sinks.EmitResult.FAIL_OVERFLOW
+                    ? "Too many library events waiting for Kafka, please retry" : "Producer is not accepting library events");
+        }
+        return acknowledgement.asMono();
+    }
+
+    public Mono<RecordMetadata> sendAcknowledged(LibraryEvent libraryEvent) {
+        return Mono.defer(() -> send(libraryEvent)).timeout(properties.getAckTimeout());
+    }
+
+    //items are validated and sent as they are decoded, the result lists them in upload order
+    public Mono<BulkLibraryEventResult> sendBulk(Flux<LibraryEvent> libraryEvents, LibraryEventType libraryEventType) {
+        AtomicReference<Throwable> brokenBody = new AtomicReference<>();
+        Flux<BulkItem> items = libraryEvents
+                .onErrorResume(ex -> {
+                    //the body itself is broken, nothing after this point can be read
+                    brokenBody.set(ex);
+                    return Flux.empty();
+                })
+                .index((index, libraryEvent) -> new BulkItem(Math.toIntExact(index), libraryEvent,
+                        validate(libraryEvent, libraryEventType)));
+
+        return items.publish(shared -> Flux.merge(
+                        shared.filter(item -> item.getError() != null)
+                                .map(item -> failedItem(item.getIndex(), item.getLibraryEvent().getLibraryEventId(),
+                                        item.getError())),
+                        kafkaSender.send(shared.filter(item -> item.getError() == null)
+                                        .map(item -> {
+                                            item.getLibraryEvent().setLibraryEventType(libraryEventType);
+                                            return SenderRecord.create(producerRecord(item.getLibraryEvent()), item);
+                                        }))
+                                .map(this::itemResult)))
+                .collectSortedList(Comparator.comparingInt(BulkLibraryEventItemResult::getIndex))
+                .map(results -> bulkResult(results, brokenBody.get()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queue.tryEmitComplete();
+        pipeline.dispose();
+    }
+
+    //consumers route and time records on these headers without parsing the value
+    private ProducerRecord<Integer, LibraryEvent> producerRecord(LibraryEvent libraryEvent) {
+        return new ProducerRecord<>(TOPIC, null, libraryEvent.getLibraryEventId(), libraryEvent,
+                LibraryEventHeaders.of(libraryEvent.getLibraryEventType(), properties.getEventSource(),
+                        System.currentTimeMillis()));
+    }
+
+    private void completed(SenderResult<Sinks.One<RecordMetadata>> result) {
+        if (result.exception() != null) {
+            log.error("Error Sending the message and the exception is {}", result.exception().getMessage());
+            result.correlationMetadata().tryEmitError(result.exception());
+        } else {
+            result.correlationMetadata().tryEmitValue(result.recordMetadata());
+        }
+    }
+
+    private BulkLibraryEventItemResult itemResult(SenderResult<BulkItem> result) {
+        BulkItem item = result.correlationMetadata();
+        if (result.exception() != null) {
+            return failedItem(item.getIndex(), item.getLibraryEvent().getLibraryEventId(), result.exception().getMessage());
+        }
+        return BulkLibraryEventItemResult.builder()
+                .index(item.getIndex())
+                .libraryEventId(item.getLibraryEvent().getLibraryEventId())
+                .status(BulkLibraryEventItemStatus.ACCEPTED)
+                .partition(result.recordMetadata().partition())
+                .offset(result.recordMetadata().offset())
+                .build();
+    }
+
+    private BulkLibraryEventResult bulkResult(List<BulkLibraryEventItemResult> items, Throwable brokenBody) {
+        if (brokenBody != null) {
+            log.error("Bulk body could not be read past item {} : {}", items.size(), brokenBody.getMessage());
+            items.add(failedItem(items.size(), null, brokenBody.getMessage()));
+        }
+        int accepted = (int) items.stream().filter(item -> item.getStatus() == BulkLibraryEventItemStatus.ACCEPTED).count();
+        log.info("Bulk request acknowledged, accepted : {} , failed : {}", accepted, items.size() - accepted);
+        return BulkLibraryEventResult.builder()
+                .accepted(accepted)
+                .failed(items.size() - accepted)
+                .items(items)
+                .build();
+    }
+
+    private String validate(LibraryEvent libraryEvent, LibraryEventType libraryEventType) {
+        if (libraryEventType == LibraryEventType.UPDATE && libraryEvent.getLibraryEventId() == null) {
+            return "Please pass the LibraryEventId";
+        }
+        Set<ConstraintViolation<LibraryEvent>> violations = validator.validate(libraryEvent);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " - " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private BulkLibraryEventItemResult failedItem(int index, Integer libraryEventId, String error) {
+        return BulkLibraryEventItemResult.builder()
+                .index(index)
+                .libraryEventId(libraryEventId)
+                .status(BulkLibraryEventItemStatus.FAILED)
+                .error(error)
+                .build();
+    }
+
+    @Value
+    private static class BulkItem {
+        int index;
+        LibraryEvent libraryEvent;
+        //null when the item is valid
+        String error;
+    }
+}
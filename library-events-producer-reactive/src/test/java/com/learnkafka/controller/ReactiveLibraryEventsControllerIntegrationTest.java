@@ -0,0 +1,142 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.domain.BulkLibraryEventItemStatus;
+import com.learnkafka.domain.BulkLibraryEventResult;
+import com.learnkafka.domain.LibraryEventAcknowledgement;
+import com.learnkafka.serde.LibraryEventHeaders;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(topics = {"library-events"}, partitions = 1)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}"})
+public class ReactiveLibraryEventsControllerIntegrationTest {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    private Consumer<Integer, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> configs = new HashMap<>(KafkaTestUtils.consumerProps("reactive", "true", embeddedKafkaBroker));
+        consumer = new DefaultKafkaConsumerFactory<>(configs, new IntegerDeserializer(),
+                new StringDeserializer()).createConsumer();
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(consumer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void postLibraryEvent() {
+        //when
+        webTestClient.post().uri("/v1/libraryevent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newEvent(null, 626))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().jsonPath("$.libraryEventType").isEqualTo("NEW");
+
+        //then
+        ConsumerRecord<Integer, String> consumerRecord = KafkaTestUtils.getSingleRecord(consumer, "library-events");
+        assertEquals("{\"libraryEventId\":null,\"libraryEventType\":\"NEW\",\"book\":{\"bookId\":626,"
+                + "\"bookName\":\"Kafka using Sprint Boot\",\"bookAuthor\":\"Itamar\"}}", consumerRecord.value());
+        assertNotNull(LibraryEventHeaders.producedAt(consumerRecord.headers()));
+    }
+
+    @Test
+    void putLibraryEvent_acknowledged() {
+        //when
+        LibraryEventAcknowledgement acknowledgement = webTestClient.put().uri("/v1/libraryevent?ack=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newEvent(627, 627))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(LibraryEventAcknowledgement.class)
+                .returnResult().getResponseBody();
+
+        //then
+        ConsumerRecord<Integer, String> consumerRecord = KafkaTestUtils.getSingleRecord(consumer, "library-events");
+        assertEquals(627, consumerRecord.key());
+        assertEquals(consumerRecord.offset(), acknowledgement.getOffset());
+    }
+
+    @Test
+    void putLibraryEvent_withoutLibraryEventId() {
+        webTestClient.put().uri("/v1/libraryevent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(newEvent(null, 628))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("Please pass the LibraryEventId");
+    }
+
+    @Test
+    void postLibraryEvent_invalidBook() {
+        webTestClient.post().uri("/v1/libraryevent")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"libraryEventId\":null,\"book\":{\"bookId\":null,\"bookName\":\"\",\"bookAuthor\":\"Itamar\"}}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class).isEqualTo("book.bookId - must not be null, book.bookName - must not be blank");
+    }
+
+    @Test
+    void postLibraryEventsBulk_ndjson() {
+        //given
+        String ndjson = newEvent(null, 700) + "\n"
+                + "{\"libraryEventId\":null,\"book\":{\"bookId\":null,\"bookName\":\"No id\",\"bookAuthor\":\"Itamar\"}}\n"
+                + newEvent(null, 702) + "\n";
+
+        //when
+        BulkLibraryEventResult result = webTestClient.post().uri("/v1/libraryevent/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(ndjson)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.MULTI_STATUS)
+                .expectBody(BulkLibraryEventResult.class)
+                .returnResult().getResponseBody();
+
+        //then
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getFailed());
+        assertEquals(BulkLibraryEventItemStatus.FAILED, result.getItems().get(1).getStatus());
+        assertEquals("book.bookId - must not be null", result.getItems().get(1).getError());
+        assertEquals(BulkLibraryEventItemStatus.ACCEPTED, result.getItems().get(2).getStatus());
+        ConsumerRecords<Integer, String> consumerRecords = KafkaTestUtils.getRecords(consumer);
+        assertEquals(2, consumerRecords.count());
+    }
+
+    private String newEvent(Integer libraryEventId, int bookId) {
+        return "{\"libraryEventId\":" + libraryEventId + ","
+                + "\"book\":{\"bookId\":" + bookId + ",\"bookName\":\"Kafka using Sprint Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+}
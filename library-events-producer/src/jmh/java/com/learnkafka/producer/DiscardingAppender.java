@@ -0,0 +1,15 @@
+package com.learnkafka.producer;
+
+import ch.qos.logback.core.OutputStreamAppender;
+
+import java.io.OutputStream;
+
+//Formats and encodes every event like a file or console appender would, then throws the bytes away
+public class DiscardingAppender<E> extends OutputStreamAppender<E> {
+
+    @Override
+    public void start() {
+        setOutputStream(OutputStream.nullOutputStream());
+        super.start();
+    }
+}
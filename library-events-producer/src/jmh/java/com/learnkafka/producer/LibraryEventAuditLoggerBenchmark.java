@@ -0,0 +1,92 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+//Per-event logging cost of the old eager INFO logging against the audit logger in its different modes.
+//Both loggers write through the formatting/encoding pipeline into a DiscardingAppender (see logback.xml),
+//the old one synchronously as the default console appender did, the audit logger through an AsyncAppender.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+public class LibraryEventAuditLoggerBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(LibraryEventAuditLoggerBenchmark.class);
+
+    private LibraryEvent libraryEvent;
+    private RecordMetadata recordMetadata;
+
+    @State(Scope.Benchmark)
+    public static class Audit {
+
+        @Param({"off", "key-only-sampled", "key-only", "full"})
+        public String auditMode;
+
+        private LibraryEventAuditLogger libraryEventAuditLogger;
+
+        @Setup
+        public void setUp() {
+            LibraryEventAuditProperties properties = new LibraryEventAuditProperties();
+            switch (auditMode) {
+                case "off":
+                    properties.setMode(LibraryEventAuditProperties.Mode.OFF);
+                    break;
+                case "key-only-sampled":
+                    properties.setMode(LibraryEventAuditProperties.Mode.KEY_ONLY);
+                    properties.setSampleRate(0.01);
+                    break;
+                case "key-only":
+                    properties.setMode(LibraryEventAuditProperties.Mode.KEY_ONLY);
+                    properties.setSampleRate(1.0);
+                    break;
+                default:
+                    properties.setMode(LibraryEventAuditProperties.Mode.FULL);
+                    properties.setSampleRate(1.0);
+            }
+            libraryEventAuditLogger = new LibraryEventAuditLogger(properties);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.NEW)
+                .book(Book.builder().bookId(456).bookName("Kafka Using Spring Boot").bookAuthor("Itamar").build())
+                .build();
+        recordMetadata = new RecordMetadata(new TopicPartition("library-events", 1), 42L, 0, 0L, 0L, 4, 120);
+    }
+
+    //what sendLibraryEventWithProducerRecord and handleSuccess used to log for every event
+    @Benchmark
+    public void eagerInfoLogging() {
+        Integer key = libraryEvent.getLibraryEventId();
+        log.info("value " + libraryEvent);
+        log.info("key " + String.valueOf(key));
+        log.info("Message sent successfully for the key :{} and the value is {} , partition is {}",
+                key, libraryEvent, recordMetadata.partition());
+    }
+
+    @Benchmark
+    public void auditLogging(Audit audit) {
+        audit.libraryEventAuditLogger.sent(libraryEvent.getLibraryEventId(), libraryEvent, recordMetadata);
+    }
+}
@@ -0,0 +1,111 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.AdmissionProperties;
+import com.learnkafka.config.BulkIngestProperties;
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.BulkLibraryEventResult;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventJsonSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import javax.validation.Validation;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Bulk throughput of acks=all, idempotent and transactional delivery against an embedded broker,
+//every mode keeps max.in.flight.requests.per.connection at 5
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class LibraryEventDeliveryModeBenchmark {
+
+    private static final String TOPIC = "library-events";
+    private static final int EVENTS = 1000;
+
+    @Param({"acks-all", "idempotent", "transactional"})
+    public String mode;
+
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+    private DefaultKafkaProducerFactory<Integer, LibraryEvent> producerFactory;
+    private LibraryEventProducer libraryEventProducer;
+    private List<LibraryEvent> libraryEvents;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        embeddedKafkaBroker = new EmbeddedKafkaBroker(1, false, 3, TOPIC)
+                .brokerProperty("transaction.state.log.replication.factor", "1")
+                .brokerProperty("transaction.state.log.min.isr", "1");
+        embeddedKafkaBroker.afterPropertiesSet();
+
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafkaBroker.getBrokersAsString());
+        configs.put(ProducerConfig.ACKS_CONFIG, "all");
+        configs.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
+        configs.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        configs.put(ProducerConfig.BATCH_SIZE_CONFIG, 131072);
+        configs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, !"acks-all".equals(mode));
+        producerFactory = new DefaultKafkaProducerFactory<>(configs, new IntegerSerializer(), new LibraryEventJsonSerializer());
+        if ("transactional".equals(mode)) {
+            producerFactory.setTransactionIdPrefix("library-events-bulk-");
+        }
+
+        libraryEventProducer = new LibraryEventProducer();
+        libraryEventProducer.bulkKafkaTemplate = new KafkaTemplate<>(producerFactory);
+        libraryEventProducer.validator = Validation.buildDefaultValidatorFactory().getValidator();
+        libraryEventProducer.bulkIngestProperties = new BulkIngestProperties();
+        libraryEventProducer.libraryEventPartitioner = new LibraryEventIdPartitioner();
+        libraryEventProducer.libraryEventProducerMetrics = new LibraryEventProducerMetrics(new SimpleMeterRegistry());
+        libraryEventProducer.libraryEventAuditLogger = new LibraryEventAuditLogger(new LibraryEventAuditProperties());
+        libraryEventProducer.libraryEventAdmissionController =
+                new LibraryEventAdmissionController(new AdmissionProperties(), new SimpleMeterRegistry());
+
+        libraryEvents = IntStream.range(0, EVENTS)
+                .mapToObj(id -> LibraryEvent.builder()
+                        .libraryEventId(id)
+                        .book(Book.builder()
+                                .bookId(id)
+                                .bookName("Kafka Using Spring Boot")
+                                .bookAuthor("Itamar")
+                                .build())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerFactory.destroy();
+        embeddedKafkaBroker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public BulkLibraryEventResult sendLibraryEventsBulk() {
+        BulkLibraryEventResult result = libraryEventProducer.sendLibraryEventsBulk(libraryEvents.iterator(), LibraryEventType.UPDATE);
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException(result.getFailed() + " events failed in mode " + mode);
+        }
+        return result;
+    }
+}
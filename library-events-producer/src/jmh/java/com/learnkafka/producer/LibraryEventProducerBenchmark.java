@@ -0,0 +1,136 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.AdmissionProperties;
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventJsonSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+//Cost per event inside LibraryEventProducer with the broker replaced by an auto-completing MockProducer,
+//so what is measured is record building, partitioning, serialization and the callback plumbing
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class LibraryEventProducerBenchmark {
+
+    private static final String TOPIC = "library-events";
+    private static final int PARTITIONS = 3;
+
+    private LibraryEventProducer libraryEventProducer;
+    private LibraryEvent libraryEvent;
+
+    @Setup
+    public void setUp() {
+        KafkaTemplate<Integer, LibraryEvent> kafkaTemplate = new KafkaTemplate<>(new MockProducerFactory());
+        kafkaTemplate.setDefaultTopic(TOPIC);
+
+        libraryEventProducer = new LibraryEventProducer();
+        libraryEventProducer.kafkaTemplate = kafkaTemplate;
+        libraryEventProducer.libraryEventPartitioner = new LibraryEventIdPartitioner();
+        libraryEventProducer.libraryEventProducerMetrics = new LibraryEventProducerMetrics(new SimpleMeterRegistry());
+        libraryEventProducer.libraryEventAuditLogger = new LibraryEventAuditLogger(new LibraryEventAuditProperties());
+        libraryEventProducer.libraryEventAdmissionController =
+                new LibraryEventAdmissionController(new AdmissionProperties(), new SimpleMeterRegistry());
+
+        Book book = Book.builder()
+                .bookId(456)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor("Itamar")
+                .build();
+        libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.NEW)
+                .book(book)
+                .build();
+    }
+
+    @Benchmark
+    public ProducerRecord<Integer, LibraryEvent> buildProducerRecord() {
+        return libraryEventProducer.buildProducerRecord(libraryEvent.getLibraryEventId(), libraryEvent, TOPIC, 0);
+    }
+
+    @Benchmark
+    public void sendLibraryEvent() {
+        libraryEventProducer.sendLibraryEvent(libraryEvent);
+    }
+
+    @Benchmark
+    public ListenableFuture<SendResult<Integer, LibraryEvent>> sendLibraryEventWithProducerRecord() {
+        return libraryEventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
+    }
+
+    //DefaultKafkaProducerFactory wraps the producer so KafkaTemplate's close after each send does not close it
+    static class MockProducerFactory extends DefaultKafkaProducerFactory<Integer, LibraryEvent> {
+
+        MockProducerFactory() {
+            super(Map.of());
+        }
+
+        @Override
+        protected Producer<Integer, LibraryEvent> createKafkaProducer() {
+            return new BoundedMockProducer();
+        }
+    }
+
+    //MockProducer keeps every record it was sent, the history is dropped regularly so the heap stays flat
+    static class BoundedMockProducer extends MockProducer<Integer, LibraryEvent> {
+
+        private static final int MAX_HISTORY = 10_000;
+
+        private int sent;
+
+        BoundedMockProducer() {
+            super(cluster(), true, new DefaultPartitioner(), new IntegerSerializer(), new LibraryEventJsonSerializer());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<Integer, LibraryEvent> record, Callback callback) {
+            if (++sent == MAX_HISTORY) {
+                sent = 0;
+                clear();
+            }
+            return super.send(record, callback);
+        }
+
+        private static Cluster cluster() {
+            Node node = new Node(0, "localhost", 9092);
+            Node[] nodes = {node};
+            List<PartitionInfo> partitions = IntStream.range(0, PARTITIONS)
+                    .mapToObj(partition -> new PartitionInfo(TOPIC, partition, node, nodes, nodes))
+                    .collect(Collectors.toList());
+            return new Cluster("library-events-benchmark", List.of(node), partitions,
+                    Collections.emptySet(), Collections.emptySet());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.ProducerTuningProfile;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventJsonSerializer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+//Throughput and bytes on the wire per tuning profile against an embedded broker. Events are sent one by one
+//without a flush, the way single requests arrive, so linger.ms and batch.size decide how full the compressed batches get.
+//wireBytes is reported next to the event rate, wireBytes / events is the cost per event on the wire
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ProducerTuningProfileBenchmark {
+
+    private static final String TOPIC = "library-events";
+    private static final int EVENTS = 1000;
+
+    @Param({"LOW_LATENCY", "HIGH_THROUGHPUT", "BULK_IMPORT"})
+    public ProducerTuningProfile profile;
+
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+    private DefaultKafkaProducerFactory<Integer, LibraryEvent> producerFactory;
+    private KafkaTemplate<Integer, LibraryEvent> kafkaTemplate;
+    private Metric outgoingBytes;
+    private List<LibraryEvent> libraryEvents;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Wire {
+        public long wireBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        embeddedKafkaBroker = new EmbeddedKafkaBroker(1, false, 3, TOPIC);
+        embeddedKafkaBroker.afterPropertiesSet();
+
+        Map<String, Object> configs = new HashMap<>(profile.producerConfigs());
+        configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, embeddedKafkaBroker.getBrokersAsString());
+        configs.put(ProducerConfig.ACKS_CONFIG, "all");
+        configs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        producerFactory = new DefaultKafkaProducerFactory<>(configs, new IntegerSerializer(), new LibraryEventJsonSerializer());
+        kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setDefaultTopic(TOPIC);
+
+        Map<MetricName, ? extends Metric> metrics = kafkaTemplate.metrics();
+        outgoingBytes = metrics.entrySet().stream()
+                .filter(entry -> entry.getKey().group().equals("producer-metrics")
+                        && entry.getKey().name().equals("outgoing-byte-total"))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElseThrow();
+
+        libraryEvents = new ArrayList<>();
+        for (int id = 0; id < EVENTS; id++) {
+            libraryEvents.add(LibraryEvent.builder()
+                    .libraryEventId(id)
+                    .libraryEventType(LibraryEventType.UPDATE)
+                    .book(Book.builder()
+                            .bookId(id)
+                            .bookName("Kafka Using Spring Boot")
+                            .bookAuthor("Itamar")
+                            .build())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        producerFactory.destroy();
+        embeddedKafkaBroker.destroy();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public void sendLibraryEvents(Wire wire) throws ExecutionException, InterruptedException {
+        double bytesBefore = (double) outgoingBytes.metricValue();
+        List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures = new ArrayList<>(EVENTS);
+        for (LibraryEvent libraryEvent : libraryEvents) {
+            futures.add(kafkaTemplate.sendDefault(libraryEvent.getLibraryEventId(), libraryEvent));
+        }
+        for (ListenableFuture<SendResult<Integer, LibraryEvent>> future : futures) {
+            future.get();
+        }
+        wire.wireBytes += (long) ((double) outgoingBytes.metricValue() - bytesBefore);
+    }
+}
@@ -0,0 +1,94 @@
+package com.learnkafka.serde;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+//Cost per event of turning a LibraryEvent into record bytes and back, run with -prof gc for the allocation rate
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class LibraryEventSerializationBenchmark {
+
+    private static final String TOPIC = "library-events";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LibraryEventJsonSerializer jsonSerializer = new LibraryEventJsonSerializer();
+    private final LibraryEventBinarySerializer binarySerializer = new LibraryEventBinarySerializer();
+    private final LibraryEventDeserializer deserializer = new LibraryEventDeserializer();
+    private final LazyLibraryEventDeserializer lazyDeserializer = new LazyLibraryEventDeserializer();
+
+    private LibraryEvent libraryEvent;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setUp() {
+        Book book = Book.builder()
+                .bookId(456)
+                .bookName("Kafka Using Spring Boot")
+                .bookAuthor("Itamar")
+                .build();
+        libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.NEW)
+                .book(book)
+                .build();
+        jsonBytes = jsonSerializer.serialize(TOPIC, libraryEvent);
+        binaryBytes = binarySerializer.serialize(TOPIC, libraryEvent);
+    }
+
+    //the String based path: ObjectMapper to String, StringSerializer to bytes
+    @Benchmark
+    public byte[] writeValueAsString() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(libraryEvent).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] writeValueAsBytes() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(libraryEvent);
+    }
+
+    @Benchmark
+    public byte[] jsonSerializer() {
+        return jsonSerializer.serialize(TOPIC, libraryEvent);
+    }
+
+    @Benchmark
+    public byte[] binarySerializer() {
+        return binarySerializer.serialize(TOPIC, libraryEvent);
+    }
+
+    @Benchmark
+    public LibraryEvent jsonDeserializer() {
+        return deserializer.deserialize(TOPIC, jsonBytes);
+    }
+
+    @Benchmark
+    public LibraryEvent binaryDeserializer() {
+        return deserializer.deserialize(TOPIC, binaryBytes);
+    }
+
+    //libraryEventId and libraryEventType only, what a router or filter reads before it needs the Book
+    @Benchmark
+    public LazyLibraryEvent jsonLazyDeserializer() {
+        return lazyDeserializer.deserialize(TOPIC, jsonBytes);
+    }
+
+    @Benchmark
+    public LazyLibraryEvent binaryLazyDeserializer() {
+        return lazyDeserializer.deserialize(TOPIC, binaryBytes);
+    }
+}
@@ -0,0 +1,259 @@
+package com.learnkafka.loadtest;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.serde.LibraryEventDeserializer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+//Open-loop load test: starts an embedded broker and the producer application, fires POST/PUT /v1/libraryevent
+//at a fixed rate and measures HTTP accept latency and end-to-end latency (scheduled send until a consumer reads the record).
+//Latencies are taken from the scheduled send time, so a stalled application shows up in the percentiles
+//instead of silently lowering the offered rate. Configured with loadtest.* system properties, program arguments
+//are passed on to the Spring application. loadtest.application picks the application under test, so the servlet
+//and the reactive producer are measured by the same client.
+public class LibraryEventsLoadTest {
+
+    private static final String TOPIC = "library-events";
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int rate = Integer.getInteger("loadtest.rate", 1000);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 5);
+    private final double putRatio = Double.parseDouble(System.getProperty("loadtest.put-ratio", "0.2"));
+    private final int partitions = Integer.getInteger("loadtest.partitions", 3);
+    private final int drainTimeoutSeconds = Integer.getInteger("loadtest.drain-timeout", 30);
+    private final long maxP99Millis = Long.getLong("loadtest.max-p99-ms", 0);
+    private final Path reportDir = Paths.get(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+    private final String application = System.getProperty("loadtest.application", "com.learnkafka.LibraryEventsProducerApplication");
+    //true answers once the broker acknowledged the event
+    private final boolean ack = Boolean.getBoolean("loadtest.ack");
+
+    private final Recorder httpRecorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Recorder endToEndRecorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder receivedMeasured = new LongAdder();
+    private final AtomicLong concurrent = new AtomicLong();
+    private final AtomicLong maxConcurrent = new AtomicLong();
+    private final AtomicLong lastReceivedNanos = new AtomicLong();
+    private final AtomicReference<String> firstRejection = new AtomicReference<>();
+
+    //scheduled send time per event, the bookId of every event is its index in here
+    private AtomicLongArray scheduledAt;
+    private volatile long measureFromNanos;
+    private volatile boolean consuming = true;
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new LibraryEventsLoadTest().run(args));
+    }
+
+    int run(String[] args) throws Exception {
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaBroker(1, true, partitions, TOPIC);
+        broker.afterPropertiesSet();
+        String brokers = broker.getBrokersAsString();
+
+        //system properties rank above application.yml, program arguments still override them
+        setIfAbsent("server.port", "0");
+        setIfAbsent("spring.kafka.producer.bootstrap-servers", brokers);
+        setIfAbsent("spring.kafka.admin.properties.bootstrap.servers", brokers);
+        setIfAbsent("library-events.topic.partitions", String.valueOf(partitions));
+        setIfAbsent("logging.level.com.learnkafka", "WARN");
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Class.forName(application))
+                .run(args);
+
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/v1/libraryevent" + (ack ? "?ack=true" : ""));
+
+            KafkaConsumer<Integer, LibraryEvent> consumer = createConsumer(brokers);
+            Thread consumerThread = new Thread(() -> consume(consumer), "loadtest-consumer");
+            consumerThread.start();
+
+            int events = rate * (warmupSeconds + durationSeconds);
+            scheduledAt = new AtomicLongArray(events);
+            System.out.printf("Offering %d events/sec for %ds (+%ds warmup) against %s of %s%n",
+                    rate, durationSeconds, warmupSeconds, uri, application);
+
+            generate(uri, events);
+            awaitDrain(events);
+            consuming = false;
+            consumerThread.join();
+
+            return report(events);
+        } finally {
+            context.close();
+            broker.destroy();
+        }
+    }
+
+    private static void setIfAbsent(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    private KafkaConsumer<Integer, LibraryEvent> createConsumer(String brokers) {
+        KafkaConsumer<Integer, LibraryEvent> consumer = new KafkaConsumer<>(
+                Map.of(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, brokers,
+                        ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 10),
+                new IntegerDeserializer(), new LibraryEventDeserializer());
+        List<TopicPartition> topicPartitions = consumer.partitionsFor(TOPIC).stream()
+                .map(partitionInfo -> new TopicPartition(TOPIC, partitionInfo.partition()))
+                .collect(Collectors.toList());
+        consumer.assign(topicPartitions);
+        consumer.seekToEnd(topicPartitions);
+        //resolve the end offsets now, before the first event is sent
+        topicPartitions.forEach(consumer::position);
+        return consumer;
+    }
+
+    private void consume(KafkaConsumer<Integer, LibraryEvent> consumer) {
+        try (consumer) {
+            while (consuming) {
+                for (ConsumerRecord<Integer, LibraryEvent> record : consumer.poll(Duration.ofMillis(100))) {
+                    long now = System.nanoTime();
+                    int index = record.value().getBook().getBookId();
+                    long scheduled = scheduledAt.get(index);
+                    received.increment();
+                    if (scheduled >= measureFromNanos) {
+                        endToEndRecorder.recordValue(Math.min(now - scheduled, HIGHEST_TRACKABLE_NANOS));
+                        receivedMeasured.increment();
+                        lastReceivedNanos.accumulateAndGet(now, Math::max);
+                    }
+                }
+            }
+        }
+    }
+
+    private void generate(URI uri, int events) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long startNanos = System.nanoTime();
+        measureFromNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+
+        for (int index = 0; index < events; index++) {
+            long scheduled = startNanos + index * intervalNanos;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            scheduledAt.set(index, scheduled);
+            boolean put = ThreadLocalRandom.current().nextDouble() < putRatio;
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .method(put ? "PUT" : "POST", HttpRequest.BodyPublishers.ofString(body(index, put)))
+                    .build();
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        long now = System.nanoTime();
+                        concurrent.decrementAndGet();
+                        if (ex != null || response.statusCode() / 100 != 2) {
+                            rejected.increment();
+                            firstRejection.compareAndSet(null, ex != null ? ex.toString() : "HTTP " + response.statusCode());
+                            return;
+                        }
+                        accepted.increment();
+                        if (scheduled >= measureFromNanos) {
+                            httpRecorder.recordValue(Math.min(now - scheduled, HIGHEST_TRACKABLE_NANOS));
+                        }
+                    });
+        }
+    }
+
+    private String body(int index, boolean put) {
+        return "{\"libraryEventId\":" + (put ? String.valueOf(index + 1) : "null") + ","
+                + "\"book\":{\"bookId\":" + index + ",\"bookName\":\"Kafka Using Spring Boot\",\"bookAuthor\":\"Itamar\"}}";
+    }
+
+    private void awaitDrain(int events) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        while (System.nanoTime() < deadline
+                && (accepted.sum() + rejected.sum() < events || received.sum() < accepted.sum())) {
+            Thread.sleep(100);
+        }
+    }
+
+    private int report(int events) throws IOException {
+        Histogram http = httpRecorder.getIntervalHistogram();
+        Histogram endToEnd = endToEndRecorder.getIntervalHistogram();
+        double measuredSeconds = (lastReceivedNanos.get() - measureFromNanos) / 1e9;
+        double sustained = measuredSeconds > 0 ? receivedMeasured.sum() / measuredSeconds : 0;
+
+        System.out.printf("%nsent %d, accepted %d, rejected %d, received %d, lost %d%n",
+                events, accepted.sum(), rejected.sum(), received.sum(), accepted.sum() - received.sum());
+        if (firstRejection.get() != null) {
+            System.out.println("first rejection: " + firstRejection.get());
+        }
+        System.out.printf("offered %d events/sec, sustained %.0f events/sec, at most %d requests open at once%n",
+                rate, sustained, maxConcurrent.get());
+        printLatencies("http accept", http);
+        printLatencies("end to end ", endToEnd);
+
+        Files.createDirectories(reportDir);
+        writeDistribution(http, reportDir.resolve("http-accept.hgrm"));
+        writeDistribution(endToEnd, reportDir.resolve("end-to-end.hgrm"));
+        System.out.println("percentile distributions written to " + reportDir.toAbsolutePath());
+
+        if (rejected.sum() > 0 || received.sum() < accepted.sum()) {
+            return 1;
+        }
+        if (maxP99Millis > 0 && endToEnd.getValueAtPercentile(99) > TimeUnit.MILLISECONDS.toNanos(maxP99Millis)) {
+            System.out.printf("end to end p99 above loadtest.max-p99-ms=%d%n", maxP99Millis);
+            return 1;
+        }
+        return 0;
+    }
+
+    private void printLatencies(String name, Histogram histogram) {
+        System.out.printf("%s ms: p50 %.2f  p99 %.2f  p999 %.2f  max %.2f  (n=%d)%n", name,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                histogram.getTotalCount());
+    }
+
+    private void writeDistribution(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1_000_000.0);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,21 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.admission")
+@Data
+public class AdmissionProperties {
+
+    //Unacknowledged sends allowed at once, keep it well below what fits in the producer's buffer.memory
+    //so a send never blocks on max.block.ms inside a request thread
+    private int maxInFlight = 10_000;
+
+    //How long a bulk item waits for a free slot before it is reported as failed, single requests never wait
+    private Duration bulkAcquireTimeout = Duration.ofSeconds(5);
+
+    //Retry-After sent with a 503 when a request is shed
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
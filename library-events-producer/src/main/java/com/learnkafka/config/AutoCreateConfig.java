@@ -1,6 +1,7 @@
 package com.learnkafka.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -10,11 +11,17 @@ import org.springframework.kafka.config.TopicBuilder;
 @Profile("local")
 public class AutoCreateConfig {
 
+    @Value("${library-events.topic.partitions:3}")
+    int partitions;
+
+    @Value("${library-events.topic.replicas:1}")
+    int replicas;
+
     @Bean
     public NewTopic LibraryEvents() {
         return TopicBuilder.name("library-events")
-                .partitions(1)  //depends on the number of browkers
-                .replicas(1) //depends on the number of browkers
+                .partitions(partitions)  //upper bound for consumer parallelism
+                .replicas(replicas) //depends on the number of browkers
                 .build();
     }
 }
@@ -0,0 +1,19 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "library-events.bulk")
+@Data
+public class BulkIngestProperties {
+
+    //How long a bulk request waits for the broker to acknowledge the whole batch
+    private Duration ackTimeout = Duration.ofSeconds(30);
+
+    //Producer overrides (linger.ms, batch.size, ...) applied only to the bulk KafkaTemplate
+    private Map<String, String> producer = new HashMap<>();
+}
@@ -0,0 +1,90 @@
+package com.learnkafka.config;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.producer.BookIdPartitioner;
+import com.learnkafka.producer.LibraryEventIdPartitioner;
+import com.learnkafka.producer.LibraryEventPartitioner;
+import com.learnkafka.producer.RoundRobinLibraryEventPartitioner;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties({BulkIngestProperties.class, LibraryEventAuditProperties.class, AdmissionProperties.class,
+        ProducerTuningProperties.class, OutboxProperties.class})
+@Slf4j
+public class LibraryEventsProducerConfig {
+
+    //fills in the tuning profile on the auto-configured producer factory before the first producer is created
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerTuningCustomizer(ProducerTuningProperties producerTuningProperties) {
+        return producerFactory -> {
+            ProducerTuningProfile profile = producerTuningProperties.getProfile();
+            producerFactory.updateConfigs(profile.defaultsFor(producerFactory.getConfigurationProperties()));
+            log.info("Producer tuning profile {} : {}", profile.displayName(),
+                    ProducerTuningProfile.tuningOf(producerFactory.getConfigurationProperties()));
+        };
+    }
+
+    //Declaring any KafkaTemplate switches off the auto-configured one, so the default template is declared here too
+    @Bean
+    @Primary
+    public KafkaTemplate<Integer, LibraryEvent> kafkaTemplate(ProducerFactory<Integer, LibraryEvent> producerFactory,
+                                                        KafkaProperties kafkaProperties) {
+        KafkaTemplate<Integer, LibraryEvent> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+        kafkaTemplate.setDefaultTopic(kafkaProperties.getTemplate().getDefaultTopic());
+        //single events are one record each, with a transaction-id-prefix they still go out idempotent but without a transaction
+        kafkaTemplate.setAllowNonTransactional(true);
+        return kafkaTemplate;
+    }
+
+    @Bean
+    public KafkaTemplate<Integer, LibraryEvent> bulkKafkaTemplate(ProducerFactory<Integer, LibraryEvent> producerFactory,
+                                                            KafkaProperties kafkaProperties,
+                                                            BulkIngestProperties bulkIngestProperties,
+                                                            ProducerTuningProperties producerTuningProperties) {
+        //a dedicated factory instead of the KafkaTemplate(factory, overrides) copy, which drops the transaction-id-prefix
+        //and the auto-configured client metrics listener
+        ProducerTuningProfile bulkProfile = producerTuningProperties.getBulkProfile();
+        Map<String, Object> configs = new HashMap<>(producerFactory.getConfigurationProperties());
+        configs.putAll(bulkProfile.producerConfigs());
+        configs.putAll(bulkIngestProperties.getProducer());
+        log.info("Bulk producer tuning profile {} : {}", bulkProfile.displayName(), ProducerTuningProfile.tuningOf(configs));
+        DefaultKafkaProducerFactory<Integer, LibraryEvent> bulkProducerFactory = new DefaultKafkaProducerFactory<>(configs,
+                producerFactory.getKeySerializerSupplier(), producerFactory.getValueSerializerSupplier());
+        if (producerFactory.getTransactionIdPrefix() != null) {
+            //transactional ids must not collide with the ones of the default factory
+            bulkProducerFactory.setTransactionIdPrefix(producerFactory.getTransactionIdPrefix() + "bulk-");
+        }
+        producerFactory.getListeners().forEach(bulkProducerFactory::addListener);
+
+        KafkaTemplate<Integer, LibraryEvent> kafkaTemplate = new KafkaTemplate<>(bulkProducerFactory);
+        kafkaTemplate.setDefaultTopic(kafkaProperties.getTemplate().getDefaultTopic());
+        return kafkaTemplate;
+    }
+
+    @Bean
+    public LibraryEventPartitioner libraryEventPartitioner(@Value("${library-events.partitioner:library-event-id}") String partitioner) {
+        switch (partitioner) {
+            case "library-event-id":
+                return new LibraryEventIdPartitioner();
+            case "book-id":
+                return new BookIdPartitioner();
+            case "round-robin":
+                return new RoundRobinLibraryEventPartitioner();
+            default:
+                throw new IllegalArgumentException("Unknown library-events.partitioner : " + partitioner);
+        }
+    }
+}
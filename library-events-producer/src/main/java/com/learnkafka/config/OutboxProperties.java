@@ -0,0 +1,36 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.outbox")
+@Data
+public class OutboxProperties {
+
+    //POST and PUT /v1/libraryevent return once the event is in the journal, a relay sends it to Kafka afterwards
+    private boolean enabled = false;
+
+    private Path directory = Path.of("library-events-outbox");
+
+    //Preallocated and mapped per segment
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    //Segments with unacknowledged events allowed at once, beyond that requests get 503 + Retry-After
+    private int maxSegments = 16;
+
+    //true forces every append to disk before the request returns, so events survive a power loss
+    //and not only a crash of the service, at the cost of a disk flush per request
+    private boolean force = false;
+
+    //Events sent by the relay before it waits for their acknowledgements
+    private int batchSize = 1000;
+
+    private Duration ackTimeout = Duration.ofSeconds(30);
+
+    //Pause after a batch failed, the relay then resends from the first unacknowledged event
+    private Duration retryBackoff = Duration.ofSeconds(1);
+}
@@ -0,0 +1,51 @@
+package com.learnkafka.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Named bundles of compression, batching and buffer settings. Small JSON events compress well once several of them
+//share a batch, so the profiles trade linger.ms against batch fill:
+//low-latency sends almost immediately, high-throughput waits a few ms, bulk-import fills large zstd batches
+public enum ProducerTuningProfile {
+
+    LOW_LATENCY("snappy", 0, 16_384, 32 * 1024 * 1024L),
+    HIGH_THROUGHPUT("lz4", 10, 65_536, 64 * 1024 * 1024L),
+    BULK_IMPORT("zstd", 50, 262_144, 128 * 1024 * 1024L);
+
+    static final List<String> KEYS = List.of(ProducerConfig.COMPRESSION_TYPE_CONFIG, ProducerConfig.LINGER_MS_CONFIG,
+            ProducerConfig.BATCH_SIZE_CONFIG, ProducerConfig.BUFFER_MEMORY_CONFIG);
+
+    private final Map<String, Object> producerConfigs = new LinkedHashMap<>();
+
+    ProducerTuningProfile(String compressionType, int lingerMs, int batchSize, long bufferMemory) {
+        producerConfigs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        producerConfigs.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        producerConfigs.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        producerConfigs.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+    }
+
+    public Map<String, Object> producerConfigs() {
+        return Map.copyOf(producerConfigs);
+    }
+
+    //the profile settings not already present in the given configs, explicit spring.kafka.producer settings win
+    public Map<String, Object> defaultsFor(Map<String, Object> configs) {
+        Map<String, Object> defaults = new LinkedHashMap<>(producerConfigs);
+        defaults.keySet().removeAll(configs.keySet());
+        return defaults;
+    }
+
+    //the effective tuning settings of the given configs, for the startup report
+    public static Map<String, Object> tuningOf(Map<String, Object> configs) {
+        Map<String, Object> tuning = new LinkedHashMap<>();
+        KEYS.forEach(key -> tuning.put(key, configs.getOrDefault(key, "default")));
+        return tuning;
+    }
+
+    public String displayName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
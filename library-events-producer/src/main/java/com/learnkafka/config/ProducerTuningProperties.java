@@ -0,0 +1,15 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "library-events.tuning")
+@Data
+public class ProducerTuningProperties {
+
+    //Profile of the default KafkaTemplate (single events), e.g. LIBRARY_EVENTS_TUNING_PROFILE=low-latency per environment
+    private ProducerTuningProfile profile = ProducerTuningProfile.HIGH_THROUGHPUT;
+
+    //Profile of the bulk KafkaTemplate, library-events.bulk.producer entries are applied on top of it
+    private ProducerTuningProfile bulkProfile = ProducerTuningProfile.BULK_IMPORT;
+}
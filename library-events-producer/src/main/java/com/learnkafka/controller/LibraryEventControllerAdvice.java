@@ -1,20 +1,31 @@
 package com.learnkafka.controller;
 
+import com.learnkafka.outbox.LibraryEventTooLargeException;
+import com.learnkafka.producer.LibraryEventRejectedException;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.KafkaProducerException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @ControllerAdvice
 @Slf4j
 public class LibraryEventControllerAdvice {
 
+    @Value("${library-events.admission.retry-after:1s}")
+    Duration retryAfter = Duration.ofSeconds(1);
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleRequestBody(MethodArgumentNotValidException ex) {
 
@@ -29,4 +40,46 @@ public class LibraryEventControllerAdvice {
         return new ResponseEntity<>(errorMessage, HttpStatus.BAD_REQUEST);
 
     }
+
+    //no acknowledgement within library-events.ack-timeout
+    @ExceptionHandler(TimeoutException.class)
+    public ResponseEntity<?> handleAcknowledgementTimeout(TimeoutException ex) {
+
+        log.error("No acknowledgement from Kafka : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.getSeconds()))
+                .body("No acknowledgement from Kafka, please retry");
+    }
+
+    //retriable client errors (broker unavailable, delivery timeout, ...) are worth retrying, anything else is not
+    @ExceptionHandler(KafkaProducerException.class)
+    public ResponseEntity<?> handleProducerFailure(KafkaProducerException ex) {
+
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        log.error("Error Sending the message and the exception is {} ", cause.getMessage());
+        if (cause instanceof RetriableException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.getSeconds()))
+                    .body("Kafka is unavailable, please retry");
+        }
+        return new ResponseEntity<>("Error Sending the message : " + cause.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    //load shed by LibraryEventAdmissionController before anything reached the producer
+    @ExceptionHandler(LibraryEventRejectedException.class)
+    public ResponseEntity<?> handleRejected(LibraryEventRejectedException ex) {
+
+        log.warn("Library event rejected : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.getSeconds()))
+                .body(ex.getMessage());
+    }
+
+    //over max.request.size, the outbox would never get it to Kafka
+    @ExceptionHandler(LibraryEventTooLargeException.class)
+    public ResponseEntity<?> handleTooLarge(LibraryEventTooLargeException ex) {
+
+        log.warn("Library event too large : {} ", ex.getMessage());
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 }
@@ -1,13 +1,20 @@
 package com.learnkafka.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.domain.BulkLibraryEventResult;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventAcknowledgement;
 import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.outbox.LibraryEventOutbox;
 import com.learnkafka.producer.LibraryEventProducer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.support.SendResult;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -15,6 +22,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -24,6 +34,13 @@ public class LibraryEventsController {
     @Autowired
     LibraryEventProducer libraryEventProducer;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    //present with library-events.outbox.enabled=true
+    @Autowired(required = false)
+    LibraryEventOutbox libraryEventOutbox;
+
     @PostMapping("/v1/libraryevent")
     public ResponseEntity<LibraryEvent> postLibraryEvent(@RequestBody @Valid LibraryEvent libraryEvent)
             throws Exception {
@@ -33,9 +50,9 @@ public class LibraryEventsController {
         //Asynchronous call
         //libraryEventProducer.sendLibraryEvent(libraryEvent);
 
-        //Asynchronous call with Producer Record
+        //Asynchronous call with Producer Record, or through the outbox
         libraryEvent.setLibraryEventType(LibraryEventType.NEW);
-        libraryEventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
+        publish(libraryEvent);
 
         //Synchronous call
         //SendResult<Integer, String> sendResult = libraryEventProducer.sendLibraryEventSynchronous(libraryEvent);
@@ -56,9 +73,75 @@ public class LibraryEventsController {
         }
 
         libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
-        libraryEventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
+        publish(libraryEvent);
 
         return ResponseEntity.status(HttpStatus.OK).body(libraryEvent);
     }
 
+    //in outbox mode the event is durable in the journal when the response goes out, otherwise the send is only started
+    private void publish(LibraryEvent libraryEvent) {
+        if (libraryEventOutbox != null) {
+            libraryEventOutbox.append(libraryEvent);
+        } else {
+            libraryEventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
+        }
+    }
+
+    //Acknowledged variants (?ack=true): the servlet thread is released while the broker acknowledgement is awaited,
+    //the response carries the partition and offset, failures and timeouts map to 5xx in LibraryEventControllerAdvice
+    @PostMapping(value = "/v1/libraryevent", params = "ack=true")
+    public CompletableFuture<ResponseEntity<LibraryEventAcknowledgement>> postLibraryEventAcknowledged(
+            @RequestBody @Valid LibraryEvent libraryEvent) {
+
+        libraryEvent.setLibraryEventType(LibraryEventType.NEW);
+        return libraryEventProducer.sendLibraryEventAcknowledged(libraryEvent)
+                .thenApply(sendResult -> ResponseEntity.status(HttpStatus.CREATED).body(acknowledgement(sendResult)));
+    }
+
+    @PutMapping(value = "/v1/libraryevent", params = "ack=true")
+    public CompletableFuture<ResponseEntity<?>> putLibraryEventAcknowledged(@RequestBody @Valid LibraryEvent libraryEvent) {
+
+        if(libraryEvent.getLibraryEventId()==null){
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Please pass the LibraryEventId"));
+        }
+
+        libraryEvent.setLibraryEventType(LibraryEventType.UPDATE);
+        return libraryEventProducer.sendLibraryEventAcknowledged(libraryEvent)
+                .thenApply(sendResult -> ResponseEntity.status(HttpStatus.OK).body(acknowledgement(sendResult)));
+    }
+
+    private LibraryEventAcknowledgement acknowledgement(SendResult<Integer, LibraryEvent> sendResult) {
+        return LibraryEventAcknowledgement.builder()
+                .libraryEvent(sendResult.getProducerRecord().value())
+                .partition(sendResult.getRecordMetadata().partition())
+                .offset(sendResult.getRecordMetadata().offset())
+                .build();
+    }
+
+    //Bulk ingest: accepts a JSON array or an NDJSON stream, items are read and sent one by one as the body streams in
+    @PostMapping(value = "/v1/libraryevent/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkLibraryEventResult> postLibraryEventsBulk(InputStream requestBody) throws IOException {
+
+        BulkLibraryEventResult result = sendBulk(requestBody, LibraryEventType.NEW);
+
+        return ResponseEntity.status(result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS).body(result);
+    }
+
+    @PutMapping(value = "/v1/libraryevent/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkLibraryEventResult> putLibraryEventsBulk(InputStream requestBody) throws IOException {
+
+        BulkLibraryEventResult result = sendBulk(requestBody, LibraryEventType.UPDATE);
+
+        return ResponseEntity.status(result.getFailed() == 0 ? HttpStatus.OK : HttpStatus.MULTI_STATUS).body(result);
+    }
+
+    private BulkLibraryEventResult sendBulk(InputStream requestBody, LibraryEventType libraryEventType) throws IOException {
+        try (MappingIterator<LibraryEvent> libraryEvents = objectMapper.readerFor(LibraryEvent.class).readValues(requestBody)) {
+            return libraryEventProducer.sendLibraryEventsBulk(libraryEvents, libraryEventType);
+        }
+    }
+
 }
@@ -0,0 +1,321 @@
+package com.learnkafka.outbox;
+
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.serde.LibraryEventBinaryFormat;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+//Append-only journal of accepted library events, one preallocated memory-mapped file per segment. An entry is
+//[length][crc32][sequence][producedAt][LibraryEventBinaryFormat], the length is written last so an entry torn by a
+//crash reads as the end of the journal. The highest acknowledged sequence is kept in its own mapped file, next to a
+//random id of the journal, segments that are acknowledged entirely are deleted. Sequences start at 1. The journal id
+//and the sequence make the event id of an entry, the same for every time it is sent. An entry that no longer decodes
+//is read without its event, so the relay can skip it instead of stopping at it.
+@Slf4j
+public class LibraryEventJournal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String ACKNOWLEDGED_FILE = "acknowledged";
+    //length and crc
+    private static final int ENTRY_HEADER = Integer.BYTES * 2;
+    //sequence and producedAt
+    private static final int ENTRY_FIXED = Long.BYTES * 2;
+
+    private final Path directory;
+    private final int segmentSize;
+    //largest encoded event accepted, beyond it the event could never be sent
+    private final int maxEventSize;
+    private final int maxSegments;
+    private final boolean force;
+    //first sequence -> segment
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final MappedByteBuffer acknowledgedBuffer;
+    private final long journalId;
+    private long acknowledged;
+    private long nextSequence;
+    //read cursor of the relay, rewound to the first unacknowledged entry after a failed send
+    private long readSequence;
+    private Segment readSegment;
+    private int readPosition;
+
+    public LibraryEventJournal(Path directory, int segmentSize, int maxEventSize, int maxSegments, boolean force)
+            throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxEventSize = Math.min(maxEventSize, segmentSize - ENTRY_HEADER - ENTRY_FIXED);
+        this.maxSegments = maxSegments;
+        this.force = force;
+        Files.createDirectories(directory);
+        //journals written before the id was kept read it as 0, they get one now
+        this.acknowledgedBuffer = map(directory.resolve(ACKNOWLEDGED_FILE), Long.BYTES * 2);
+        this.acknowledged = acknowledgedBuffer.getLong(0);
+        if (acknowledgedBuffer.getLong(Long.BYTES) == 0) {
+            acknowledgedBuffer.putLong(Long.BYTES, UUID.randomUUID().getMostSignificantBits() | 1);
+            acknowledgedBuffer.force();
+        }
+        this.journalId = acknowledgedBuffer.getLong(Long.BYTES);
+
+        long lastSequence = acknowledged;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList())) {
+                Segment segment = recover(file);
+                segments.put(segment.firstSequence, segment);
+                lastSequence = Math.max(lastSequence, segment.lastSequence);
+            }
+        }
+        this.nextSequence = lastSequence + 1;
+        deleteAcknowledgedSegments();
+        rewind();
+        log.info("Opened journal {} with {} segments, {} entries not acknowledged", directory, segments.size(), backlog());
+    }
+
+    //the sequence of the entry, -1 when all segments are in use by entries that are not acknowledged yet
+    public synchronized long append(LibraryEvent libraryEvent, long producedAt) {
+        byte[] payload = LibraryEventBinaryFormat.encode(libraryEvent);
+        if (payload.length > maxEventSize) {
+            throw new IllegalArgumentException("Library event of " + payload.length + " bytes is over the limit of "
+                    + maxEventSize + " bytes");
+        }
+        int size = ENTRY_HEADER + ENTRY_FIXED + payload.length;
+        Segment segment = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        if (segment == null || segment.writePosition + size > segmentSize) {
+            if (segments.size() >= maxSegments) {
+                return -1;
+            }
+            segment = newSegment(nextSequence);
+        }
+        long sequence = nextSequence++;
+        ByteBuffer entry = segment.buffer.duplicate();
+        entry.position(segment.writePosition + ENTRY_HEADER);
+        entry.putLong(sequence).putLong(producedAt).put(payload);
+        segment.buffer.putInt(segment.writePosition + Integer.BYTES, crc(segment.buffer, segment.writePosition, size));
+        segment.buffer.putInt(segment.writePosition, size - ENTRY_HEADER);
+        if (force) {
+            segment.buffer.force();
+        }
+        segment.writePosition += size;
+        segment.lastSequence = sequence;
+        notifyAll();
+        return sequence;
+    }
+
+    //up to max entries from the read cursor on, the cursor moves past them
+    public synchronized List<Entry> read(int max) {
+        List<Entry> entries = new ArrayList<>();
+        while (entries.size() < max && readSequence < nextSequence && readSegment != null) {
+            if (readPosition >= readSegment.writePosition) {
+                Map.Entry<Long, Segment> next = segments.higherEntry(readSegment.firstSequence);
+                if (next == null) {
+                    break;
+                }
+                readSegment = next.getValue();
+                readPosition = 0;
+                continue;
+            }
+            ByteBuffer buffer = readSegment.buffer;
+            int length = buffer.getInt(readPosition);
+            long sequence = buffer.getLong(readPosition + ENTRY_HEADER);
+            if (sequence >= readSequence) {
+                byte[] payload = new byte[length - ENTRY_FIXED];
+                ByteBuffer entry = buffer.duplicate();
+                entry.position(readPosition + ENTRY_HEADER + ENTRY_FIXED);
+                entry.get(payload);
+                entries.add(new Entry(sequence, buffer.getLong(readPosition + ENTRY_HEADER + Long.BYTES),
+                        new UUID(journalId, sequence), decode(sequence, payload)));
+                readSequence = sequence + 1;
+            }
+            readPosition += ENTRY_HEADER + length;
+        }
+        return entries;
+    }
+
+    //waits until an entry beyond the read cursor is appended, false when the timeout elapsed first
+    public synchronized boolean awaitAppended(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (readSequence >= nextSequence) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(Math.max(1, remaining / 1_000_000));
+        }
+        return true;
+    }
+
+    //every entry up to sequence reached Kafka
+    public synchronized void acknowledge(long sequence) {
+        if (sequence <= acknowledged) {
+            return;
+        }
+        acknowledged = sequence;
+        acknowledgedBuffer.putLong(0, sequence);
+        if (force) {
+            acknowledgedBuffer.force();
+        }
+        deleteAcknowledgedSegments();
+    }
+
+    //the next read starts over at the first entry that is not acknowledged
+    public synchronized void rewind() {
+        readSequence = acknowledged + 1;
+        Map.Entry<Long, Segment> segment = segments.floorEntry(readSequence);
+        if (segment == null) {
+            segment = segments.firstEntry();
+        }
+        readSegment = segment == null ? null : segment.getValue();
+        readPosition = 0;
+    }
+
+    public synchronized long backlog() {
+        return nextSequence - 1 - acknowledged;
+    }
+
+    //the mapped buffers are released by the garbage collector, there is no unmap before Java 14
+    @Override
+    public synchronized void close() {
+        if (force) {
+            segments.values().forEach(segment -> segment.buffer.force());
+            acknowledgedBuffer.force();
+        }
+        segments.clear();
+        readSegment = null;
+    }
+
+    private Segment newSegment(long firstSequence) {
+        Path file = directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+        try {
+            Segment segment = new Segment(firstSequence, map(file, segmentSize));
+            segments.put(firstSequence, segment);
+            if (readSegment == null) {
+                readSegment = segment;
+                readPosition = 0;
+            }
+            return segment;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not create journal segment " + file, ex);
+        }
+    }
+
+    //scans to the first entry that is missing or fails its crc, anything behind it is cleared for the next append
+    private Segment recover(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Segment segment = new Segment(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())),
+                map(file, segmentSize));
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + ENTRY_HEADER + ENTRY_FIXED <= segmentSize) {
+            int length = buffer.getInt(position);
+            if (length < ENTRY_FIXED || position + ENTRY_HEADER + length > segmentSize
+                    || buffer.getInt(position + Integer.BYTES) != crc(buffer, position, ENTRY_HEADER + length)) {
+                break;
+            }
+            segment.lastSequence = buffer.getLong(position + ENTRY_HEADER);
+            position += ENTRY_HEADER + length;
+        }
+        segment.writePosition = position;
+        for (int index = position; index < segmentSize; index++) {
+            if (buffer.get(index) != 0) {
+                log.warn("Discarding a torn entry at {} of {}", position, file);
+                for (; index < segmentSize; index++) {
+                    buffer.put(index, (byte) 0);
+                }
+            }
+        }
+        return segment;
+    }
+
+    //the last segment is kept, appends continue in it
+    private void deleteAcknowledgedSegments() {
+        while (segments.size() > 1) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            if (segments.higherKey(first.getKey()) - 1 > acknowledged) {
+                return;
+            }
+            segments.remove(first.getKey());
+            if (readSegment == first.getValue()) {
+                //entries below the read sequence are skipped, the cursor itself stays where it is
+                readSegment = segments.firstEntry().getValue();
+                readPosition = 0;
+            }
+            Path file = directory.resolve(String.format("%020d%s", first.getKey(), SEGMENT_SUFFIX));
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ex) {
+                log.warn("Could not delete the acknowledged journal segment {} : {}", file, ex.getMessage());
+            }
+        }
+    }
+
+    //null when the payload does not decode, written by an incompatible version or damaged after its crc was checked
+    private LibraryEvent decode(long sequence, byte[] payload) {
+        try {
+            return LibraryEventBinaryFormat.decode(payload);
+        } catch (RuntimeException ex) {
+            log.error("Journal entry {} of {} does not decode : {}", sequence, directory, ex.getMessage());
+            return null;
+        }
+    }
+
+    //over sequence, producedAt and payload
+    private static int crc(ByteBuffer buffer, int position, int size) {
+        ByteBuffer entry = buffer.duplicate();
+        entry.position(position + ENTRY_HEADER).limit(position + size);
+        CRC32 crc = new CRC32();
+        crc.update(entry);
+        return (int) crc.getValue();
+    }
+
+    //the mapping stays valid after the channel is closed, new files read as zeroes
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    @Value
+    public static class Entry {
+        long sequence;
+        long producedAt;
+        UUID eventId;
+        //null when the entry does not decode
+        LibraryEvent libraryEvent;
+
+        public boolean isDecoded() {
+            return libraryEvent != null;
+        }
+    }
+
+    private static class Segment {
+        private final long firstSequence;
+        private final MappedByteBuffer buffer;
+        private long lastSequence;
+        private int writePosition;
+
+        private Segment(long firstSequence, MappedByteBuffer buffer) {
+            this.firstSequence = firstSequence;
+            this.buffer = buffer;
+            this.lastSequence = firstSequence - 1;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.learnkafka.outbox;
+
+import com.learnkafka.config.OutboxProperties;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.producer.LibraryEventProducer;
+import com.learnkafka.producer.LibraryEventRejectedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.errors.AuthenticationException;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+//Outbox mode: requests return once the event is appended to the LibraryEventJournal, a single relay thread drains
+//the journal to Kafka in large batches and acknowledges what the broker acknowledged. Unacknowledged events are
+//sent again after a failure or a restart, so delivery is at least once: the events of a failed batch that did
+//reach Kafka are sent a second time. Events that fail the same way on every send, rejected by Kafka for what they
+//are or no longer decodable, are parked: logged with their event id and acknowledged, so they do not hold back the
+//journal behind them. Events over max.request.size are refused before they are journaled.
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "library-events.outbox.enabled", havingValue = "true")
+public class LibraryEventOutbox implements SmartLifecycle {
+
+    static final String BACKLOG = "library.events.producer.outbox.backlog";
+    static final String PARKED = "library.events.producer.outbox.parked";
+    private static final Duration IDLE_WAIT = Duration.ofMillis(500);
+
+    private final OutboxProperties properties;
+    private final LibraryEventProducer libraryEventProducer;
+    private final LibraryEventJournal journal;
+    private final Counter parked;
+    private volatile boolean running;
+    private Thread relay;
+
+    public LibraryEventOutbox(OutboxProperties properties, LibraryEventProducer libraryEventProducer,
+                              MeterRegistry meterRegistry) throws IOException {
+        this.properties = properties;
+        this.libraryEventProducer = libraryEventProducer;
+        //the journal holds the binary format, the record carries the value serializer's format plus key and headers,
+        //an event within the limit may still be too large for Kafka and is parked by the relay
+        this.journal = new LibraryEventJournal(properties.getDirectory(), Math.toIntExact(properties.getSegmentSize().toBytes()),
+                libraryEventProducer.maxRelayRecordSize(), properties.getMaxSegments(), properties.isForce());
+        Gauge.builder(BACKLOG, journal, LibraryEventJournal::backlog)
+                .description("Events in the outbox journal not acknowledged by Kafka yet")
+                .register(meterRegistry);
+        this.parked = Counter.builder(PARKED)
+                .description("Events acknowledged in the outbox journal without reaching Kafka, they failed on every send")
+                .register(meterRegistry);
+    }
+
+    public void append(LibraryEvent libraryEvent) {
+        long sequence;
+        try {
+            sequence = journal.append(libraryEvent, System.currentTimeMillis());
+        } catch (IllegalArgumentException ex) {
+            throw new LibraryEventTooLargeException(ex.getMessage());
+        }
+        if (sequence < 0) {
+            throw new LibraryEventRejectedException("Outbox is full, " + journal.backlog()
+                    + " events are waiting for Kafka, please retry");
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        relay = new Thread(this::relay, "library-events-outbox-relay");
+        relay.start();
+    }
+
+    //not interrupted, the relay finishes its batch and whatever is left stays in the journal for the next start
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            relay.join(properties.getAckTimeout().plus(properties.getRetryBackoff()).plus(IDLE_WAIT).toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relay() {
+        while (running) {
+            try {
+                List<LibraryEventJournal.Entry> entries = journal.read(properties.getBatchSize());
+                if (entries.isEmpty()) {
+                    journal.awaitAppended(IDLE_WAIT);
+                    continue;
+                }
+                long acknowledged = send(entries);
+                journal.acknowledge(acknowledged);
+                if (acknowledged < entries.get(entries.size() - 1).getSequence()) {
+                    journal.rewind();
+                    Thread.sleep(properties.getRetryBackoff().toMillis());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                //the relay thread must not die, the journal keeps growing behind it otherwise
+                log.error("Outbox relay failed, resending from the first unacknowledged event : {}", ex.getMessage(), ex);
+                journal.rewind();
+                backOff();
+            }
+        }
+    }
+
+    private void backOff() {
+        try {
+            Thread.sleep(properties.getRetryBackoff().toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //the last sequence up to which every event of the batch was acknowledged or parked
+    private long send(List<LibraryEventJournal.Entry> entries) throws InterruptedException {
+        long acknowledged = entries.get(0).getSequence() - 1;
+        List<LibraryEventJournal.Entry> decoded = entries.stream()
+                .filter(LibraryEventJournal.Entry::isDecoded)
+                .collect(Collectors.toList());
+        List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures;
+        try {
+            futures = decoded.isEmpty() ? List.of() : libraryEventProducer.relayLibraryEvents(decoded);
+        } catch (RuntimeException ex) {
+            log.error("Could not relay {} events from the outbox : {}", decoded.size(), ex.getMessage());
+            return acknowledged;
+        }
+        long deadline = System.nanoTime() + properties.getAckTimeout().toNanos();
+        int sent = 0;
+        for (LibraryEventJournal.Entry entry : entries) {
+            if (!entry.isDecoded()) {
+                park(entry, "it does not decode");
+                acknowledged = entry.getSequence();
+                continue;
+            }
+            try {
+                futures.get(sent++).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                acknowledged = entry.getSequence();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause() instanceof KafkaProducerException && ex.getCause().getCause() != null
+                        ? ex.getCause().getCause() : ex.getCause();
+                if (failsOnEverySend(cause)) {
+                    park(entry, cause.toString());
+                    acknowledged = entry.getSequence();
+                    continue;
+                }
+                log.error("Outbox event {} was not acknowledged, resending from there : {}", entry.getSequence(),
+                        cause != null ? cause.getMessage() : ex.getMessage());
+                break;
+            } catch (TimeoutException ex) {
+                log.error("Outbox event {} was not acknowledged within {}, resending from there", entry.getSequence(),
+                        properties.getAckTimeout());
+                break;
+            }
+        }
+        return acknowledged;
+    }
+
+    //non-retriable failures of the record itself, like RecordTooLargeException. Failures of the producer or of its
+    //credentials reject any record, they are resent like retriable ones
+    private static boolean failsOnEverySend(Throwable cause) {
+        return cause instanceof KafkaException
+                && !(cause instanceof RetriableException)
+                && !(cause instanceof AuthenticationException)
+                && !(cause instanceof AuthorizationException)
+                && !(cause instanceof ProducerFencedException)
+                && !(cause instanceof OutOfOrderSequenceException);
+    }
+
+    private void park(LibraryEventJournal.Entry entry, String reason) {
+        parked.increment();
+        LibraryEvent libraryEvent = entry.getLibraryEvent();
+        log.error("Parking outbox event {} (event id {}, library event {}), {}, it will not be sent", entry.getSequence(),
+                entry.getEventId(), libraryEvent != null ? libraryEvent.getLibraryEventId() : null, reason);
+    }
+}
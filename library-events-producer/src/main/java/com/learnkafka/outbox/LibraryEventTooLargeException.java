@@ -0,0 +1,8 @@
+package com.learnkafka.outbox;
+
+public class LibraryEventTooLargeException extends RuntimeException {
+
+    public LibraryEventTooLargeException(String message) {
+        super(message);
+    }
+}
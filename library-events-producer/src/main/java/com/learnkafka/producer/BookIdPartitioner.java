@@ -0,0 +1,14 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.LibraryEvent;
+
+public class BookIdPartitioner implements LibraryEventPartitioner {
+
+    @Override
+    public Integer partition(LibraryEvent libraryEvent, int numPartitions) {
+        if (libraryEvent.getBook() == null || libraryEvent.getBook().getBookId() == null) {
+            return null;
+        }
+        return LibraryEventPartitioner.partitionForKey(libraryEvent.getBook().getBookId(), numPartitions);
+    }
+}
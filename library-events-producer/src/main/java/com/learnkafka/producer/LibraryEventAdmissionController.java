@@ -0,0 +1,79 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.AdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Bounds the sends waiting for a broker acknowledgement. A permit is taken before the send and given back when it
+//is acknowledged or fails, so a slow broker turns into fast rejections instead of request threads stuck in send.
+@Component
+public class LibraryEventAdmissionController {
+
+    static final String IN_FLIGHT = "library.events.admission.in.flight";
+    static final String CAPACITY = "library.events.admission.capacity";
+    static final String REJECTED = "library.events.admission.rejected";
+
+    private final AdmissionProperties admissionProperties;
+    private final Semaphore permits;
+    private final Counter rejected;
+    private final Counter bulkRejected;
+
+    public LibraryEventAdmissionController(AdmissionProperties admissionProperties, MeterRegistry meterRegistry) {
+        this.admissionProperties = admissionProperties;
+        this.permits = new Semaphore(admissionProperties.getMaxInFlight());
+        Gauge.builder(IN_FLIGHT, this, LibraryEventAdmissionController::inFlight)
+                .description("Admitted sends waiting for an acknowledgement")
+                .register(meterRegistry);
+        Gauge.builder(CAPACITY, admissionProperties, AdmissionProperties::getMaxInFlight)
+                .register(meterRegistry);
+        this.rejected = Counter.builder(REJECTED).tag("path", "single").register(meterRegistry);
+        this.bulkRejected = Counter.builder(REJECTED).tag("path", "bulk").register(meterRegistry);
+    }
+
+    //single requests are rejected straight away when no slot is free
+    public <K, V> ListenableFuture<SendResult<K, V>> admit(Supplier<ListenableFuture<SendResult<K, V>>> send) {
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            throw new LibraryEventRejectedException("Too many library events in flight (" + inFlight() + ")");
+        }
+        return sendAdmitted(send);
+    }
+
+    //bulk items wait up to bulk-acquire-timeout, the bulk request is already pipelined and this keeps it flowing
+    public <K, V> ListenableFuture<SendResult<K, V>> admitBulk(Supplier<ListenableFuture<SendResult<K, V>>> send) {
+        try {
+            if (!permits.tryAcquire(admissionProperties.getBulkAcquireTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                bulkRejected.increment();
+                throw new LibraryEventRejectedException("No send slot within " + admissionProperties.getBulkAcquireTimeout());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new LibraryEventRejectedException("Interrupted while waiting for a send slot");
+        }
+        return sendAdmitted(send);
+    }
+
+    public int inFlight() {
+        return admissionProperties.getMaxInFlight() - permits.availablePermits();
+    }
+
+    private <K, V> ListenableFuture<SendResult<K, V>> sendAdmitted(Supplier<ListenableFuture<SendResult<K, V>>> send) {
+        ListenableFuture<SendResult<K, V>> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException ex) {
+            permits.release();
+            throw ex;
+        }
+        future.addCallback(result -> permits.release(), ex -> permits.release());
+        return future;
+    }
+}
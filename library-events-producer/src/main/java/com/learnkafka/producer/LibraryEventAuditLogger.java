@@ -0,0 +1,24 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.audit.LibraryEventAudit;
+import com.learnkafka.config.LibraryEventAuditProperties;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.stereotype.Component;
+
+//Audit trail of sent events. Successes are sampled, failures are always logged with the payload.
+@Component
+public class LibraryEventAuditLogger extends LibraryEventAudit {
+
+    public LibraryEventAuditLogger(LibraryEventAuditProperties properties) {
+        super(properties);
+    }
+
+    public void sent(Integer key, LibraryEvent value, RecordMetadata recordMetadata) {
+        audit("sent", key, value, recordMetadata.partition(), recordMetadata.offset());
+    }
+
+    public void failed(Integer key, LibraryEvent value, Throwable ex) {
+        log.error("event=failed key={} error={} value={}", key, ex.getMessage(), value, ex);
+    }
+}
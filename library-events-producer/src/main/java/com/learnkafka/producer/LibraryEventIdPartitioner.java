@@ -0,0 +1,15 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.LibraryEvent;
+
+public class LibraryEventIdPartitioner implements LibraryEventPartitioner {
+
+    @Override
+    public Integer partition(LibraryEvent libraryEvent, int numPartitions) {
+        Integer libraryEventId = libraryEvent.getLibraryEventId();
+        if (libraryEventId == null) {
+            return null;
+        }
+        return LibraryEventPartitioner.partitionForKey(libraryEventId, numPartitions);
+    }
+}
@@ -0,0 +1,32 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.LibraryEvent;
+
+public interface LibraryEventPartitioner {
+
+    //Returning null leaves the choice to the Kafka client (sticky partitioning for records without a key)
+    Integer partition(LibraryEvent libraryEvent, int numPartitions);
+
+    //Kafka's murmur2 over the 4 bytes IntegerSerializer writes, so keyed records land where the default partitioner would put them
+    static int murmur2(int value) {
+        final int m = 0x5bd1e995;
+        final int r = 24;
+
+        int h = 0x9747b28c ^ 4;
+        int k = Integer.reverseBytes(value);
+        k *= m;
+        k ^= k >>> r;
+        k *= m;
+        h *= m;
+        h ^= k;
+
+        h ^= h >>> 13;
+        h *= m;
+        h ^= h >>> 15;
+        return h;
+    }
+
+    static int partitionForKey(int key, int numPartitions) {
+        return (murmur2(key) & 0x7fffffff) % numPartitions;
+    }
+}
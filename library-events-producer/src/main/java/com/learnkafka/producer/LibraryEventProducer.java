@@ -1,123 +1,385 @@
 package com.learnkafka.producer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.learnkafka.config.BulkIngestProperties;
+import com.learnkafka.domain.BulkLibraryEventItemResult;
+import com.learnkafka.domain.BulkLibraryEventItemStatus;
+import com.learnkafka.domain.BulkLibraryEventResult;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.outbox.LibraryEventJournal;
+import com.learnkafka.serde.LibraryEventHeaders;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.header.Header;
-import org.apache.kafka.common.header.internals.RecordHeader;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaProducerException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Component
 @Slf4j
 public class LibraryEventProducer {
 
+    //max.request.size of the Kafka client
+    private static final int DEFAULT_MAX_REQUEST_SIZE = 1024 * 1024;
+
+    @Autowired
+    KafkaTemplate<Integer, LibraryEvent> kafkaTemplate;
+
     @Autowired
-    KafkaTemplate<Integer, String> kafkaTemplate;
+    @Qualifier("bulkKafkaTemplate")
+    KafkaTemplate<Integer, LibraryEvent> bulkKafkaTemplate;
 
     String topic = "library-events";
 
+    @Value("${library-events.ack-timeout:5s}")
+    Duration ackTimeout = Duration.ofSeconds(5);
+
+    @Value("${library-events.event-source:scanner}")
+    String eventSource = "scanner";
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    BulkIngestProperties bulkIngestProperties;
+
     @Autowired
-    ObjectMapper objectMapper;
+    LibraryEventPartitioner libraryEventPartitioner;
+
+    @Autowired
+    LibraryEventProducerMetrics libraryEventProducerMetrics;
+
+    @Autowired
+    LibraryEventAuditLogger libraryEventAuditLogger;
+
+    @Autowired
+    LibraryEventAdmissionController libraryEventAdmissionController;
 
     //Asynchronous Call
-    public void sendLibraryEvent(LibraryEvent libraryEvent) throws JsonProcessingException {
+    public void sendLibraryEvent(LibraryEvent libraryEvent) {
 
         Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
 
-        ListenableFuture<SendResult<Integer, String>> listenableFuture = kafkaTemplate.sendDefault(key, value);
+        ProducerRecord<Integer, LibraryEvent> producerRecord = buildProducerRecord(key, libraryEvent, topic,
+                partitionFor(kafkaTemplate, libraryEvent));
+
+        ListenableFuture<SendResult<Integer, LibraryEvent>> listenableFuture = libraryEventAdmissionController.admit(
+                () -> libraryEventProducerMetrics.record("sendLibraryEvent", () -> kafkaTemplate.send(producerRecord)));
 
-        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, String>>() {
+        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, LibraryEvent>>() {
             @Override
             public void onFailure(Throwable ex) {
-                handleFailure(key, value, ex);
+                handleFailure(key, libraryEvent, ex);
             }
 
             @Override
-            public void onSuccess(SendResult<Integer, String> result) {
-                handleSuccess(key, value, result);
+            public void onSuccess(SendResult<Integer, LibraryEvent> result) {
+                handleSuccess(key, libraryEvent, result);
             }
         });
     }
 
     //Asynchronous Call with Producer Record
-    public ListenableFuture<SendResult<Integer, String>> sendLibraryEventWithProducerRecord(LibraryEvent libraryEvent) throws JsonProcessingException {
+    public ListenableFuture<SendResult<Integer, LibraryEvent>> sendLibraryEventWithProducerRecord(LibraryEvent libraryEvent) {
         Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
 
-        log.info("value "+value);
-        log.info("key "+String.valueOf(key));
+        ProducerRecord<Integer, LibraryEvent> producerRecord = buildProducerRecord(key, libraryEvent, topic,
+                partitionFor(kafkaTemplate, libraryEvent));
 
-        ProducerRecord<Integer, String> producerRecord = buildProducerRecord(key, value, topic);
+        ListenableFuture<SendResult<Integer, LibraryEvent>> listenableFuture = libraryEventAdmissionController.admit(
+                () -> libraryEventProducerMetrics.record("sendLibraryEventWithProducerRecord", () -> kafkaTemplate.send(producerRecord)));
 
-        ListenableFuture<SendResult<Integer, String>> listenableFuture = kafkaTemplate.send(producerRecord);
-
-        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, String>>() {
+        listenableFuture.addCallback(new ListenableFutureCallback<SendResult<Integer, LibraryEvent>>() {
             @Override
             public void onFailure(Throwable ex) {
-                handleFailure(key, value, ex);
+                handleFailure(key, libraryEvent, ex);
             }
 
             @Override
-            public void onSuccess(SendResult<Integer, String> result) {
-                handleSuccess(key, value, result);
+            public void onSuccess(SendResult<Integer, LibraryEvent> result) {
+                handleSuccess(key, libraryEvent, result);
             }
         });
 
         return listenableFuture;
     }
 
-    private ProducerRecord<Integer, String> buildProducerRecord(Integer key, String value, String topic) {
+    ProducerRecord<Integer, LibraryEvent> buildProducerRecord(Integer key, LibraryEvent value, String topic, Integer partition) {
+        return buildProducerRecord(key, value, topic, partition, System.currentTimeMillis(), LibraryEventHeaders.randomEventId());
+    }
+
+    //consumers route, time and deduplicate records on these headers without parsing the value
+    ProducerRecord<Integer, LibraryEvent> buildProducerRecord(Integer key, LibraryEvent value, String topic, Integer partition,
+                                                              long producedAt, UUID eventId) {
 
-        List<Header> recordHeaders = List.of( new RecordHeader("event-source","scanner".getBytes()));
+        List<Header> recordHeaders = LibraryEventHeaders.of(value.getLibraryEventType(), eventSource, producedAt, eventId);
 
-        return new ProducerRecord<>(topic, 0, key, value, recordHeaders);
+        return new ProducerRecord<>(topic, partition, key, value, recordHeaders);
     }
 
-    //Synchronous Call
-    public SendResult<Integer, String> sendLibraryEventSynchronous(LibraryEvent libraryEvent) throws
-            JsonProcessingException, ExecutionException, InterruptedException, TimeoutException, Exception {
-        Integer key = libraryEvent.getLibraryEventId();
-        String value = objectMapper.writeValueAsString(libraryEvent);
+    private Integer partitionFor(KafkaTemplate<Integer, LibraryEvent> template, LibraryEvent libraryEvent) {
+        //served from the producer's cached metadata once the topic is known
+        List<PartitionInfo> partitions = template.partitionsFor(topic);
+        if (partitions == null || partitions.isEmpty()) {
+            return null;
+        }
+        return libraryEventPartitioner.partition(libraryEvent, partitions.size());
+    }
 
-        SendResult<Integer, String> sendResult = null;
+    //Bulk Call: every event is sent before any acknowledgement is awaited, so the sends pipeline into producer batches
+    public BulkLibraryEventResult sendLibraryEventsBulk(Iterator<LibraryEvent> libraryEvents, LibraryEventType libraryEventType) {
 
+        List<BulkLibraryEventItemResult> items = new ArrayList<>();
+        List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures = new ArrayList<>();
+
+        if (!bulkKafkaTemplate.isTransactional()) {
+            sendBulkItems(libraryEvents, libraryEventType, items, futures);
+            //push out whatever is still lingering in the accumulator instead of waiting for linger.ms
+            bulkKafkaTemplate.flush();
+            return awaitBulkAcknowledgements(items, futures);
+        }
+
+        //with a transaction-id-prefix the sent events of a request are committed together, the commit flushes the sends
+        //and read_committed consumers never see part of an aborted request
         try {
-            sendResult = kafkaTemplate.sendDefault(key, value).get(1, TimeUnit.SECONDS);
-        } catch (ExecutionException | InterruptedException ex) {
-            log.error("ExecutionException/InterruptedException Sending the message and the exception is {}", ex.getMessage());
-        } catch (TimeoutException ex) {
-            log.error("TimeoutException Sending the message and the exception is {}", ex.getMessage());
-        } catch (Exception ex) {
-            log.error("Exception Sending the message and the exception is {}", ex.getMessage());
+            bulkKafkaTemplate.executeInTransaction(operations -> {
+                sendBulkItems(libraryEvents, libraryEventType, items, futures);
+                return null;
+            });
+        } catch (RuntimeException ex) {
+            log.error("Bulk transaction aborted : {}", ex.getMessage());
+            return abortedBulkResult(items, futures, ex);
         }
-        return sendResult;
+        return awaitBulkAcknowledgements(items, futures);
     }
 
+    private void sendBulkItems(Iterator<LibraryEvent> libraryEvents, LibraryEventType libraryEventType,
+                               List<BulkLibraryEventItemResult> items,
+                               List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures) {
+        for (int index = 0; ; index++) {
+            LibraryEvent libraryEvent;
+            try {
+                if (!libraryEvents.hasNext()) {
+                    break;
+                }
+                libraryEvent = libraryEvents.next();
+            } catch (RuntimeJsonMappingException ex) {
+                //a single malformed item, the reader resyncs to the next one
+                items.add(failedItem(index, null, ex.getMessage()));
+                futures.add(null);
+                continue;
+            } catch (RuntimeException ex) {
+                //the body itself is broken, nothing after this point can be read
+                log.error("Bulk body could not be read past item {} : {}", index, ex.getMessage());
+                items.add(failedItem(index, null, ex.getMessage()));
+                futures.add(null);
+                break;
+            }
+
+            String validationError = validateBulkItem(libraryEvent, libraryEventType);
+            if (validationError != null) {
+                items.add(failedItem(index, libraryEvent.getLibraryEventId(), validationError));
+                futures.add(null);
+                continue;
+            }
 
-    private void handleFailure(Integer key, String value, Throwable ex) {
-        log.error("Error Sending the message and the exception is {}", ex.getMessage());
+            libraryEvent.setLibraryEventType(libraryEventType);
+            try {
+                Integer key = libraryEvent.getLibraryEventId();
+                ProducerRecord<Integer, LibraryEvent> producerRecord = buildProducerRecord(key, libraryEvent, topic,
+                        partitionFor(bulkKafkaTemplate, libraryEvent));
+                futures.add(libraryEventAdmissionController.admitBulk(() -> libraryEventProducerMetrics.record(
+                        "sendLibraryEventsBulk", () -> bulkKafkaTemplate.send(producerRecord))));
+                items.add(BulkLibraryEventItemResult.builder()
+                        .index(index)
+                        .libraryEventId(key)
+                        .build());
+            } catch (Exception ex) {
+                items.add(failedItem(index, libraryEvent.getLibraryEventId(), ex.getMessage()));
+                futures.add(null);
+            }
+        }
+    }
+
+    //records acknowledged before the abort are not visible to read_committed consumers, so no item counts as accepted
+    private BulkLibraryEventResult abortedBulkResult(List<BulkLibraryEventItemResult> items,
+                                                     List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures,
+                                                     RuntimeException ex) {
+        for (int i = 0; i < items.size(); i++) {
+            if (futures.get(i) != null) {
+                items.get(i).setStatus(BulkLibraryEventItemStatus.FAILED);
+                items.get(i).setError("Transaction aborted : " + ex.getMessage());
+            }
+        }
+        return BulkLibraryEventResult.builder()
+                .accepted(0)
+                .failed(items.size())
+                .items(items)
+                .build();
+    }
+
+    private BulkLibraryEventResult awaitBulkAcknowledgements(List<BulkLibraryEventItemResult> items,
+                                                             List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures) {
+        long deadline = System.nanoTime() + bulkIngestProperties.getAckTimeout().toNanos();
+        int accepted = 0;
+
+        for (int i = 0; i < items.size(); i++) {
+            BulkLibraryEventItemResult item = items.get(i);
+            ListenableFuture<SendResult<Integer, LibraryEvent>> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                SendResult<Integer, LibraryEvent> sendResult = future.get(remaining, TimeUnit.NANOSECONDS);
+                item.setStatus(BulkLibraryEventItemStatus.ACCEPTED);
+                item.setPartition(sendResult.getRecordMetadata().partition());
+                item.setOffset(sendResult.getRecordMetadata().offset());
+                accepted++;
+            } catch (ExecutionException ex) {
+                item.setStatus(BulkLibraryEventItemStatus.FAILED);
+                item.setError(ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage());
+            } catch (TimeoutException ex) {
+                item.setStatus(BulkLibraryEventItemStatus.FAILED);
+                item.setError("No acknowledgement within " + bulkIngestProperties.getAckTimeout());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                item.setStatus(BulkLibraryEventItemStatus.FAILED);
+                item.setError("Interrupted while waiting for the acknowledgement");
+            }
+        }
+
+        log.info("Bulk request acknowledged, accepted : {} , failed : {}", accepted, items.size() - accepted);
+        return BulkLibraryEventResult.builder()
+                .accepted(accepted)
+                .failed(items.size() - accepted)
+                .items(items)
+                .build();
+    }
+
+    private String validateBulkItem(LibraryEvent libraryEvent, LibraryEventType libraryEventType) {
+        if (libraryEvent == null) {
+            return "Empty item";
+        }
+        if (libraryEventType == LibraryEventType.UPDATE && libraryEvent.getLibraryEventId() == null) {
+            return "Please pass the LibraryEventId";
+        }
+        Set<ConstraintViolation<LibraryEvent>> violations = validator.validate(libraryEvent);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " - " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private BulkLibraryEventItemResult failedItem(int index, Integer libraryEventId, String error) {
+        return BulkLibraryEventItemResult.builder()
+                .index(index)
+                .libraryEventId(libraryEventId)
+                .status(BulkLibraryEventItemStatus.FAILED)
+                .error(error)
+                .build();
+    }
+
+    //Outbox relay: journaled events go out on the bulk template, stamped with the time they were accepted. No admission
+    //control, the relay has one batch in flight at a time. With a transaction-id-prefix a batch is one transaction
+    public List<ListenableFuture<SendResult<Integer, LibraryEvent>>> relayLibraryEvents(List<LibraryEventJournal.Entry> entries) {
+
+        List<ListenableFuture<SendResult<Integer, LibraryEvent>>> futures = new ArrayList<>(entries.size());
+        if (!bulkKafkaTemplate.isTransactional()) {
+            entries.forEach(entry -> futures.add(relayLibraryEvent(entry)));
+            bulkKafkaTemplate.flush();
+            return futures;
+        }
+        bulkKafkaTemplate.executeInTransaction(operations -> {
+            entries.forEach(entry -> futures.add(relayLibraryEvent(entry)));
+            return null;
+        });
+        return futures;
+    }
+
+    //max.request.size of the producer relaying the outbox, the client rejects a larger record on every send
+    public int maxRelayRecordSize() {
+        Object maxRequestSize = bulkKafkaTemplate.getProducerFactory().getConfigurationProperties()
+                .get(ProducerConfig.MAX_REQUEST_SIZE_CONFIG);
+        return maxRequestSize == null ? DEFAULT_MAX_REQUEST_SIZE : Integer.parseInt(maxRequestSize.toString());
+    }
+
+    private ListenableFuture<SendResult<Integer, LibraryEvent>> relayLibraryEvent(LibraryEventJournal.Entry entry) {
+        LibraryEvent libraryEvent = entry.getLibraryEvent();
+        Integer key = libraryEvent.getLibraryEventId();
+        ProducerRecord<Integer, LibraryEvent> producerRecord = buildProducerRecord(key, libraryEvent, topic,
+                partitionFor(bulkKafkaTemplate, libraryEvent), entry.getProducedAt(), entry.getEventId());
+
+        ListenableFuture<SendResult<Integer, LibraryEvent>> listenableFuture;
         try {
-            throw ex;
-        } catch (Throwable throwable) {
-            log.error("Error in OnFailure: {}", throwable.getMessage());
+            listenableFuture = libraryEventProducerMetrics.record("relayLibraryEvents", () -> bulkKafkaTemplate.send(producerRecord));
+        } catch (KafkaException ex) {
+            //refused before it was sent, RecordTooLargeException for one: failed like an asynchronous send, so the relay
+            //decides what it means for this event only
+            SettableListenableFuture<SendResult<Integer, LibraryEvent>> failed = new SettableListenableFuture<>();
+            failed.setException(new KafkaProducerException(producerRecord, ex.getMessage(),
+                    ex.getCause() != null ? ex.getCause() : ex));
+            listenableFuture = failed;
         }
+        listenableFuture.addCallback(result -> handleSuccess(key, libraryEvent, result),
+                ex -> handleFailure(key, libraryEvent, ex));
+        return listenableFuture;
+    }
+
+    //Acknowledged Call: completes with the broker acknowledgement, or a TimeoutException after library-events.ack-timeout,
+    //without blocking the caller
+    public CompletableFuture<SendResult<Integer, LibraryEvent>> sendLibraryEventAcknowledged(LibraryEvent libraryEvent) {
+        return sendLibraryEventWithProducerRecord(libraryEvent)
+                .completable()
+                .orTimeout(ackTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    //Synchronous Call
+    public SendResult<Integer, LibraryEvent> sendLibraryEventSynchronous(LibraryEvent libraryEvent) throws
+            ExecutionException, InterruptedException, TimeoutException {
+        Integer key = libraryEvent.getLibraryEventId();
+
+        ProducerRecord<Integer, LibraryEvent> producerRecord = buildProducerRecord(key, libraryEvent, topic,
+                partitionFor(kafkaTemplate, libraryEvent));
+
+        return libraryEventAdmissionController.admit(() -> libraryEventProducerMetrics.record("sendLibraryEventSynchronous",
+                () -> kafkaTemplate.send(producerRecord))).get(1, TimeUnit.SECONDS);
+    }
+
+    private void handleFailure(Integer key, LibraryEvent value, Throwable ex) {
+        libraryEventAuditLogger.failed(key, value, ex);
     }
 
-    private void handleSuccess(Integer key, String value, SendResult<Integer, String> result) {
-        log.info("Message sent successfully for the key :{} and the value is {} , partition is {}", key, value, result.getRecordMetadata().partition());
+    private void handleSuccess(Integer key, LibraryEvent value, SendResult<Integer, LibraryEvent> result) {
+        libraryEventAuditLogger.sent(key, value, result.getRecordMetadata());
     }
 
 }
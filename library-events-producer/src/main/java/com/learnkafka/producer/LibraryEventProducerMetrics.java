@@ -0,0 +1,109 @@
+package com.learnkafka.producer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//Send-to-ack latency, failures and record sizes per LibraryEventProducer method.
+//The Kafka client's own producer metrics (record-queue-time, batch-size, compression-rate) are bound by actuator.
+@Component
+public class LibraryEventProducerMetrics {
+
+    static final String SEND_TIMER = "library.events.producer.send";
+    static final String SEND_FAILURES = "library.events.producer.send.failures";
+    static final String RECORD_SIZE = "library.events.producer.record.size";
+    static final String IN_FLIGHT = "library.events.producer.in.flight";
+
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final DistributionSummary recordSize;
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    public LibraryEventProducerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.recordSize = DistributionSummary.builder(RECORD_SIZE)
+                .description("Serialized key and value size of acknowledged records")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(IN_FLIGHT, inFlight, AtomicInteger::get)
+                .description("Sends waiting for an acknowledgement")
+                .register(meterRegistry);
+    }
+
+    //times the send from the call until the broker acknowledgement, failures thrown by the send call itself included
+    public <K, V> ListenableFuture<SendResult<K, V>> record(String method, Supplier<ListenableFuture<SendResult<K, V>>> send) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        inFlight.incrementAndGet();
+        ListenableFuture<SendResult<K, V>> future;
+        try {
+            future = send.get();
+        } catch (RuntimeException ex) {
+            failed(method, sample, ex);
+            throw ex;
+        }
+        future.addCallback(new ListenableFutureCallback<SendResult<K, V>>() {
+            @Override
+            public void onFailure(Throwable ex) {
+                failed(method, sample, ex);
+            }
+
+            @Override
+            public void onSuccess(SendResult<K, V> result) {
+                succeeded(method, sample, result);
+            }
+        });
+        return future;
+    }
+
+    private <K, V> void succeeded(String method, Timer.Sample sample, SendResult<K, V> result) {
+        inFlight.decrementAndGet();
+        sample.stop(successTimers.computeIfAbsent(method, m -> sendTimer(m, "success", "none")));
+        RecordMetadata recordMetadata = result != null ? result.getRecordMetadata() : null;
+        if (recordMetadata != null) {
+            //sizes are -1 for a null key or value
+            recordSize.record(Math.max(0, recordMetadata.serializedKeySize())
+                    + Math.max(0, recordMetadata.serializedValueSize()));
+        }
+    }
+
+    private void failed(String method, Timer.Sample sample, Throwable ex) {
+        inFlight.decrementAndGet();
+        String exception = exceptionName(ex);
+        sample.stop(sendTimer(method, "failure", exception));
+        Counter.builder(SEND_FAILURES)
+                .description("Sends that were not acknowledged")
+                .tag("method", method)
+                .tag("exception", exception)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer sendTimer(String method, String outcome, String exception) {
+        return Timer.builder(SEND_TIMER)
+                .description("Time from send until the broker acknowledgement")
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    //KafkaTemplate wraps client failures, the client exception (TimeoutException, RecordTooLargeException ...) is the useful tag
+    private static String exceptionName(Throwable ex) {
+        Throwable cause = ex instanceof KafkaProducerException && ex.getCause() != null ? ex.getCause() : ex;
+        return cause.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,20 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.LibraryEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Keyed events still hash on libraryEventId, only events without a key are spread round-robin
+public class RoundRobinLibraryEventPartitioner extends LibraryEventIdPartitioner {
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Integer partition(LibraryEvent libraryEvent, int numPartitions) {
+        Integer partition = super.partition(libraryEvent, numPartitions);
+        if (partition != null) {
+            return partition;
+        }
+        return (counter.getAndIncrement() & 0x7fffffff) % numPartitions;
+    }
+}
@@ -0,0 +1,38 @@
+package com.learnkafka.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class ProducerTuningProfileUnitTest {
+
+    @Test
+    void explicitSettingsWinOverTheProfile() {
+        //given
+        Map<String, Object> configs = Map.of(ProducerConfig.LINGER_MS_CONFIG, "5");
+
+        //when
+        Map<String, Object> defaults = ProducerTuningProfile.HIGH_THROUGHPUT.defaultsFor(configs);
+
+        //then
+        assertFalse(defaults.containsKey(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("lz4", defaults.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals(65_536, defaults.get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals(64 * 1024 * 1024L, defaults.get(ProducerConfig.BUFFER_MEMORY_CONFIG));
+    }
+
+    @Test
+    void tuningReport() {
+        //when
+        Map<String, Object> tuning = ProducerTuningProfile.tuningOf(Map.of(ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd"));
+
+        //then
+        assertEquals("zstd", tuning.get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+        assertEquals("default", tuning.get(ProducerConfig.LINGER_MS_CONFIG));
+        assertEquals("bulk-import", ProducerTuningProfile.BULK_IMPORT.displayName());
+    }
+}
@@ -2,8 +2,17 @@ package com.learnkafka.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.learnkafka.domain.Book;
+import com.learnkafka.domain.BulkLibraryEventItemResult;
+import com.learnkafka.domain.BulkLibraryEventItemStatus;
+import com.learnkafka.domain.BulkLibraryEventResult;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
 import com.learnkafka.producer.LibraryEventProducer;
+import com.learnkafka.producer.LibraryEventRejectedException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordTooLargeException;
 import org.junit.jupiter.api.Test;
 import org.mockito.internal.stubbing.answers.ThrowsException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,17 +20,29 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.when;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 @WebMvcTest(LibraryEventsController.class)
 @AutoConfigureMockMvc
+@TestPropertySource(properties = "library-events.admission.retry-after=5s")
 public class LibraryEventControllerUnitTest {
     @Autowired
     MockMvc mockMvc;
@@ -145,4 +166,148 @@ public class LibraryEventControllerUnitTest {
                 .andExpect(MockMvcResultMatchers.status().is4xxClientError())
                 .andExpect(MockMvcResultMatchers.content().string(expectErrorMessage));
     }
+
+    @Test
+    void postLibraryEventsBulk_ndjson() throws Exception {
+        //given
+        String ndjson = "{\"book\":{\"bookId\":1,\"bookName\":\"Kafka\",\"bookAuthor\":\"Itamar\"}}\n"
+                + "{\"book\":{\"bookId\":2,\"bookName\":\"Spring\",\"bookAuthor\":\"Itamar\"}}\n";
+
+        BulkLibraryEventResult result = BulkLibraryEventResult.builder()
+                .accepted(2)
+                .failed(0)
+                .items(List.of(
+                        BulkLibraryEventItemResult.builder().index(0).status(BulkLibraryEventItemStatus.ACCEPTED).partition(0).offset(0L).build(),
+                        BulkLibraryEventItemResult.builder().index(1).status(BulkLibraryEventItemStatus.ACCEPTED).partition(0).offset(1L).build()))
+                .build();
+
+        when(libraryEventProducer.sendLibraryEventsBulk(any(Iterator.class), eq(LibraryEventType.NEW))).thenReturn(result);
+
+        //expect
+        mockMvc.perform(MockMvcRequestBuilders.post("/v1/libraryevent/bulk")
+                .content(ndjson)
+                .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.accepted").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].offset").value(1));
+    }
+
+    @Test
+    void putLibraryEventsBulk_partialFailure() throws Exception {
+        //given
+        String json = "[{\"libraryEventId\":1,\"book\":{\"bookId\":1,\"bookName\":\"Kafka\",\"bookAuthor\":\"Itamar\"}},"
+                + "{\"libraryEventId\":null,\"book\":{\"bookId\":2,\"bookName\":\"Spring\",\"bookAuthor\":\"Itamar\"}}]";
+
+        BulkLibraryEventResult result = BulkLibraryEventResult.builder()
+                .accepted(1)
+                .failed(1)
+                .items(List.of(
+                        BulkLibraryEventItemResult.builder().index(0).status(BulkLibraryEventItemStatus.ACCEPTED).partition(0).offset(0L).build(),
+                        BulkLibraryEventItemResult.builder().index(1).status(BulkLibraryEventItemStatus.FAILED).error("Please pass the LibraryEventId").build()))
+                .build();
+
+        when(libraryEventProducer.sendLibraryEventsBulk(any(Iterator.class), eq(LibraryEventType.UPDATE))).thenReturn(result);
+
+        //expect
+        mockMvc.perform(MockMvcRequestBuilders.put("/v1/libraryevent/bulk")
+                .content(json)
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isMultiStatus())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items[1].error").value("Please pass the LibraryEventId"));
+    }
+
+    @Test
+    void postLibraryEvent_acknowledged() throws Exception {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        SendResult<Integer, LibraryEvent> sendResult = new SendResult<>(
+                new ProducerRecord<>("library-events", null, libraryEvent),
+                new RecordMetadata(new TopicPartition("library-events", 2), 7, 0, 0L, 0L, 0, 0));
+        when(libraryEventProducer.sendLibraryEventAcknowledged(isA(LibraryEvent.class)))
+                .thenReturn(CompletableFuture.completedFuture(sendResult));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/v1/libraryevent?ack=true")
+                .content(objectmapper.writeValueAsString(libraryEvent))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.partition").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.offset").value(7))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.libraryEvent.book.bookId").value(123));
+    }
+
+    @Test
+    void postLibraryEvent_acknowledged_timeout() throws Exception {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        when(libraryEventProducer.sendLibraryEventAcknowledged(isA(LibraryEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/v1/libraryevent?ack=true")
+                .content(objectmapper.writeValueAsString(libraryEvent))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "5"));
+    }
+
+    @Test
+    void updateLibraryEvent_acknowledged_failure() throws Exception {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        when(libraryEventProducer.sendLibraryEventAcknowledged(isA(LibraryEvent.class)))
+                .thenReturn(CompletableFuture.failedFuture(new KafkaProducerException(null, "Failed to send",
+                        new RecordTooLargeException("The message is too large"))));
+
+        //when
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.put("/v1/libraryevent?ack=true")
+                .content(objectmapper.writeValueAsString(libraryEvent))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isInternalServerError())
+                .andExpect(MockMvcResultMatchers.content().string("Error Sending the message : The message is too large"));
+    }
+
+    @Test
+    void postLibraryEvent_rejected() throws Exception {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        when(libraryEventProducer.sendLibraryEventWithProducerRecord(isA(LibraryEvent.class)))
+                .thenThrow(new LibraryEventRejectedException("Too many library events in flight (10000)"));
+
+        //expect
+        mockMvc.perform(MockMvcRequestBuilders.post("/v1/libraryevent")
+                .content(objectmapper.writeValueAsString(libraryEvent))
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "5"))
+                .andExpect(MockMvcResultMatchers.content().string("Too many library events in flight (10000)"));
+    }
 }
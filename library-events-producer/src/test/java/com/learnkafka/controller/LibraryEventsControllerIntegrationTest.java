@@ -1,7 +1,9 @@
 package com.learnkafka.controller;
 
 import com.learnkafka.domain.Book;
+import com.learnkafka.domain.BulkLibraryEventResult;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventAcknowledgement;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.serialization.IntegerDeserializer;
@@ -10,6 +12,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
@@ -19,11 +22,16 @@ import org.springframework.kafka.test.context.EmbeddedKafka;
 import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.test.context.TestPropertySource;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+@AutoConfigureMetrics
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @EmbeddedKafka(topics = {"library-events"}, partitions = 1)
 @TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
@@ -140,5 +148,86 @@ public class LibraryEventsControllerIntegrationTest {
 
     }
 
+    @Test
+    void postLibraryEvent_acknowledged() {
+        //given
+        Book book = Book.builder()
+                .bookId(424)
+                .bookAuthor("Itamar")
+                .bookName("Kafka using Sprint Boot")
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        //When
+        ResponseEntity<LibraryEventAcknowledgement> responseEntity = restTemplate.exchange("/v1/libraryevent?ack=true",
+                HttpMethod.POST,
+                new HttpEntity<>(LibraryEvent.builder().book(book).build(), headers),
+                LibraryEventAcknowledgement.class);
+
+        //Then
+        assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        assertEquals(0, responseEntity.getBody().getPartition());
+        assertTrue(responseEntity.getBody().getOffset() >= 0);
+        assertEquals(424, responseEntity.getBody().getLibraryEvent().getBook().getBookId());
+        KafkaTestUtils.getSingleRecord(consumer, "library-events");
+    }
+
+    @Test
+    void postLibraryEventsBulk() {
+        //given
+        String ndjson = "{\"book\":{\"bookId\":1,\"bookName\":\"Kafka\",\"bookAuthor\":\"Itamar\"}}\n"
+                + "{\"book\":{\"bookId\":null,\"bookName\":\"Broken\",\"bookAuthor\":\"Itamar\"}}\n"
+                + "{\"book\":{\"bookId\":3,\"bookName\":\"Spring\",\"bookAuthor\":\"Itamar\"}}\n";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+
+        //When
+        ResponseEntity<BulkLibraryEventResult> responseEntity = restTemplate.exchange("/v1/libraryevent/bulk",
+                HttpMethod.POST,
+                new HttpEntity<>(ndjson, headers),
+                BulkLibraryEventResult.class);
+
+        //Then
+        assertEquals(HttpStatus.MULTI_STATUS, responseEntity.getStatusCode());
+        assertEquals(2, responseEntity.getBody().getAccepted());
+        assertEquals("book.bookId - must not be null", responseEntity.getBody().getItems().get(1).getError());
+
+        List<ConsumerRecord<Integer, String>> records = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (records.size() < 2 && System.currentTimeMillis() < deadline) {
+            consumer.poll(Duration.ofMillis(500)).forEach(records::add);
+        }
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    void prometheusExposesProducerMetrics() {
+        //given
+        Book book = Book.builder()
+                .bookId(424)
+                .bookAuthor("Itamar")
+                .bookName("Kafka using Sprint Boot")
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        restTemplate.exchange("/v1/libraryevent", HttpMethod.POST,
+                new HttpEntity<>(LibraryEvent.builder().book(book).build(), headers), LibraryEvent.class);
+        KafkaTestUtils.getSingleRecord(consumer, "library-events");
+
+        //When
+        ResponseEntity<String> responseEntity = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        //Then
+        assertEquals(HttpStatus.OK, responseEntity.getStatusCode());
+        String scrape = responseEntity.getBody();
+        assertTrue(scrape.contains("library_events_producer_send_seconds_bucket"));
+        assertTrue(scrape.contains("library_events_producer_record_size_bytes_count"));
+        assertTrue(scrape.contains("library_events_producer_in_flight"));
+        assertTrue(scrape.contains("kafka_producer_record_queue_time_avg"));
+        assertTrue(scrape.contains("kafka_producer_batch_size_avg"));
+        assertTrue(scrape.contains("kafka_producer_compression_rate_avg"));
+    }
 
 }
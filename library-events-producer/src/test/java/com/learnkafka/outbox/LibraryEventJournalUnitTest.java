@@ -0,0 +1,183 @@
+package com.learnkafka.outbox;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LibraryEventJournalUnitTest {
+
+    static final int SEGMENT_SIZE = 4096;
+    static final int MAX_EVENT_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void unacknowledgedEntriesAreReadAgainAfterAReopen() throws IOException {
+        //given
+        LibraryEventJournal journal = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        for (int bookId = 1; bookId <= 5; bookId++) {
+            journal.append(libraryEvent(bookId), 1000L + bookId);
+        }
+        List<LibraryEventJournal.Entry> entries = journal.read(3);
+        journal.acknowledge(entries.get(2).getSequence());
+        List<LibraryEventJournal.Entry> unacknowledged = journal.read(10);
+        journal.close();
+
+        //when
+        LibraryEventJournal reopened = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        List<LibraryEventJournal.Entry> replayed = reopened.read(10);
+
+        //then
+        assertEquals(List.of(1L, 2L, 3L), sequences(entries));
+        assertEquals(List.of(4L, 5L), sequences(replayed));
+        assertEquals(1005L, replayed.get(1).getProducedAt());
+        assertEquals(libraryEvent(5), replayed.get(1).getLibraryEvent());
+        //an entry is sent again with the event id it had
+        assertEquals(eventIds(unacknowledged), eventIds(replayed));
+        assertNotEquals(replayed.get(0).getEventId(), replayed.get(1).getEventId());
+        assertEquals(2, reopened.backlog());
+        assertEquals(6L, reopened.append(libraryEvent(6), 1006L));
+    }
+
+    @Test
+    void tornEntryAtTheTailIsDiscarded() throws IOException {
+        //given
+        LibraryEventJournal journal = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        journal.append(libraryEvent(1), 1001L);
+        journal.append(libraryEvent(2), 1002L);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //flip a payload byte of the last entry, as if the crash hit it half written
+            ByteBuffer lastByte = ByteBuffer.allocate(1);
+            long position = lastEntryEnd(channel) - 1;
+            channel.read(lastByte, position);
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) (lastByte.get(0) ^ 0xFF)}), position);
+        }
+
+        //when
+        LibraryEventJournal reopened = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        List<LibraryEventJournal.Entry> entries = reopened.read(10);
+
+        //then
+        assertEquals(List.of(1L), sequences(entries));
+        assertEquals(2L, reopened.append(libraryEvent(3), 1003L));
+    }
+
+    @Test
+    void fullJournalRejectsAppendsUntilSegmentsAreAcknowledged() throws IOException {
+        //given
+        LibraryEventJournal journal = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 2, false);
+        long sequence;
+        int appended = 0;
+        while ((sequence = journal.append(libraryEvent(appended), 1000L)) > 0) {
+            appended++;
+        }
+
+        //when
+        List<LibraryEventJournal.Entry> entries = journal.read(appended);
+        journal.acknowledge(entries.get(entries.size() - 1).getSequence());
+
+        //then
+        assertEquals(-1, sequence);
+        assertEquals(appended, entries.size());
+        assertEquals(1, segments().size());
+        assertTrue(journal.append(libraryEvent(appended), 1000L) > 0);
+        assertEquals(1, journal.backlog());
+    }
+
+    @Test
+    void eventOverTheLimitIsRejected() throws IOException {
+        //given
+        LibraryEventJournal journal = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        LibraryEvent libraryEvent = libraryEvent(1);
+        libraryEvent.getBook().setBookName("K".repeat(MAX_EVENT_SIZE));
+
+        //when
+        assertThrows(IllegalArgumentException.class, () -> journal.append(libraryEvent, 1001L));
+
+        //then
+        assertEquals(0, journal.backlog());
+        assertEquals(1L, journal.append(libraryEvent(2), 1002L));
+    }
+
+    @Test
+    void entryThatDoesNotDecodeIsReadWithoutItsEvent() throws IOException {
+        //given
+        LibraryEventJournal journal = new LibraryEventJournal(directory, SEGMENT_SIZE, MAX_EVENT_SIZE, 4, false);
+        journal.append(libraryEvent(1), 1001L);
+        journal.append(libraryEvent(2), 1002L);
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //overwrite the magic byte of the first payload, behind length, crc, sequence and producedAt
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), Integer.BYTES * 2 + Long.BYTES * 2);
+        }
+
+        //when
+        List<LibraryEventJournal.Entry> entries = journal.read(10);
+
+        //then
+        assertEquals(List.of(1L, 2L), sequences(entries));
+        assertFalse(entries.get(0).isDecoded());
+        assertEquals(libraryEvent(2), entries.get(1).getLibraryEvent());
+    }
+
+    private LibraryEvent libraryEvent(int bookId) {
+        return LibraryEvent.builder()
+                .libraryEventId(bookId)
+                .libraryEventType(LibraryEventType.NEW)
+                .book(Book.builder()
+                        .bookId(bookId)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor("Itamar")
+                        .build())
+                .build();
+    }
+
+    private List<Long> sequences(List<LibraryEventJournal.Entry> entries) {
+        return entries.stream().map(LibraryEventJournal.Entry::getSequence).collect(Collectors.toList());
+    }
+
+    private List<UUID> eventIds(List<LibraryEventJournal.Entry> entries) {
+        return entries.stream().map(LibraryEventJournal.Entry::getEventId).collect(Collectors.toList());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    //walks the length fields
+    private long lastEntryEnd(FileChannel channel) throws IOException {
+        long position = 0;
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        while (true) {
+            length.clear();
+            channel.read(length, position);
+            int entryLength = length.getInt(0);
+            if (entryLength == 0) {
+                return position;
+            }
+            position += Integer.BYTES * 2 + entryLength;
+        }
+    }
+}
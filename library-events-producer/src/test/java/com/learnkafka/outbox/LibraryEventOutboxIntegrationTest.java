@@ -0,0 +1,160 @@
+package com.learnkafka.outbox;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.IntegerDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EmbeddedKafka(topics = {"library-events"}, partitions = 1)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "library-events.outbox.enabled=true",
+        "library-events.outbox.directory=${java.io.tmpdir}/library-events-outbox-${random.uuid}",
+        "library-events.outbox.segment-size=1MB",
+        //a 2000 character book name fits in the journal but not in a JSON record
+        "spring.kafka.producer.properties.max.request.size=2048"})
+public class LibraryEventOutboxIntegrationTest {
+
+    @Autowired
+    TestRestTemplate restTemplate;
+
+    @Autowired
+    EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private Consumer<Integer, String> consumer;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> configs = new HashMap<>(KafkaTestUtils.consumerProps("outbox", "true", embeddedKafkaBroker));
+        consumer = new DefaultKafkaConsumerFactory<>(configs, new IntegerDeserializer(),
+                new StringDeserializer()).createConsumer();
+        embeddedKafkaBroker.consumeFromAllEmbeddedTopics(consumer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void journaledEventIsRelayedToKafka() throws InterruptedException {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(null)
+                .book(Book.builder()
+                        .bookId(525)
+                        .bookAuthor("Itamar")
+                        .bookName("Kafka using Sprint Boot")
+                        .build())
+                .build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        long accepted = System.currentTimeMillis();
+
+        //when
+        ResponseEntity<LibraryEvent> responseEntity = restTemplate.exchange("/v1/libraryevent", HttpMethod.POST,
+                new HttpEntity<>(libraryEvent, headers), LibraryEvent.class);
+
+        //then
+        assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        ConsumerRecord<Integer, String> consumerRecord = KafkaTestUtils.getSingleRecord(consumer, "library-events");
+        assertEquals("{\"libraryEventId\":null,\"libraryEventType\":\"NEW\",\"book\":{\"bookId\":525,"
+                + "\"bookName\":\"Kafka using Sprint Boot\",\"bookAuthor\":\"Itamar\"}}", consumerRecord.value());
+        //stamped when the request was journaled, not when the relay sent it
+        long producedAt = LibraryEventHeaders.producedAt(consumerRecord.headers());
+        assertTrue(producedAt >= accepted && producedAt <= consumerRecord.timestamp());
+        awaitBacklog(0);
+    }
+
+    @Test
+    void eventOverMaxRequestSizeIsRefused() {
+        //given
+        LibraryEvent libraryEvent = libraryEvent(526, "K".repeat(4000));
+
+        //when
+        ResponseEntity<String> responseEntity = restTemplate.exchange("/v1/libraryevent", HttpMethod.POST,
+                new HttpEntity<>(libraryEvent, jsonHeaders()), String.class);
+
+        //then
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, responseEntity.getStatusCode());
+    }
+
+    @Test
+    void eventKafkaRejectsIsParkedAndTheNextOneIsRelayed() throws InterruptedException {
+        //given
+        double parked = meterRegistry.get(LibraryEventOutbox.PARKED).counter().count();
+        ResponseEntity<LibraryEvent> tooLarge = restTemplate.exchange("/v1/libraryevent", HttpMethod.POST,
+                new HttpEntity<>(libraryEvent(527, "K".repeat(2000)), jsonHeaders()), LibraryEvent.class);
+
+        //when
+        ResponseEntity<LibraryEvent> responseEntity = restTemplate.exchange("/v1/libraryevent", HttpMethod.POST,
+                new HttpEntity<>(libraryEvent(528, "Kafka using Sprint Boot"), jsonHeaders()), LibraryEvent.class);
+
+        //then
+        assertEquals(HttpStatus.CREATED, tooLarge.getStatusCode());
+        assertEquals(HttpStatus.CREATED, responseEntity.getStatusCode());
+        ConsumerRecord<Integer, String> consumerRecord = KafkaTestUtils.getSingleRecord(consumer, "library-events");
+        assertTrue(consumerRecord.value().contains("\"bookId\":528"));
+        awaitBacklog(0);
+        assertEquals(parked + 1, meterRegistry.get(LibraryEventOutbox.PARKED).counter().count());
+    }
+
+    private LibraryEvent libraryEvent(int bookId, String bookName) {
+        return LibraryEvent.builder()
+                .libraryEventId(null)
+                .book(Book.builder()
+                        .bookId(bookId)
+                        .bookAuthor("Itamar")
+                        .bookName(bookName)
+                        .build())
+                .build();
+    }
+
+    private HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+
+    //the journal is acknowledged after the send, shortly after the consumer saw the record
+    private void awaitBacklog(double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get(LibraryEventOutbox.BACKLOG).gauge().value() != expected) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("outbox backlog is " + meterRegistry.get(LibraryEventOutbox.BACKLOG).gauge().value());
+            }
+            Thread.sleep(50);
+        }
+    }
+}
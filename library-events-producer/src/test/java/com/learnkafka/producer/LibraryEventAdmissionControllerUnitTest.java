@@ -0,0 +1,76 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LibraryEventAdmissionControllerUnitTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    LibraryEventAdmissionController admissionController(int maxInFlight) {
+        AdmissionProperties admissionProperties = new AdmissionProperties();
+        admissionProperties.setMaxInFlight(maxInFlight);
+        admissionProperties.setBulkAcquireTimeout(Duration.ofMillis(20));
+        return new LibraryEventAdmissionController(admissionProperties, meterRegistry);
+    }
+
+    @Test
+    void rejectsWhenFullAndAdmitsAgainAfterAck() {
+        //given
+        LibraryEventAdmissionController admissionController = admissionController(2);
+        SettableListenableFuture<SendResult<Integer, String>> first = new SettableListenableFuture<>();
+        SettableListenableFuture<SendResult<Integer, String>> second = new SettableListenableFuture<>();
+
+        //when
+        admissionController.admit(() -> first);
+        admissionController.admit(() -> second);
+
+        //then
+        assertEquals(2, admissionController.inFlight());
+        assertEquals(2.0, meterRegistry.get(LibraryEventAdmissionController.IN_FLIGHT).gauge().value());
+        assertThrows(LibraryEventRejectedException.class,
+                () -> admissionController.admit(SettableListenableFuture<SendResult<Integer, String>>::new));
+        assertEquals(1.0, meterRegistry.get(LibraryEventAdmissionController.REJECTED).tag("path", "single").counter().count());
+
+        first.set(null);
+        second.setException(new RuntimeException("Exception Calling Kafka"));
+
+        assertEquals(0, admissionController.inFlight());
+        admissionController.admit(SettableListenableFuture<SendResult<Integer, String>>::new);
+        assertEquals(1, admissionController.inFlight());
+    }
+
+    @Test
+    void bulkWaitsThenRejects() {
+        //given
+        LibraryEventAdmissionController admissionController = admissionController(1);
+        admissionController.admit(SettableListenableFuture<SendResult<Integer, String>>::new);
+
+        //then
+        assertThrows(LibraryEventRejectedException.class,
+                () -> admissionController.admitBulk(SettableListenableFuture<SendResult<Integer, String>>::new));
+        assertEquals(1.0, meterRegistry.get(LibraryEventAdmissionController.REJECTED).tag("path", "bulk").counter().count());
+    }
+
+    @Test
+    void releasesWhenTheSendThrows() {
+        //given
+        LibraryEventAdmissionController admissionController = admissionController(1);
+
+        //when
+        assertThrows(IllegalStateException.class, () -> admissionController.admit(() -> {
+            throw new IllegalStateException("Producer closed");
+        }));
+
+        //then
+        assertEquals(0, admissionController.inFlight());
+    }
+}
@@ -0,0 +1,61 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LibraryEventPartitionerUnitTest {
+
+    IntegerSerializer integerSerializer = new IntegerSerializer();
+
+    @Test
+    void murmur2_matchesKafkaDefaultPartitioner() {
+        for (int key = -1000; key < 1000; key++) {
+            byte[] keyBytes = integerSerializer.serialize("library-events", key);
+            assertEquals(Utils.toPositive(Utils.murmur2(keyBytes)) % 6,
+                    LibraryEventPartitioner.partitionForKey(key, 6));
+        }
+    }
+
+    @Test
+    void libraryEventIdPartitioner_leavesUnkeyedEventsToTheClient() {
+        LibraryEventIdPartitioner partitioner = new LibraryEventIdPartitioner();
+
+        assertNull(partitioner.partition(libraryEvent(null, 1), 3));
+        assertEquals(partitioner.partition(libraryEvent(42, 1), 3), partitioner.partition(libraryEvent(42, 2), 3));
+    }
+
+    @Test
+    void bookIdPartitioner_hashesOnBookId() {
+        BookIdPartitioner partitioner = new BookIdPartitioner();
+
+        assertEquals(partitioner.partition(libraryEvent(null, 7), 3), partitioner.partition(libraryEvent(99, 7), 3));
+        assertNull(partitioner.partition(LibraryEvent.builder().build(), 3));
+    }
+
+    @Test
+    void roundRobinPartitioner_cyclesUnkeyedEvents() {
+        RoundRobinLibraryEventPartitioner partitioner = new RoundRobinLibraryEventPartitioner();
+
+        Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            partitions.add(partitioner.partition(libraryEvent(null, i), 3));
+        }
+        assertEquals(Set.of(0, 1, 2), partitions);
+    }
+
+    private LibraryEvent libraryEvent(Integer libraryEventId, Integer bookId) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .book(Book.builder().bookId(bookId).bookName("Kafka using Spring Boot").bookAuthor("Itamar").build())
+                .build();
+    }
+}
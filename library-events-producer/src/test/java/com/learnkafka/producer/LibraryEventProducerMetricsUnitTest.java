@@ -0,0 +1,70 @@
+package com.learnkafka.producer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaProducerException;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LibraryEventProducerMetricsUnitTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    LibraryEventProducerMetrics libraryEventProducerMetrics = new LibraryEventProducerMetrics(meterRegistry);
+
+    @Test
+    void acknowledgedSend() {
+        //given
+        SettableListenableFuture<SendResult<Integer, String>> future = new SettableListenableFuture<>();
+
+        //when
+        libraryEventProducerMetrics.record("sendLibraryEvent", () -> future);
+
+        //then
+        assertEquals(1.0, meterRegistry.get(LibraryEventProducerMetrics.IN_FLIGHT).gauge().value());
+
+        future.set(new SendResult<>(null, new RecordMetadata(
+                new TopicPartition("library-events", 0), 0, 0, 0L, 0L, 4, 120)));
+
+        assertEquals(0.0, meterRegistry.get(LibraryEventProducerMetrics.IN_FLIGHT).gauge().value());
+        assertEquals(1, meterRegistry.get(LibraryEventProducerMetrics.SEND_TIMER)
+                .tag("method", "sendLibraryEvent").tag("outcome", "success").timer().count());
+        assertEquals(124.0, meterRegistry.get(LibraryEventProducerMetrics.RECORD_SIZE).summary().totalAmount());
+    }
+
+    @Test
+    void failedSend() {
+        //given
+        SettableListenableFuture<SendResult<Integer, String>> future = new SettableListenableFuture<>();
+
+        //when
+        libraryEventProducerMetrics.record("sendLibraryEventWithProducerRecord", () -> future);
+        future.setException(new KafkaProducerException(null, "Failed to send", new TimeoutException("expired")));
+
+        //then
+        assertEquals(1.0, meterRegistry.get(LibraryEventProducerMetrics.SEND_FAILURES)
+                .tag("method", "sendLibraryEventWithProducerRecord").tag("exception", "TimeoutException").counter().count());
+        assertEquals(1, meterRegistry.get(LibraryEventProducerMetrics.SEND_TIMER)
+                .tag("outcome", "failure").timer().count());
+        assertEquals(0.0, meterRegistry.get(LibraryEventProducerMetrics.IN_FLIGHT).gauge().value());
+    }
+
+    @Test
+    void sendThrowing() {
+        //when
+        assertThrows(IllegalStateException.class, () -> libraryEventProducerMetrics.record("sendLibraryEvent", () -> {
+            throw new IllegalStateException("Producer closed");
+        }));
+
+        //then
+        assertEquals(1.0, meterRegistry.get(LibraryEventProducerMetrics.SEND_FAILURES)
+                .tag("exception", "IllegalStateException").counter().count());
+        assertEquals(0.0, meterRegistry.get(LibraryEventProducerMetrics.IN_FLIGHT).gauge().value());
+    }
+}
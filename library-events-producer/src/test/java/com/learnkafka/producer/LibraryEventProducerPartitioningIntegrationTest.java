@@ -0,0 +1,66 @@
+package com.learnkafka.producer;
+
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@EmbeddedKafka(topics = {"library-events"}, partitions = 3)
+@TestPropertySource(properties = {"spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.admin.properties.bootstrap.servers=${spring.embedded.kafka.brokers}",
+        "library-events.partitioner=library-event-id"})
+public class LibraryEventProducerPartitioningIntegrationTest {
+
+    @Autowired
+    LibraryEventProducer libraryEventProducer;
+
+    @Test
+    void keyedEventsSpreadAcrossPartitions() throws Exception {
+        Map<Integer, Integer> partitionByEventId = new HashMap<>();
+
+        for (int libraryEventId = 1; libraryEventId <= 30; libraryEventId++) {
+            SendResult<Integer, LibraryEvent> sendResult = libraryEventProducer
+                    .sendLibraryEventWithProducerRecord(libraryEvent(libraryEventId)).get();
+            partitionByEventId.put(libraryEventId, sendResult.getRecordMetadata().partition());
+        }
+
+        //every partition receives traffic
+        assertEquals(3, partitionByEventId.values().stream().distinct().count());
+
+        //and a given libraryEventId always lands on the same partition
+        for (int libraryEventId = 1; libraryEventId <= 30; libraryEventId++) {
+            SendResult<Integer, LibraryEvent> sendResult = libraryEventProducer
+                    .sendLibraryEventWithProducerRecord(libraryEvent(libraryEventId)).get();
+            assertEquals(partitionByEventId.get(libraryEventId), sendResult.getRecordMetadata().partition());
+        }
+    }
+
+    @Test
+    void unkeyedEventsAreAccepted() throws Exception {
+        LibraryEvent libraryEvent = libraryEvent(null);
+
+        SendResult<Integer, LibraryEvent> sendResult = libraryEventProducer.sendLibraryEventWithProducerRecord(libraryEvent).get();
+
+        assertTrue(sendResult.getRecordMetadata().partition() >= 0);
+    }
+
+    private LibraryEvent libraryEvent(Integer libraryEventId) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder().bookId(424).bookName("Kafka using Spring Boot").bookAuthor("Itamar").build())
+                .build();
+    }
+}
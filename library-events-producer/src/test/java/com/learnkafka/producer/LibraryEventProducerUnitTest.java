@@ -2,26 +2,48 @@ package com.learnkafka.producer;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.config.AdmissionProperties;
+import com.learnkafka.config.BulkIngestProperties;
+import com.learnkafka.config.LibraryEventAuditProperties;
 import com.learnkafka.domain.Book;
+import com.learnkafka.domain.BulkLibraryEventItemStatus;
+import com.learnkafka.domain.BulkLibraryEventResult;
 import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventHeaders;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.SettableListenableFuture;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.List;
+import java.time.Duration;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
 
 
@@ -29,11 +51,30 @@ import static org.mockito.ArgumentMatchers.isA;
 public class LibraryEventProducerUnitTest {
 
     @Mock
-    KafkaTemplate<Integer, String> kafkaTemplate;
+    KafkaTemplate<Integer, LibraryEvent> kafkaTemplate;
+
+    @Mock
+    KafkaTemplate<Integer, LibraryEvent> bulkKafkaTemplate;
 
     @Spy
     ObjectMapper objectMapper = new ObjectMapper();
 
+    @Spy
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    BulkIngestProperties bulkIngestProperties = new BulkIngestProperties();
+
+    @Spy
+    LibraryEventProducerMetrics libraryEventProducerMetrics = new LibraryEventProducerMetrics(new SimpleMeterRegistry());
+
+    @Spy
+    LibraryEventAuditLogger libraryEventAuditLogger = new LibraryEventAuditLogger(new LibraryEventAuditProperties());
+
+    @Spy
+    LibraryEventAdmissionController libraryEventAdmissionController =
+            new LibraryEventAdmissionController(new AdmissionProperties(), new SimpleMeterRegistry());
+
     @InjectMocks
     LibraryEventProducer eventProducer;
 
@@ -75,27 +116,171 @@ public class LibraryEventProducerUnitTest {
                 .book(book)
                 .build();
 
-        String record = objectMapper.writeValueAsString(libraryEvent);
-
-        SettableListenableFuture<SendResult<Integer, String>> future = new SettableListenableFuture<>();
+        SettableListenableFuture<SendResult<Integer, LibraryEvent>> future = new SettableListenableFuture<>();
 
-        ProducerRecord<Integer, String> producerRecord =
-                new ProducerRecord<>("library-events", libraryEvent.getLibraryEventId(), record);
+        ProducerRecord<Integer, LibraryEvent> producerRecord =
+                new ProducerRecord<>("library-events", libraryEvent.getLibraryEventId(), libraryEvent);
 
         RecordMetadata recordMetadata = new RecordMetadata(
                 new TopicPartition("library-events", 1),
                 1, 1,342,System.currentTimeMillis(),1,2);
 
-        SendResult<Integer, String> sendResult = new SendResult<Integer, String>(producerRecord, recordMetadata);
+        SendResult<Integer, LibraryEvent> sendResult = new SendResult<Integer, LibraryEvent>(producerRecord, recordMetadata);
 
         future.set(sendResult);
 
         when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(future);
 
-        ListenableFuture<SendResult<Integer,String>> listenableFuture = eventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
-        SendResult<Integer, String> sendResult1 = listenableFuture.get();
+        ListenableFuture<SendResult<Integer,LibraryEvent>> listenableFuture = eventProducer.sendLibraryEventWithProducerRecord(libraryEvent);
+        SendResult<Integer, LibraryEvent> sendResult1 = listenableFuture.get();
 
         assert sendResult1.getRecordMetadata().partition()==1;
     }
 
+    @Test
+    void buildProducerRecord_addsEventHeaders() {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+        long before = System.currentTimeMillis();
+
+        //when
+        ProducerRecord<Integer, LibraryEvent> producerRecord = eventProducer.buildProducerRecord(123, libraryEvent, "library-events", 1);
+
+        //then
+        assertEquals(LibraryEventType.UPDATE, LibraryEventHeaders.eventType(producerRecord.headers()));
+        assertEquals(LibraryEventHeaders.CURRENT_SCHEMA_VERSION, LibraryEventHeaders.schemaVersion(producerRecord.headers()));
+        assertEquals("scanner", LibraryEventHeaders.eventSource(producerRecord.headers()));
+        assertTrue(LibraryEventHeaders.producedAt(producerRecord.headers()) >= before);
+    }
+
+    @Test
+    void sendLibraryEventsBulk_reportsEveryItem() {
+        //given
+        LibraryEvent valid = LibraryEvent.builder()
+                .book(Book.builder().bookId(1).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+        LibraryEvent invalid = LibraryEvent.builder()
+                .book(Book.builder().bookId(null).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+        LibraryEvent rejected = LibraryEvent.builder()
+                .book(Book.builder().bookId(3).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        SettableListenableFuture<SendResult<Integer, LibraryEvent>> acknowledged = new SettableListenableFuture<>();
+        acknowledged.set(new SendResult<>(null, new RecordMetadata(
+                new TopicPartition("library-events", 2), 10, 0, 0, 0L, 0, 0)));
+        SettableListenableFuture<SendResult<Integer, LibraryEvent>> failed = new SettableListenableFuture<>();
+        failed.setException(new RuntimeException("Exception Calling Kafka"));
+
+        when(bulkKafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(acknowledged, failed);
+
+        //when
+        BulkLibraryEventResult result = eventProducer.sendLibraryEventsBulk(
+                List.of(valid, invalid, rejected).iterator(), LibraryEventType.NEW);
+
+        //then
+        verify(bulkKafkaTemplate, times(2)).send(isA(ProducerRecord.class));
+        verify(bulkKafkaTemplate).flush();
+        assertEquals(1, result.getAccepted());
+        assertEquals(2, result.getFailed());
+        assertEquals(BulkLibraryEventItemStatus.ACCEPTED, result.getItems().get(0).getStatus());
+        assertEquals(2, result.getItems().get(0).getPartition());
+        assertEquals(10L, result.getItems().get(0).getOffset());
+        assertEquals("book.bookId - must not be null", result.getItems().get(1).getError());
+        assertEquals("Exception Calling Kafka", result.getItems().get(2).getError());
+    }
+
+    @Test
+    void sendLibraryEventsBulk_transactionAborted() {
+        //given
+        LibraryEvent valid = LibraryEvent.builder()
+                .book(Book.builder().bookId(1).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+        LibraryEvent invalid = LibraryEvent.builder()
+                .book(Book.builder().bookId(null).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        SettableListenableFuture<SendResult<Integer, LibraryEvent>> acknowledged = new SettableListenableFuture<>();
+        acknowledged.set(new SendResult<>(null, new RecordMetadata(
+                new TopicPartition("library-events", 2), 10, 0, 0, 0L, 0, 0)));
+
+        when(bulkKafkaTemplate.isTransactional()).thenReturn(true);
+        when(bulkKafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(acknowledged);
+        when(bulkKafkaTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            invocation.<KafkaOperations.OperationsCallback<Integer, LibraryEvent, Object>>getArgument(0)
+                    .doInOperations(bulkKafkaTemplate);
+            throw new KafkaException("Commit failed");
+        });
+
+        //when
+        BulkLibraryEventResult result = eventProducer.sendLibraryEventsBulk(
+                List.of(valid, invalid).iterator(), LibraryEventType.NEW);
+
+        //then
+        verify(bulkKafkaTemplate, never()).flush();
+        assertEquals(0, result.getAccepted());
+        assertEquals(2, result.getFailed());
+        assertEquals(BulkLibraryEventItemStatus.FAILED, result.getItems().get(0).getStatus());
+        assertEquals("Transaction aborted : Commit failed", result.getItems().get(0).getError());
+        assertEquals("book.bookId - must not be null", result.getItems().get(1).getError());
+    }
+
+    @Test
+    void sendLibraryEventSynchronous_failure() {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        SettableListenableFuture<SendResult<Integer, LibraryEvent>> future = new SettableListenableFuture<>();
+        future.setException(new RuntimeException("Exception Calling Kafka"));
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(future);
+
+        //then
+        assertThrows(ExecutionException.class, () -> eventProducer.sendLibraryEventSynchronous(libraryEvent));
+    }
+
+    @Test
+    void sendLibraryEvent_addsEventHeaders() {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .libraryEventType(LibraryEventType.UPDATE)
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+        ArgumentCaptor<ProducerRecord<Integer, LibraryEvent>> producerRecord = ArgumentCaptor.forClass(ProducerRecord.class);
+        when(kafkaTemplate.send(producerRecord.capture())).thenReturn(new SettableListenableFuture<>());
+
+        //when
+        eventProducer.sendLibraryEvent(libraryEvent);
+
+        //then
+        assertEquals("library-events", producerRecord.getValue().topic());
+        assertEquals(LibraryEventType.UPDATE, LibraryEventHeaders.eventType(producerRecord.getValue().headers()));
+        assertEquals("scanner", LibraryEventHeaders.eventSource(producerRecord.getValue().headers()));
+    }
+
+    @Test
+    void sendLibraryEventAcknowledged_timeout() {
+        //given
+        LibraryEvent libraryEvent = LibraryEvent.builder()
+                .libraryEventId(123)
+                .book(Book.builder().bookId(123).bookAuthor("Itamar").bookName("Kafka using Spring Boot").build())
+                .build();
+
+        when(kafkaTemplate.send(isA(ProducerRecord.class))).thenReturn(new SettableListenableFuture<>());
+        eventProducer.ackTimeout = Duration.ofMillis(50);
+
+        //when
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> eventProducer.sendLibraryEventAcknowledged(libraryEvent).get());
+
+        //then
+        assertTrue(ex.getCause() instanceof TimeoutException);
+    }
 }
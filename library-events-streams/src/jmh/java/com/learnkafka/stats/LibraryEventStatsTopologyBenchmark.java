@@ -0,0 +1,100 @@
+package com.learnkafka.stats;
+
+import com.learnkafka.config.LibraryEventStatsProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventBinaryFormat;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+//Events per second through the whole topology on one thread: deserialization, both repartitions and the four
+//RocksDB aggregates, no broker involved. TopologyTestDriver commits after every record, which flushes every store,
+//so the score is a floor for comparing topology and serde changes. A stream thread commits every commit.interval.ms.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class LibraryEventStatsTopologyBenchmark {
+
+    private static final int BATCH = 100;
+    private static final int EVENTS = 10_000;
+
+    //distinct authors, the number of keys in the author stores
+    @Param({"10", "10000"})
+    public int authors;
+
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<Integer, byte[]> libraryEvents;
+    private Path stateDir;
+    private byte[][] values;
+    private int next;
+    private Instant timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        LibraryEventStatsProperties properties = new LibraryEventStatsProperties();
+        StreamsBuilder streamsBuilder = new StreamsBuilder();
+        new LibraryEventStatsTopology(properties).build(streamsBuilder);
+
+        stateDir = Files.createTempDirectory("library-events-stats-benchmark");
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "library-events-stats-benchmark");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.STATE_DIR_CONFIG, stateDir.toString());
+        timestamp = Instant.parse("2021-06-01T10:00:00Z");
+        testDriver = new TopologyTestDriver(streamsBuilder.build(), config, timestamp);
+        libraryEvents = testDriver.createInputTopic(properties.getTopic(), new IntegerSerializer(),
+                new ByteArraySerializer());
+
+        values = new byte[EVENTS][];
+        for (int i = 0; i < EVENTS; i++) {
+            values[i] = LibraryEventBinaryFormat.encode(LibraryEvent.builder()
+                    .libraryEventId(i)
+                    .libraryEventType(i % 4 == 0 ? LibraryEventType.NEW : LibraryEventType.UPDATE)
+                    .book(Book.builder()
+                            .bookId(i % (authors * 2))
+                            .bookName("Kafka Using Spring Boot")
+                            .bookAuthor("author-" + (i % authors))
+                            .build())
+                    .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        testDriver.close();
+    }
+
+    //one batch a second of event time, so the windowed stores keep rolling over like they do in production
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void pipe() {
+        for (int i = 0; i < BATCH; i++) {
+            libraryEvents.pipeInput(next, values[next], timestamp);
+            next = (next + 1) % EVENTS;
+        }
+        timestamp = timestamp.plus(Duration.ofSeconds(1));
+    }
+}
@@ -0,0 +1,13 @@
+package com.learnkafka;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LibraryEventsStreamsApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(LibraryEventsStreamsApplication.class, args);
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.learnkafka.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "library-events.stats")
+@Data
+public class LibraryEventStatsProperties {
+
+    private String topic = "library-events";
+
+    //Tumbling windows of the windowed counts, by event time (the record timestamp)
+    private Duration windowSize = Duration.ofMinutes(1);
+
+    //How late a record may arrive and still be counted in its window
+    private Duration windowGrace = Duration.ofSeconds(30);
+
+    //How long closed windows stay queryable, at least windowSize + windowGrace
+    private Duration windowRetention = Duration.ofHours(24);
+}
@@ -0,0 +1,13 @@
+package com.learnkafka.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.annotation.EnableKafkaStreams;
+
+//spring.kafka.streams.* is turned into the KafkaStreams configuration by Spring Boot,
+//the topology is added by LibraryEventStatsTopology
+@Configuration
+@EnableKafkaStreams
+@EnableConfigurationProperties(LibraryEventStatsProperties.class)
+public class LibraryEventsStreamsConfig {
+}
@@ -0,0 +1,75 @@
+package com.learnkafka.controller;
+
+import com.learnkafka.domain.LibraryEventCounts;
+import com.learnkafka.domain.WindowedLibraryEventCounts;
+import com.learnkafka.stats.LibraryEventStatsQueries;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+//Windows default to the last hour, from/to are ISO-8601 instants
+@RestController
+@Slf4j
+public class LibraryEventStatsController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofHours(1);
+
+    @Autowired
+    LibraryEventStatsQueries libraryEventStatsQueries;
+
+    @GetMapping("/v1/stats/authors")
+    public Map<String, LibraryEventCounts> getAuthorCounts() {
+        return libraryEventStatsQueries.authorCounts();
+    }
+
+    @GetMapping("/v1/stats/authors/{author}")
+    public ResponseEntity<LibraryEventCounts> getAuthorCounts(@PathVariable String author) {
+        return ResponseEntity.of(libraryEventStatsQueries.authorCounts(author));
+    }
+
+    @GetMapping("/v1/stats/authors/{author}/windows")
+    public List<WindowedLibraryEventCounts> getAuthorWindows(
+            @PathVariable String author,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        return libraryEventStatsQueries.authorWindows(author, from != null ? from : end.minus(DEFAULT_RANGE), end);
+    }
+
+    @GetMapping("/v1/stats/books/{bookId}")
+    public ResponseEntity<LibraryEventCounts> getBookCounts(@PathVariable Integer bookId) {
+        return ResponseEntity.of(libraryEventStatsQueries.bookCounts(bookId));
+    }
+
+    @GetMapping("/v1/stats/books/{bookId}/windows")
+    public List<WindowedLibraryEventCounts> getBookWindows(
+            @PathVariable Integer bookId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        Instant end = to != null ? to : Instant.now();
+        return libraryEventStatsQueries.bookWindows(bookId, from != null ? from : end.minus(DEFAULT_RANGE), end);
+    }
+
+    //stores are not queryable while the application starts or partitions move in a rebalance
+    @ExceptionHandler(InvalidStateStoreException.class)
+    public ResponseEntity<String> handleStoreUnavailable(InvalidStateStoreException ex) {
+        log.debug("State store unavailable : {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ex.getMessage());
+    }
+}
@@ -0,0 +1,24 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class LibraryEventCounts {
+    private long newEvents;
+    private long updateEvents;
+
+    public LibraryEventCounts add(LibraryEventType libraryEventType) {
+        if (libraryEventType == LibraryEventType.NEW) {
+            newEvents++;
+        } else if (libraryEventType == LibraryEventType.UPDATE) {
+            updateEvents++;
+        }
+        return this;
+    }
+}
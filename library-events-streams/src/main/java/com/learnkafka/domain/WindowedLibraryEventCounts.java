@@ -0,0 +1,18 @@
+package com.learnkafka.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class WindowedLibraryEventCounts {
+    private Instant windowStart;
+    private Instant windowEnd;
+    private LibraryEventCounts counts;
+}
@@ -0,0 +1,37 @@
+package com.learnkafka.serde;
+
+import com.learnkafka.domain.LibraryEventCounts;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+
+//Two longs, every aggregate update reads and writes one of these through RocksDB and the changelog
+public class LibraryEventCountsSerde implements Serde<LibraryEventCounts> {
+
+    private static final int SIZE = 2 * Long.BYTES;
+
+    @Override
+    public Serializer<LibraryEventCounts> serializer() {
+        return (topic, counts) -> counts == null ? null : ByteBuffer.allocate(SIZE)
+                .putLong(counts.getNewEvents())
+                .putLong(counts.getUpdateEvents())
+                .array();
+    }
+
+    @Override
+    public Deserializer<LibraryEventCounts> deserializer() {
+        return (topic, data) -> {
+            if (data == null) {
+                return null;
+            }
+            if (data.length != SIZE) {
+                throw new SerializationException("LibraryEventCounts are " + SIZE + " bytes, got " + data.length);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            return new LibraryEventCounts(buffer.getLong(), buffer.getLong());
+        };
+    }
+}
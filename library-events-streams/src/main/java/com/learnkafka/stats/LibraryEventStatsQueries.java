@@ -0,0 +1,102 @@
+package com.learnkafka.stats;
+
+import com.learnkafka.config.LibraryEventStatsProperties;
+import com.learnkafka.domain.LibraryEventCounts;
+import com.learnkafka.domain.WindowedLibraryEventCounts;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.springframework.kafka.config.StreamsBuilderFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+//Interactive queries against the local state stores. Every instance holds the keys of its own partitions,
+//run one instance (or route by KafkaStreams#queryMetadataForKey) to see all keys.
+//InvalidStateStoreException means the stores are not ready yet or migrating in a rebalance.
+@Component
+public class LibraryEventStatsQueries {
+
+    private final StreamsBuilderFactoryBean streamsBuilderFactoryBean;
+    private final LibraryEventStatsProperties properties;
+
+    public LibraryEventStatsQueries(StreamsBuilderFactoryBean streamsBuilderFactoryBean,
+                                    LibraryEventStatsProperties properties) {
+        this.streamsBuilderFactoryBean = streamsBuilderFactoryBean;
+        this.properties = properties;
+    }
+
+    public Map<String, LibraryEventCounts> authorCounts() {
+        return all(this.<String>countsStore(LibraryEventStatsTopology.AUTHOR_COUNTS));
+    }
+
+    public Optional<LibraryEventCounts> authorCounts(String author) {
+        return Optional.ofNullable(this.<String>countsStore(LibraryEventStatsTopology.AUTHOR_COUNTS).get(author));
+    }
+
+    public List<WindowedLibraryEventCounts> authorWindows(String author, Instant from, Instant to) {
+        return windows(this.<String>windowedCountsStore(LibraryEventStatsTopology.AUTHOR_WINDOWED_COUNTS), author, from, to);
+    }
+
+    public Optional<LibraryEventCounts> bookCounts(Integer bookId) {
+        return Optional.ofNullable(this.<Integer>countsStore(LibraryEventStatsTopology.BOOK_COUNTS).get(bookId));
+    }
+
+    public List<WindowedLibraryEventCounts> bookWindows(Integer bookId, Instant from, Instant to) {
+        return windows(this.<Integer>windowedCountsStore(LibraryEventStatsTopology.BOOK_WINDOWED_COUNTS), bookId, from, to);
+    }
+
+    private <K> Map<K, LibraryEventCounts> all(ReadOnlyKeyValueStore<K, LibraryEventCounts> store) {
+        Map<K, LibraryEventCounts> counts = new LinkedHashMap<>();
+        try (KeyValueIterator<K, LibraryEventCounts> iterator = store.all()) {
+            iterator.forEachRemaining(entry -> counts.put(entry.key, entry.value));
+        }
+        return counts;
+    }
+
+    private <K> List<WindowedLibraryEventCounts> windows(ReadOnlyWindowStore<K, LibraryEventCounts> store, K key,
+                                                         Instant from, Instant to) {
+        List<WindowedLibraryEventCounts> windows = new ArrayList<>();
+        try (WindowStoreIterator<LibraryEventCounts> iterator = store.fetch(key, from, to)) {
+            while (iterator.hasNext()) {
+                KeyValue<Long, LibraryEventCounts> window = iterator.next();
+                Instant windowStart = Instant.ofEpochMilli(window.key);
+                windows.add(WindowedLibraryEventCounts.builder()
+                        .windowStart(windowStart)
+                        .windowEnd(windowStart.plus(properties.getWindowSize()))
+                        .counts(window.value)
+                        .build());
+            }
+        }
+        return windows;
+    }
+
+    private <K> ReadOnlyKeyValueStore<K, LibraryEventCounts> countsStore(String storeName) {
+        return kafkaStreams().store(StoreQueryParameters.fromNameAndType(storeName,
+                QueryableStoreTypes.<K, LibraryEventCounts>keyValueStore()));
+    }
+
+    private <K> ReadOnlyWindowStore<K, LibraryEventCounts> windowedCountsStore(String storeName) {
+        return kafkaStreams().store(StoreQueryParameters.fromNameAndType(storeName,
+                QueryableStoreTypes.<K, LibraryEventCounts>windowStore()));
+    }
+
+    private KafkaStreams kafkaStreams() {
+        KafkaStreams kafkaStreams = streamsBuilderFactoryBean.getKafkaStreams();
+        if (kafkaStreams == null) {
+            throw new InvalidStateStoreException("KafkaStreams is not started");
+        }
+        return kafkaStreams;
+    }
+}
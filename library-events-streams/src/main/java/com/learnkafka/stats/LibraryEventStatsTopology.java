@@ -0,0 +1,89 @@
+package com.learnkafka.stats;
+
+import com.learnkafka.config.LibraryEventStatsProperties;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventCounts;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventBinarySerializer;
+import com.learnkafka.serde.LibraryEventCountsSerde;
+import com.learnkafka.serde.LibraryEventDeserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.apache.kafka.streams.kstream.Grouped;
+import org.apache.kafka.streams.kstream.KGroupedStream;
+import org.apache.kafka.streams.kstream.KStream;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.kstream.Named;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.kstream.TimeWindows;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+//NEW and UPDATE counts per author and per book over library-events, in total and per tumbling window.
+//Every aggregate is a RocksDB store backed by a changelog topic. Events are re-keyed by author and by bookId
+//through a repartition topic that only carries the event type, the LibraryEvent itself is never written back.
+@Component
+public class LibraryEventStatsTopology {
+
+    public static final String AUTHOR_COUNTS = "author-event-counts";
+    public static final String AUTHOR_WINDOWED_COUNTS = "author-event-counts-windowed";
+    public static final String BOOK_COUNTS = "book-event-counts";
+    public static final String BOOK_WINDOWED_COUNTS = "book-event-counts-windowed";
+
+    private static final Serde<LibraryEvent> LIBRARY_EVENT_SERDE = Serdes.serdeFrom(
+            new LibraryEventBinarySerializer(), new LibraryEventDeserializer());
+    private static final Serde<LibraryEventCounts> COUNTS_SERDE = new LibraryEventCountsSerde();
+
+    private final LibraryEventStatsProperties properties;
+
+    public LibraryEventStatsTopology(LibraryEventStatsProperties properties) {
+        this.properties = properties;
+    }
+
+    @Autowired
+    public void build(StreamsBuilder streamsBuilder) {
+        KStream<Integer, LibraryEvent> libraryEvents = streamsBuilder
+                .stream(properties.getTopic(), Consumed.with(Serdes.Integer(), LIBRARY_EVENT_SERDE))
+                .filter((key, libraryEvent) -> isCountable(libraryEvent), Named.as("countable-library-events"));
+
+        aggregate(libraryEvents
+                        .filter((key, libraryEvent) -> libraryEvent.getBook().getBookAuthor() != null)
+                        .map((key, libraryEvent) -> KeyValue.pair(libraryEvent.getBook().getBookAuthor(),
+                                libraryEvent.getLibraryEventType().name()))
+                        .repartition(Repartitioned.with(Serdes.String(), Serdes.String()).withName("events-by-author")),
+                Serdes.String(), AUTHOR_COUNTS, AUTHOR_WINDOWED_COUNTS);
+        aggregate(libraryEvents
+                        .map((key, libraryEvent) -> KeyValue.pair(libraryEvent.getBook().getBookId(),
+                                libraryEvent.getLibraryEventType().name()))
+                        .repartition(Repartitioned.with(Serdes.Integer(), Serdes.String()).withName("events-by-book")),
+                Serdes.Integer(), BOOK_COUNTS, BOOK_WINDOWED_COUNTS);
+    }
+
+    private <K> void aggregate(KStream<K, String> eventTypes, Serde<K> keySerde, String countsStore,
+                               String windowedCountsStore) {
+        KGroupedStream<K, String> grouped = eventTypes.groupByKey(Grouped.with(keySerde, Serdes.String()));
+        grouped.aggregate(LibraryEventCounts::new,
+                (key, eventType, counts) -> counts.add(LibraryEventType.valueOf(eventType)),
+                Materialized.<K, LibraryEventCounts, KeyValueStore<Bytes, byte[]>>as(countsStore)
+                        .withKeySerde(keySerde)
+                        .withValueSerde(COUNTS_SERDE));
+        grouped.windowedBy(TimeWindows.of(properties.getWindowSize()).grace(properties.getWindowGrace()))
+                .aggregate(LibraryEventCounts::new,
+                        (key, eventType, counts) -> counts.add(LibraryEventType.valueOf(eventType)),
+                        Materialized.<K, LibraryEventCounts, WindowStore<Bytes, byte[]>>as(windowedCountsStore)
+                                .withKeySerde(keySerde)
+                                .withValueSerde(COUNTS_SERDE)
+                                .withRetention(properties.getWindowRetention()));
+    }
+
+    private static boolean isCountable(LibraryEvent libraryEvent) {
+        return libraryEvent != null && libraryEvent.getLibraryEventType() != null
+                && libraryEvent.getBook() != null && libraryEvent.getBook().getBookId() != null;
+    }
+}
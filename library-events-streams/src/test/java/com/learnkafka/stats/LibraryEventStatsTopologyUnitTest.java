@@ -0,0 +1,136 @@
+package com.learnkafka.stats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.learnkafka.config.LibraryEventStatsProperties;
+import com.learnkafka.domain.Book;
+import com.learnkafka.domain.LibraryEvent;
+import com.learnkafka.domain.LibraryEventCounts;
+import com.learnkafka.domain.LibraryEventType;
+import com.learnkafka.serde.LibraryEventBinaryFormat;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.IntegerSerializer;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TestInputTopic;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.errors.LogAndContinueExceptionHandler;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.WindowStore;
+import org.apache.kafka.streams.state.WindowStoreIterator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class LibraryEventStatsTopologyUnitTest {
+
+    private static final Instant START = Instant.parse("2021-06-01T10:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TopologyTestDriver testDriver;
+    private TestInputTopic<Integer, byte[]> libraryEvents;
+
+    @BeforeEach
+    void setUp() {
+        LibraryEventStatsProperties properties = new LibraryEventStatsProperties();
+        StreamsBuilder streamsBuilder = new StreamsBuilder();
+        new LibraryEventStatsTopology(properties).build(streamsBuilder);
+
+        Properties config = new Properties();
+        config.put(StreamsConfig.APPLICATION_ID_CONFIG, "library-events-stats-test");
+        config.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, "dummy:9092");
+        config.put(StreamsConfig.DEFAULT_DESERIALIZATION_EXCEPTION_HANDLER_CLASS_CONFIG,
+                LogAndContinueExceptionHandler.class);
+        testDriver = new TopologyTestDriver(streamsBuilder.build(), config, START);
+        libraryEvents = testDriver.createInputTopic(properties.getTopic(), new IntegerSerializer(),
+                new ByteArraySerializer(), START, Duration.ZERO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        testDriver.close();
+    }
+
+    @Test
+    void countsPerAuthorAndBook() throws Exception {
+        //given
+        libraryEvents.pipeInput(1, json(libraryEvent(1, LibraryEventType.NEW, 456, "Itamar")), START);
+        libraryEvents.pipeInput(2, LibraryEventBinaryFormat.encode(libraryEvent(2, LibraryEventType.UPDATE, 456, "Itamar")), START);
+        libraryEvents.pipeInput(3, json(libraryEvent(3, LibraryEventType.NEW, 789, "Itamar")), START);
+        libraryEvents.pipeInput(4, json(libraryEvent(4, LibraryEventType.NEW, 111, "Dilip")), START);
+
+        //when
+        KeyValueStore<String, LibraryEventCounts> authorCounts = testDriver.getKeyValueStore(LibraryEventStatsTopology.AUTHOR_COUNTS);
+        KeyValueStore<Integer, LibraryEventCounts> bookCounts = testDriver.getKeyValueStore(LibraryEventStatsTopology.BOOK_COUNTS);
+
+        //then
+        assertEquals(new LibraryEventCounts(2, 1), authorCounts.get("Itamar"));
+        assertEquals(new LibraryEventCounts(1, 0), authorCounts.get("Dilip"));
+        assertEquals(new LibraryEventCounts(1, 1), bookCounts.get(456));
+        assertEquals(new LibraryEventCounts(1, 0), bookCounts.get(789));
+    }
+
+    @Test
+    void countsPerWindow() throws Exception {
+        //given
+        libraryEvents.pipeInput(1, json(libraryEvent(1, LibraryEventType.NEW, 456, "Itamar")), START);
+        libraryEvents.pipeInput(2, json(libraryEvent(2, LibraryEventType.UPDATE, 456, "Itamar")), START.plusSeconds(10));
+        libraryEvents.pipeInput(3, json(libraryEvent(3, LibraryEventType.UPDATE, 456, "Itamar")), START.plusSeconds(70));
+
+        //when
+        WindowStore<String, LibraryEventCounts> authorWindows = testDriver.getWindowStore(LibraryEventStatsTopology.AUTHOR_WINDOWED_COUNTS);
+        List<KeyValue<Long, LibraryEventCounts>> windows = new ArrayList<>();
+        try (WindowStoreIterator<LibraryEventCounts> iterator = authorWindows.fetch("Itamar", START, START.plusSeconds(120))) {
+            iterator.forEachRemaining(windows::add);
+        }
+
+        //then
+        assertEquals(List.of(
+                KeyValue.pair(START.toEpochMilli(), new LibraryEventCounts(1, 1)),
+                KeyValue.pair(START.plusSeconds(60).toEpochMilli(), new LibraryEventCounts(0, 1))), windows);
+    }
+
+    @Test
+    void skipsUnreadableAndIncompleteEvents() throws Exception {
+        //given
+        libraryEvents.pipeInput(1, "{not json".getBytes(StandardCharsets.UTF_8), START);
+        libraryEvents.pipeInput(2, json(LibraryEvent.builder().libraryEventId(2).libraryEventType(LibraryEventType.NEW).build()), START);
+        libraryEvents.pipeInput(3, json(libraryEvent(3, LibraryEventType.NEW, 456, null)), START);
+
+        //when
+        KeyValueStore<String, LibraryEventCounts> authorCounts = testDriver.getKeyValueStore(LibraryEventStatsTopology.AUTHOR_COUNTS);
+        KeyValueStore<Integer, LibraryEventCounts> bookCounts = testDriver.getKeyValueStore(LibraryEventStatsTopology.BOOK_COUNTS);
+
+        //then
+        assertEquals(0, authorCounts.approximateNumEntries());
+        assertEquals(new LibraryEventCounts(1, 0), bookCounts.get(456));
+        assertNull(bookCounts.get(2));
+    }
+
+    private byte[] json(LibraryEvent libraryEvent) throws Exception {
+        return objectMapper.writeValueAsBytes(libraryEvent);
+    }
+
+    private static LibraryEvent libraryEvent(Integer libraryEventId, LibraryEventType libraryEventType, Integer bookId,
+                                             String bookAuthor) {
+        return LibraryEvent.builder()
+                .libraryEventId(libraryEventId)
+                .libraryEventType(libraryEventType)
+                .book(Book.builder()
+                        .bookId(bookId)
+                        .bookName("Kafka Using Spring Boot")
+                        .bookAuthor(bookAuthor)
+                        .build())
+                .build();
+    }
+}